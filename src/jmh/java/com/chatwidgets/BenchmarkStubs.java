@@ -0,0 +1,105 @@
+package com.chatwidgets;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Stand-ins for the client objects the benchmarked code needs, so benchmarks run without a game client.
+ */
+final class BenchmarkStubs {
+    private BenchmarkStubs() {
+    }
+
+    static <T> T stub(Class<T> type) {
+        return stub(type, Collections.emptyMap());
+    }
+
+    /**
+     * Implements an interface by returning the value in {@code values} for each method name, then the interface's
+     * default, then the zero value of the return type. Config interfaces therefore behave as a fresh config with
+     * the given overrides.
+     */
+    static <T> T stub(Class<T> type, Map<String, Object> values) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (values.containsKey(method.getName())) {
+                return values.get(method.getName());
+            }
+            if (method.isDefault()) {
+                return MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                        .unreflectSpecial(method, type)
+                        .bindTo(self)
+                        .invokeWithArguments(args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(self, method, args);
+            }
+            return zero(method.getReturnType());
+        });
+        return type.cast(proxy);
+    }
+
+    static void inject(Object target, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    static Object read(Object target, String fieldName) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    static FontMetrics fontMetrics(FontSize fontSize) {
+        Graphics2D graphics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        try {
+            return ChatRenderUtils.setupGraphics(graphics, fontSize);
+        } catch (RuntimeException | LinkageError e) {
+            // fall back to a logical font if the client's fonts can't be loaded
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 16));
+            return graphics.getFontMetrics();
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    private static Object objectMethod(Object self, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return self == args[0];
+            case "hashCode":
+                return System.identityHashCode(self);
+            default:
+                return "stub";
+        }
+    }
+
+    private static Object zero(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == double.class) {
+            return 0d;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.IndexedSprite;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Game messages as the client sends them, tags included, in roughly the mix seen during a bossing or skilling
+ * session: repeated skilling spam with counters, kill counts and timers, drops, broadcasts and coloured notices.
+ */
+final class ChatCorpus {
+    static final String[] GAME_MESSAGES = {
+            "You catch a lobster.",
+            "You catch a lobster.",
+            "You catch a swordfish.",
+            "Your amulet of glory has <col=ff0000>4</col> charges left.",
+            "You catch a lobster.",
+            "<col=ef20ff>Congratulations, you've just advanced your Fishing level. You are now level 85.</col>",
+            "Your Vorkath kill count is: <col=ff0000>1,284</col>.",
+            "Fight duration: <col=ff0000>1:12.60</col>. Personal best: 1:04.20",
+            "<col=ef1020>Valuable drop: Dragonbone necklace (12,482,310 coins)</col>",
+            "<col=ff0000>Untradeable drop: Jar of decay</col>",
+            "<img=2><col=0000ff>Broadcast:</col> Iron Zezima received a drop: Twisted bow",
+            "Your Bracelet of slaughter has <col=ff0000>12</col> charges remaining.",
+            "Your Bracelet of slaughter has <col=ff0000>11</col> charges remaining.",
+            "You have a funny feeling like you're being followed.",
+            "<col=ef1020>You have been poisoned!</col>",
+            "Your reward is: <col=ff0000>2,147</col> x <col=ff0000>Coins</col>.",
+            "You have completed <col=ff0000>417</col> medium Treasure Trails.",
+            "<colHIGHLIGHT>A set of instructions to be followed.</colNORMAL> Have fun!",
+            "New item added to your collection log: <col=ef1020>Dragon warhammer</col>",
+            "Your Thieving level is now <col=ff0000>71</col>. You need <col=ff0000>12,409</col> xp to level up.<br>"
+                    + "Keep going, you're doing well.",
+            "The <col=00ff00>\"Sea Shanty 2\"</col> music track has been unlocked.",
+            "Welcome to Old School RuneScape.",
+            "<col=006000>You manage to mine some coal.</col>",
+            "<col=006000>You manage to mine some coal.</col>",
+            "<img=10>Kenny says: <col=ff0000>Buying 2,000 yew logs at 310 each</col>",
+    };
+
+    static final ChatMessageType[] GAME_TYPES = {
+            ChatMessageType.SPAM,
+            ChatMessageType.SPAM,
+            ChatMessageType.SPAM,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.SPAM,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.BROADCAST,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.MESBOX,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.WELCOME,
+            ChatMessageType.SPAM,
+            ChatMessageType.SPAM,
+            ChatMessageType.GAMEMESSAGE,
+    };
+
+    static final WidgetMessage[] PRIVATE_MESSAGES = {
+            WidgetMessage.privateMessage("<img=2>Zezima", "hey, are you still doing cox later?", 0, false),
+            WidgetMessage.privateMessage("Lynx Titan", "gz on the <col=ff0000>99</col>!", 0, true),
+            WidgetMessage.privateMessage("<img=41>Woox", "mass is at w330 in five, bring a dwh and bandos for the "
+                    + "first room, we'll do a quick scale after that if everyone is still around", 0, false),
+    };
+
+    private ChatCorpus() {
+    }
+
+    /**
+     * @return the message with its tags removed, then every word given its own colour and every fourth word an
+     * icon, as a worst case for tag parsing.
+     */
+    static String heavilyTagged(String message) {
+        String[] words = DuplicateCollapser.key(message, false).split(" ");
+        StringBuilder tagged = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) {
+                tagged.append(' ');
+            }
+            if (i % 4 == 0) {
+                tagged.append("<img=").append(i % 50).append('>');
+            }
+            tagged.append(String.format("<col=%06x>", (i * 0x3f1a2b) & 0xffffff)).append(words[i]).append("</col>");
+        }
+        return tagged.toString();
+    }
+
+    /**
+     * @return mod icons with the sizes and palettes of the client's, filled with a repeating pattern.
+     */
+    static IndexedSprite[] modIcons() {
+        IndexedSprite[] icons = new IndexedSprite[64];
+        for (int i = 0; i < icons.length; i++) {
+            icons[i] = sprite(13, 13);
+        }
+        return icons;
+    }
+
+    static IndexedSprite sprite(int width, int height) {
+        byte[] pixels = new byte[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) (i % 7);
+        }
+        int[] palette = {0, 0xff0000, 0x00ff00, 0x0000ff, 0xffff00, 0x00ffff, 0xffffff};
+        Map<String, Object> values = new HashMap<>();
+        values.put("getWidth", width);
+        values.put("getHeight", height);
+        values.put("getPixels", pixels);
+        values.put("getPalette", palette);
+        return BenchmarkStubs.stub(IndexedSprite.class, values);
+    }
+}
@@ -0,0 +1,156 @@
+package com.chatwidgets;
+
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.client.config.ChatColorConfig;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Replays a session recorded with the Record Chat setting into the plugin, rendering the game and private overlays
+ * offscreen as it goes, and reports throughput, peak history sizes and frame times. A frame is drawn whenever a frame
+ * interval of recorded time has passed since the last one, so idle stretches of a recording cost nothing.
+ * <p>
+ * Run with {@code ./gradlew replayHarness -Precording=<file>}, optionally with {@code -Pspeed=<n>} to replay at
+ * n times the recorded speed, or 0 for as fast as possible (the default).
+ */
+public final class ChatReplayHarness {
+    private static final long FRAME_INTERVAL_MS = 20;
+    private static final int CANVAS_WIDTH = 765;
+    private static final int CANVAS_HEIGHT = 503;
+
+    private ChatReplayHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: ChatReplayHarness <recording> [speed]");
+            System.exit(1);
+        }
+        List<ChatRecorder.Recording> recordings = ChatRecorder.read(new File(args[0]));
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+        if (recordings.isEmpty()) {
+            System.out.println("Recording is empty");
+            return;
+        }
+
+        Map<String, Object> clientValues = new HashMap<>();
+        clientValues.put("getGameState", GameState.LOGGED_IN);
+        clientValues.put("isResized", true);
+        // the value of CHAT_VIEW when the chatbox is minimized
+        clientValues.put("getVarcIntValue", 1337);
+        clientValues.put("getModIcons", ChatCorpus.modIcons());
+        clientValues.put("getCanvasWidth", CANVAS_WIDTH);
+        clientValues.put("getCanvasHeight", CANVAS_HEIGHT);
+        Client client = BenchmarkStubs.stub(Client.class, clientValues);
+        Map<String, Object> configValues = new HashMap<>();
+        configValues.put("mergeWithGameWidget", false);
+        configValues.put("overheadChatEnabled", false);
+        ChatWidgetConfig config = BenchmarkStubs.stub(ChatWidgetConfig.class, configValues);
+
+        ChatboxState chatboxState = new ChatboxState(client, config);
+        chatboxState.refreshAll();
+
+        PerformanceMetrics performanceMetrics = new PerformanceMetrics();
+        ChatWidgetPlugin plugin = new ChatWidgetPlugin();
+        BenchmarkStubs.inject(plugin, "client", client);
+        BenchmarkStubs.inject(plugin, "config", config);
+        BenchmarkStubs.inject(plugin, "chatboxState", chatboxState);
+        BenchmarkStubs.inject(plugin, "performanceMetrics", performanceMetrics);
+        BenchmarkStubs.inject(plugin, "chatRecorder", new ChatRecorder(new File(".")));
+        invoke(plugin, "updateChannelCapacities");
+        invoke(plugin, "updateRetention");
+        MessageStore gameStore = plugin.getChannelStore(ChatChannel.GAME);
+        gameStore.addJournal((MessageJournal) BenchmarkStubs.read(plugin, "gameRetention"));
+        DuplicateCollapser collapser = (DuplicateCollapser) BenchmarkStubs.read(plugin, "gameCollapser");
+        collapser.setTemplates(config.collapseSimilar());
+        gameStore.addJournal(collapser);
+
+        ChatIconCache iconCache = new ChatIconCache();
+        LayoutCache layoutCache = new LayoutCache();
+        GameChatOverlay gameOverlay = new GameChatOverlay(plugin, config, client,
+                BenchmarkStubs.stub(ChatColorConfig.class), null, layoutCache, iconCache, performanceMetrics);
+        PrivateChatOverlay privateOverlay = new PrivateChatOverlay(plugin, config, client, layoutCache, iconCache,
+                performanceMetrics);
+        BufferedImage canvas = new BufferedImage(CANVAS_WIDTH, CANVAS_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+
+        Map<ChatChannel, Integer> peakSizes = new EnumMap<>(ChatChannel.class);
+        long[] frameTimes = new long[16];
+        int frames = 0;
+        long nextFrame = 0;
+        long start = System.nanoTime();
+        for (ChatRecorder.Recording recording : recordings) {
+            if (speed > 0) {
+                long due = start + (long) (recording.getTime() * 1_000_000 / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+            }
+
+            plugin.onChatMessage(recording.toEvent());
+            for (ChatChannel channel : ChatChannel.values()) {
+                MessageStore store = plugin.getChannelStore(channel);
+                peakSizes.merge(channel, store.historySize(), Math::max);
+            }
+
+            if (recording.getTime() >= nextFrame) {
+                if (frames == frameTimes.length) {
+                    frameTimes = Arrays.copyOf(frameTimes, frames * 2);
+                }
+                long frameStart = System.nanoTime();
+                renderFrame(canvas, gameOverlay, privateOverlay);
+                frameTimes[frames++] = System.nanoTime() - frameStart;
+                nextFrame = recording.getTime() + FRAME_INTERVAL_MS;
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = Arrays.copyOf(frameTimes, frames);
+        Arrays.sort(sorted);
+        long recordedMs = recordings.get(recordings.size() - 1).getTime();
+        System.out.println(String.format(Locale.ROOT, "%d messages over %.1f s recorded, replayed in %.2f s at %s",
+                recordings.size(), recordedMs / 1000.0, elapsedSeconds, speed > 0 ? speed + "x" : "full speed"));
+        System.out.println(String.format(Locale.ROOT, "Throughput: %.0f msg/s", recordings.size() / elapsedSeconds));
+        System.out.println(String.format(Locale.ROOT, "Frames: %d, p50 %.1f us, p99 %.1f us, max %.1f us", frames,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1000.0));
+        StringBuilder peaks = new StringBuilder("Peak history:");
+        for (Map.Entry<ChatChannel, Integer> peak : peakSizes.entrySet()) {
+            if (peak.getValue() > 0) {
+                peaks.append(' ').append(peak.getKey()).append(' ').append(peak.getValue());
+            }
+        }
+        System.out.println(peaks);
+    }
+
+    private static void renderFrame(BufferedImage canvas, GameChatOverlay gameOverlay,
+            PrivateChatOverlay privateOverlay) {
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            gameOverlay.render(graphics);
+            privateOverlay.render(graphics);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    private static double percentile(long[] sortedTimes, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedTimes.length) - 1;
+        return sortedTimes[Math.max(0, index)] / 1000.0;
+    }
+
+    private static void invoke(Object target, String methodName) throws ReflectiveOperationException {
+        Method method = target.getClass().getDeclaredMethod(methodName);
+        method.setAccessible(true);
+        method.invoke(target);
+    }
+}
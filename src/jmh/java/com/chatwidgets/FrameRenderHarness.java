@@ -0,0 +1,194 @@
+package com.chatwidgets;
+
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.events.ChatMessage;
+import net.runelite.client.config.ChatColorConfig;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders the game and private overlays into an offscreen image the way the client does every frame, and reports
+ * frame time percentiles and bytes allocated per frame for a set of scenarios. Each scenario changes one thing from
+ * the baseline, so the difference between its numbers and the baseline's is what that setting costs.
+ * <p>
+ * Run with {@code ./gradlew frameHarness}, optionally with {@code -Pframes=<count>}.
+ */
+public final class FrameRenderHarness {
+    private static final int WARMUP_FRAMES = 2000;
+    private static final int CANVAS_WIDTH = 765;
+    private static final int CANVAS_HEIGHT = 503;
+
+    private FrameRenderHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("baseline"));
+        scenarios.add(new Scenario("history 5000").history(5000).set("deepHistorySize", 5000));
+        scenarios.add(new Scenario("20 visible").set("gameMaxMessages", 20).set("privateMaxMessages", 20));
+        scenarios.add(new Scenario("no wrap").set("wrapText", false));
+        scenarios.add(new Scenario("merged").set("mergeWithGameWidget", true));
+        scenarios.add(new Scenario("timestamps").set("showTimestamp", true));
+        scenarios.add(new Scenario("small font").set("fontSize", FontSize.SMALL));
+        scenarios.add(new Scenario("heavy tags").heavyTags());
+        scenarios.add(new Scenario("collapsed").set("collapseGameChat", true).set("collapseSimilar", true));
+
+        System.out.println(String.format(Locale.ROOT, "%-14s %10s %10s %10s %10s %12s",
+                "scenario", "p50 us", "p90 us", "p99 us", "max us", "bytes/frame"));
+        for (Scenario scenario : scenarios) {
+            System.out.println(scenario.run(frames));
+        }
+    }
+
+    private static final class Scenario {
+        private final String name;
+        private final Map<String, Object> config = new HashMap<>();
+        private int history = 50;
+        private boolean heavyTags;
+
+        private Scenario(String name) {
+            this.name = name;
+            config.put("mergeWithGameWidget", false);
+            config.put("retainContextualColours", true);
+            config.put("deepHistorySize", 0);
+        }
+
+        private Scenario set(String key, Object value) {
+            config.put(key, value);
+            return this;
+        }
+
+        private Scenario history(int history) {
+            this.history = history;
+            return this;
+        }
+
+        private Scenario heavyTags() {
+            heavyTags = true;
+            return this;
+        }
+
+        private String run(int frames) throws ReflectiveOperationException {
+            Map<String, Object> clientValues = new HashMap<>();
+            clientValues.put("getGameState", GameState.LOGGED_IN);
+            clientValues.put("isResized", true);
+            // the value of CHAT_VIEW when the chatbox is minimized
+            clientValues.put("getVarcIntValue", 1337);
+            clientValues.put("getModIcons", ChatCorpus.modIcons());
+            clientValues.put("getCanvasWidth", CANVAS_WIDTH);
+            clientValues.put("getCanvasHeight", CANVAS_HEIGHT);
+            Client client = BenchmarkStubs.stub(Client.class, clientValues);
+            ChatWidgetConfig widgetConfig = BenchmarkStubs.stub(ChatWidgetConfig.class, config);
+
+            ChatboxState chatboxState = new ChatboxState(client, widgetConfig);
+            chatboxState.refreshAll();
+
+            PerformanceMetrics performanceMetrics = new PerformanceMetrics();
+            ChatWidgetPlugin plugin = new ChatWidgetPlugin();
+            BenchmarkStubs.inject(plugin, "client", client);
+            BenchmarkStubs.inject(plugin, "config", widgetConfig);
+            BenchmarkStubs.inject(plugin, "chatboxState", chatboxState);
+            BenchmarkStubs.inject(plugin, "performanceMetrics", performanceMetrics);
+            invoke(plugin, "updateChannelCapacities");
+            invoke(plugin, "updateRetention");
+            MessageStore gameStore = plugin.getChannelStore(ChatChannel.GAME);
+            gameStore.addJournal((MessageJournal) BenchmarkStubs.read(plugin, "gameRetention"));
+            DuplicateCollapser collapser = (DuplicateCollapser) BenchmarkStubs.read(plugin, "gameCollapser");
+            collapser.setTemplates(Boolean.TRUE.equals(config.get("collapseSimilar")));
+            gameStore.addJournal(collapser);
+            fill(plugin);
+
+            ChatIconCache iconCache = new ChatIconCache();
+            LayoutCache layoutCache = new LayoutCache();
+            GameChatOverlay gameOverlay = new GameChatOverlay(plugin, widgetConfig, client,
+                    BenchmarkStubs.stub(ChatColorConfig.class), null, layoutCache, iconCache, performanceMetrics);
+            PrivateChatOverlay privateOverlay = new PrivateChatOverlay(plugin, widgetConfig, client, layoutCache, iconCache,
+                    performanceMetrics);
+
+            BufferedImage canvas = new BufferedImage(CANVAS_WIDTH, CANVAS_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                renderFrame(canvas, gameOverlay, privateOverlay);
+            }
+
+            long[] times = new long[frames];
+            long allocatedBefore = allocatedBytes();
+            for (int i = 0; i < frames; i++) {
+                long start = System.nanoTime();
+                renderFrame(canvas, gameOverlay, privateOverlay);
+                times[i] = System.nanoTime() - start;
+            }
+            long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+
+            Arrays.sort(times);
+            return String.format(Locale.ROOT, "%-14s %10.1f %10.1f %10.1f %10.1f %12d", name,
+                    percentile(times, 0.50), percentile(times, 0.90), percentile(times, 0.99),
+                    times[times.length - 1] / 1000.0, allocated < 0 ? -1 : allocated / frames);
+        }
+
+        private void fill(ChatWidgetPlugin plugin) {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < history; i++) {
+                int index = i % ChatCorpus.GAME_MESSAGES.length;
+                String message = ChatCorpus.GAME_MESSAGES[index];
+                ChatMessage event = new ChatMessage();
+                event.setType(ChatCorpus.GAME_TYPES[index]);
+                event.setName("");
+                event.setMessage(heavyTags ? ChatCorpus.heavilyTagged(message) : message);
+                plugin.handleGameMessage(event);
+            }
+
+            MessageStore privateStore = plugin.getChannelStore(ChatChannel.PRIVATE);
+            for (int i = 0; i < history; i++) {
+                WidgetMessage template = ChatCorpus.PRIVATE_MESSAGES[i % ChatCorpus.PRIVATE_MESSAGES.length];
+                String message = heavyTags ? ChatCorpus.heavilyTagged(template.getMessage()) : template.getMessage();
+                privateStore.add(WidgetMessage.privateMessage(template.getSender(), message, now,
+                        template.isOutgoing()));
+            }
+        }
+    }
+
+    private static void renderFrame(BufferedImage canvas, GameChatOverlay gameOverlay,
+            PrivateChatOverlay privateOverlay) {
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            gameOverlay.render(graphics);
+            privateOverlay.render(graphics);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    private static double percentile(long[] sortedTimes, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedTimes.length) - 1;
+        return sortedTimes[Math.max(0, index)] / 1000.0;
+    }
+
+    /**
+     * @return bytes allocated by this thread so far, or -1 if the JVM can't report it.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void invoke(Object target, String methodName) throws ReflectiveOperationException {
+        Method method = target.getClass().getDeclaredMethod(methodName);
+        method.setAccessible(true);
+        method.invoke(target);
+    }
+}
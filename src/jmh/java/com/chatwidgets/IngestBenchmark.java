@@ -0,0 +1,66 @@
+package com.chatwidgets;
+
+import net.runelite.api.events.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of taking one game message into the plugin's history, cycling through the corpus so collapsing and
+ * eviction happen at a realistic rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngestBenchmark {
+    @Param({"off", "exact", "similar"})
+    public String collapse;
+
+    private ChatWidgetPlugin plugin;
+    private ChatMessage[] events;
+    private int next;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Map<String, Object> values = new HashMap<>();
+        values.put("collapseGameChat", !collapse.equals("off"));
+        values.put("collapseSimilar", collapse.equals("similar"));
+
+        plugin = new ChatWidgetPlugin();
+        BenchmarkStubs.inject(plugin, "config", BenchmarkStubs.stub(ChatWidgetConfig.class, values));
+        BenchmarkStubs.inject(plugin, "performanceMetrics", new PerformanceMetrics());
+        DuplicateCollapser collapser = (DuplicateCollapser) BenchmarkStubs.read(plugin, "gameCollapser");
+        collapser.setTemplates(collapse.equals("similar"));
+        ((MessageStore) BenchmarkStubs.read(plugin, "gameMessages")).addJournal(collapser);
+
+        events = new ChatMessage[ChatCorpus.GAME_MESSAGES.length];
+        for (int i = 0; i < events.length; i++) {
+            ChatMessage event = new ChatMessage();
+            event.setType(ChatCorpus.GAME_TYPES[i]);
+            event.setName("");
+            event.setMessage(ChatCorpus.GAME_MESSAGES[i]);
+            events[i] = event;
+        }
+    }
+
+    @Benchmark
+    public void handleGameMessage() {
+        plugin.handleGameMessage(events[next]);
+        next = (next + 1) % events.length;
+    }
+}
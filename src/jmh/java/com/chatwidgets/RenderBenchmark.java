@@ -0,0 +1,92 @@
+package com.chatwidgets;
+
+import net.runelite.api.Client;
+import net.runelite.api.IndexedSprite;
+import net.runelite.client.config.ChatColorConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message layout work done while rendering: tag parsing, wrapping, private message lines and icon conversion.
+ * Each invocation processes the whole corpus, so divide by the corpus size for a per-message cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    private static final int WIDGET_WIDTH = 300;
+
+    @Param({"false", "true"})
+    public boolean retainContextualColours;
+
+    private GameChatOverlay overlay;
+    private FontMetrics metrics;
+    private IndexedSprite[] modIcons;
+    private IndexedSprite sprite;
+    private List<List<TextSegment>> parsed;
+
+    @Setup
+    public void setUp() {
+        ChatWidgetConfig config = BenchmarkStubs.stub(ChatWidgetConfig.class);
+        overlay = new GameChatOverlay(null, config, BenchmarkStubs.stub(Client.class),
+                BenchmarkStubs.stub(ChatColorConfig.class), null, new LayoutCache(), new ChatIconCache(),
+                new PerformanceMetrics());
+        metrics = BenchmarkStubs.fontMetrics(FontSize.REGULAR);
+        modIcons = ChatCorpus.modIcons();
+        sprite = ChatCorpus.sprite(13, 13);
+
+        parsed = new ArrayList<>();
+        for (String message : ChatCorpus.GAME_MESSAGES) {
+            parsed.add(overlay.parseTextWithColoursAndIcons(message, metrics, modIcons, retainContextualColours,
+                    Color.WHITE));
+        }
+    }
+
+    @Benchmark
+    public void parseTextWithColoursAndIcons(Blackhole blackhole) {
+        for (String message : ChatCorpus.GAME_MESSAGES) {
+            blackhole.consume(overlay.parseTextWithColoursAndIcons(message, metrics, modIcons,
+                    retainContextualColours, Color.WHITE));
+        }
+    }
+
+    @Benchmark
+    public void wrapSegments(Blackhole blackhole) {
+        for (List<TextSegment> segments : parsed) {
+            blackhole.consume(ChatRenderUtils.wrapSegments(segments, metrics, WIDGET_WIDTH, WIDGET_WIDTH,
+                    Color.WHITE));
+        }
+    }
+
+    @Benchmark
+    public void buildPrivateMessageLines(Blackhole blackhole) {
+        for (WidgetMessage msg : ChatCorpus.PRIVATE_MESSAGES) {
+            blackhole.consume(ChatRenderUtils.buildPrivateMessageLines(msg, metrics, WIDGET_WIDTH, 0, 0, true,
+                    Color.WHITE, FontSize.REGULAR, modIcons, true, "[HH:mm]", 500));
+        }
+    }
+
+    @Benchmark
+    public Object spriteToBufferedImage() {
+        return ChatRenderUtils.spriteToBufferedImage(sprite);
+    }
+}
@@ -0,0 +1,81 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+
+public enum ChatChannel {
+    GAME("Game"),
+    PRIVATE("Private"),
+    CLAN("Clan"),
+    FRIENDS_CHAT("Friends Chat"),
+    PUBLIC("Public");
+
+    private static final ChatChannel[] ROUTES = new ChatChannel[ChatMessageType.values().length];
+
+    static {
+        route(GAME,
+                ChatMessageType.GAMEMESSAGE,
+                ChatMessageType.SPAM,
+                ChatMessageType.CONSOLE,
+                ChatMessageType.WELCOME,
+                ChatMessageType.BROADCAST,
+                ChatMessageType.DIDYOUKNOW,
+                ChatMessageType.ENGINE,
+                ChatMessageType.FRIENDNOTIFICATION,
+                ChatMessageType.FRIENDSCHATNOTIFICATION,
+                ChatMessageType.IGNORENOTIFICATION,
+                ChatMessageType.ITEM_EXAMINE,
+                ChatMessageType.NPC_EXAMINE,
+                ChatMessageType.OBJECT_EXAMINE,
+                ChatMessageType.PLAYERRELATED,
+                ChatMessageType.SNAPSHOTFEEDBACK,
+                ChatMessageType.TRADE,
+                ChatMessageType.TRADE_SENT,
+                ChatMessageType.TRADEREQ,
+                ChatMessageType.UNKNOWN); //combat achievements-related?
+        route(PRIVATE,
+                ChatMessageType.PRIVATECHAT,
+                ChatMessageType.PRIVATECHATOUT,
+                ChatMessageType.MODPRIVATECHAT,
+                ChatMessageType.LOGINLOGOUTNOTIFICATION);
+        route(CLAN,
+                ChatMessageType.CLAN_CHAT,
+                ChatMessageType.CLAN_MESSAGE,
+                ChatMessageType.CLAN_GUEST_CHAT,
+                ChatMessageType.CLAN_GUEST_MESSAGE,
+                ChatMessageType.CLAN_GIM_CHAT,
+                ChatMessageType.CLAN_GIM_MESSAGE);
+        route(FRIENDS_CHAT,
+                ChatMessageType.FRIENDSCHAT);
+        route(PUBLIC,
+                ChatMessageType.PUBLICCHAT,
+                ChatMessageType.MODCHAT,
+                ChatMessageType.AUTOTYPER,
+                ChatMessageType.MODAUTOTYPER);
+    }
+
+    private final String name;
+
+    ChatChannel(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Looks up the channel a message type is stored in.
+     *
+     * @return the channel for the type, or <i>null</i> if the plugin ignores the type.
+     */
+    public static ChatChannel forType(ChatMessageType type) {
+        return type == null ? null : ROUTES[type.ordinal()];
+    }
+
+    private static void route(ChatChannel channel, ChatMessageType... types) {
+        for (ChatMessageType type : types) {
+            ROUTES[type.ordinal()] = channel;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,58 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+
+/**
+ * Java Flight Recorder events for ingest, layout and draw, so the plugin's work shows up by name in a recording.
+ * The events are disabled by default and are enabled like any other JFR event, e.g. in JDK Mission Control.
+ * <p>
+ * JFR classes are only touched through {@link JfrEvents} once JFR is known to be present, as RuneLite's bundled
+ * runtime may not include the {@code jdk.jfr} module. Each {@code begin} method returns null while its event is
+ * disabled, and the matching {@code end} method does nothing with null, so disabled events cost a null check.
+ */
+public final class ChatEvents {
+    private static final boolean AVAILABLE = isJfrAvailable();
+
+    private ChatEvents() {
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, ChatEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static Object beginIngest() {
+        return AVAILABLE ? JfrEvents.beginIngest() : null;
+    }
+
+    public static void endIngest(Object event, ChatMessageType type, String message, boolean collapsed,
+            boolean merged) {
+        if (event != null) {
+            JfrEvents.endIngest(event, type, message, collapsed, merged);
+        }
+    }
+
+    public static Object beginLayout() {
+        return AVAILABLE ? JfrEvents.beginLayout() : null;
+    }
+
+    public static void endLayout(Object event, String widget, int messages, int lines, int wrapWidth) {
+        if (event != null) {
+            JfrEvents.endLayout(event, widget, messages, lines, wrapWidth);
+        }
+    }
+
+    public static Object beginDraw() {
+        return AVAILABLE ? JfrEvents.beginDraw() : null;
+    }
+
+    public static void endDraw(Object event, String widget, int lines, int icons) {
+        if (event != null) {
+            JfrEvents.endDraw(event, widget, lines, icons);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.chatwidgets;
+
+import net.runelite.client.RuneLite;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams every message added to the chat history as newline-delimited JSON, to a rotating file and optionally to a
+ * localhost TCP port, for external tooling.
+ * <p>
+ * Messages are queued by the {@link MessageJournal}s returned from {@link #journal(ChatChannel)} and written in
+ * batches by a single background thread. When the queue is full because the disk can't keep up, messages are dropped
+ * and counted rather than blocking the client thread. The socket is written without blocking, and batches are
+ * dropped from it while its reader is behind, so a stalled reader never holds up the file.
+ */
+@Singleton
+public class ChatExporter {
+    private static final String FILE_PREFIX = "chat-";
+    private static final String FILE_SUFFIX = ".ndjson";
+    private static final long FILE_BYTES = 16 << 20;
+    private static final int MAX_FILES = 4;
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final long POLL_INTERVAL_MS = 200;
+    private static final int BATCH_SIZE = 512;
+    private static final long RECONNECT_INTERVAL_MS = 5000;
+
+    private static final Entry STOP = new Entry(null, null, false);
+
+    private final File directory;
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder socketDropped = new LongAdder();
+
+    // the current export's queue, or null before the first start
+    private volatile BlockingQueue<Entry> queue;
+    private volatile boolean running;
+    private Thread writer;
+
+    @Inject
+    public ChatExporter() {
+        this(new File(new File(RuneLite.RUNELITE_DIR, "chat-widgets"), "export"));
+    }
+
+    public ChatExporter(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Starts exporting to a new file, and to {@code 127.0.0.1:port} if the port isn't 0. The connection is retried
+     * every few seconds while nothing is listening on the port.
+     */
+    public synchronized void start(int port) {
+        // a writer still finishing the last export owns its file and socket until it exits
+        if (running || !joinWriter()) {
+            return;
+        }
+        Session session = new Session(port);
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                return;
+            }
+            rotate(session);
+        } catch (IOException e) {
+            return;
+        }
+
+        queue = session.queue;
+        running = true;
+        writer = new Thread(() -> runWriter(session), "chat-widgets-export");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops exporting. The writer finishes writing every queued message in the background, so this never waits on
+     * the disk.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // if the queue is full the writer stops on its own once it has drained it
+        queue.offer(STOP);
+    }
+
+    /**
+     * Waits briefly for the writer of the last export to finish.
+     *
+     * @return whether it has finished, so a new export may start.
+     */
+    private boolean joinWriter() {
+        if (writer == null) {
+            return true;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            return false;
+        }
+        writer = null;
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of messages written.
+     */
+    public long getExported() {
+        return exported.sum();
+    }
+
+    /**
+     * @return the number of messages dropped because the queue was full.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the number of messages written to the file but not sent to the socket, because its reader wasn't
+     * keeping up.
+     */
+    public long getSocketDropped() {
+        return socketDropped.sum();
+    }
+
+    public MessageJournal journal(ChatChannel channel) {
+        return new MessageJournal() {
+            @Override
+            public void appended(WidgetMessage msg) {
+                enqueue(new Entry(channel, msg, false));
+            }
+
+            @Override
+            public void replaced(WidgetMessage previous, WidgetMessage replacement) {
+                enqueue(new Entry(channel, replacement, true));
+            }
+
+            @Override
+            public void removed(WidgetMessage msg) {
+            }
+
+            @Override
+            public void cleared() {
+            }
+        };
+    }
+
+    private void enqueue(Entry entry) {
+        BlockingQueue<Entry> queue = this.queue;
+        if (running && queue != null && !queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void runWriter(Session session) {
+        BlockingQueue<Entry> queue = session.queue;
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        StringBuilder json = new StringBuilder(BATCH_SIZE * 256);
+        try {
+            boolean stop = false;
+            while (!stop) {
+                Entry first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    stop = !running;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+
+                json.setLength(0);
+                int written = 0;
+                for (Entry entry : batch) {
+                    if (entry == STOP) {
+                        stop = true;
+                        break;
+                    }
+                    appendJson(json, entry);
+                    written++;
+                }
+                batch.clear();
+                if (written == 0) {
+                    continue;
+                }
+
+                byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+                writeFully(session.file, ByteBuffer.wrap(bytes));
+                session.fileBytes += bytes.length;
+                exported.add(written);
+                writeSocket(session, bytes, written);
+
+                if (session.fileBytes >= FILE_BYTES) {
+                    rotate(session);
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            running = false;
+            queue.clear();
+        } finally {
+            closeQuietly(session.file);
+            closeQuietly(session.socket);
+            session.file = null;
+            session.socket = null;
+        }
+    }
+
+    /**
+     * Sends a batch to the socket without blocking. A batch is only sent once the previous one has been sent in
+     * full, so a reader that falls behind misses whole lines rather than receiving a broken one.
+     */
+    private void writeSocket(Session session, byte[] bytes, int messages) {
+        if (session.port == 0) {
+            return;
+        }
+        if (session.socket == null) {
+            long now = System.currentTimeMillis();
+            if (now - session.lastConnectAttempt < RECONNECT_INTERVAL_MS) {
+                return;
+            }
+            session.lastConnectAttempt = now;
+            try {
+                session.socket = SocketChannel.open(new InetSocketAddress("127.0.0.1", session.port));
+                session.socket.configureBlocking(false);
+            } catch (IOException e) {
+                closeQuietly(session.socket);
+                session.socket = null;
+                return;
+            }
+            session.pending = null;
+        }
+        try {
+            if (session.pending != null) {
+                session.socket.write(session.pending);
+                if (session.pending.hasRemaining()) {
+                    socketDropped.add(messages);
+                    return;
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            session.socket.write(buffer);
+            session.pending = buffer.hasRemaining() ? buffer : null;
+        } catch (IOException e) {
+            // the reader went away, reconnect on a later batch
+            closeQuietly(session.socket);
+            session.socket = null;
+            session.pending = null;
+        }
+    }
+
+    /**
+     * Starts a new file, removing the oldest once there are more than {@link #MAX_FILES}.
+     */
+    private void rotate(Session session) throws IOException {
+        closeQuietly(session.file);
+        String name = FILE_PREFIX + new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss-SSS").format(new Date()) + FILE_SUFFIX;
+        session.file = FileChannel.open(new File(directory, name).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        session.fileBytes = session.file.size();
+
+        File[] files = directory.listFiles((dir, fileName) -> fileName.startsWith(FILE_PREFIX)
+                && fileName.endsWith(FILE_SUFFIX));
+        if (files != null && files.length > MAX_FILES) {
+            // names sort by the time they were started
+            Arrays.sort(files);
+            for (int i = 0; i < files.length - MAX_FILES; i++) {
+                files[i].delete();
+            }
+        }
+    }
+
+    private static void appendJson(StringBuilder json, Entry entry) {
+        WidgetMessage msg = entry.msg;
+        json.append("{\"seq\":").append(msg.getSequence());
+        json.append(",\"ts\":").append(msg.getTimestamp());
+        json.append(",\"channel\":\"").append(entry.channel.name()).append('"');
+        json.append(",\"type\":");
+        appendString(json, msg.getType() != null ? msg.getType().name() : null, false);
+        json.append(",\"sender\":");
+        appendString(json, msg.getSender(), true);
+        json.append(",\"text\":");
+        appendString(json, msg.getMessage(), true);
+        json.append(",\"raw\":");
+        appendString(json, msg.getMessage(), false);
+        json.append(",\"count\":").append(msg.getCount());
+        if (entry.replacement) {
+            json.append(",\"replaced\":true");
+        }
+        json.append("}\n");
+    }
+
+    /**
+     * Appends a JSON string, or null.
+     *
+     * @param stripTags whether to leave out tags such as {@code <col=ff0000>}, turning line breaks into spaces.
+     */
+    static void appendString(StringBuilder json, String value, boolean stripTags) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (stripTags && c == '<') {
+                int close = value.indexOf('>', i);
+                if (close >= 0) {
+                    if (value.startsWith("<br>", i)) {
+                        json.append(' ');
+                    }
+                    i = close;
+                    continue;
+                }
+            }
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                    break;
+            }
+        }
+        json.append('"');
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(Channel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * The state of one export, owned by its writer thread once started.
+     */
+    private static final class Session {
+        private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final int port;
+        private FileChannel file;
+        private long fileBytes;
+        private SocketChannel socket;
+        // the unsent rest of the last batch written to the socket
+        private ByteBuffer pending;
+        private long lastConnectAttempt;
+
+        private Session(int port) {
+            this.port = port;
+        }
+    }
+
+    private static final class Entry {
+        private final ChatChannel channel;
+        private final WidgetMessage msg;
+        private final boolean replacement;
+
+        private Entry(ChatChannel channel, WidgetMessage msg, boolean replacement) {
+            this.channel = channel;
+            this.msg = msg;
+            this.replacement = replacement;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.Client;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Developer tool which adds synthetic chat messages to the client at a fixed rate, to check collapsing, merging,
+ * fading and wrapping under load and watch the frame time while it happens. Messages are added on the client thread
+ * from {@link #tick()}, so they go through the client and the plugin exactly as real messages do.
+ */
+@Singleton
+public class ChatFloodGenerator {
+    public static final int MAX_RATE = 5000;
+
+    /**
+     * Kinds of message the generator can add, and their share of the traffic.
+     */
+    public enum Kind {
+        GAME(40),
+        SPAM(25),
+        BROADCAST(10),
+        PRIVATE(20),
+        LOGIN(5);
+
+        private final int weight;
+
+        Kind(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final String[] ITEMS = {
+            "Dragon warhammer", "Twisted bow", "Abyssal whip", "Dragon bones", "Rune platebody", "Jar of decay",
+    };
+    private static final String[] FOODS = {"shark", "anglerfish", "karambwan", "manta ray"};
+    private static final String[] POTIONS = {"prayer potion", "super restore", "saradomin brew", "stamina potion"};
+    private static final String[] PLAYERS = {"Zezima", "Lynx Titan", "Woox", "B0aty", "Framed", "Mod Ash"};
+    private static final String LONG_MESSAGE = "This message is deliberately long so that it has to wrap over "
+            + "several lines in every widget, even at the smallest font size and the widest widget, which makes "
+            + "it easy to see whether wrapping and fading still line up while the chat is busy.";
+
+    private final Client client;
+    private final Random random = new Random();
+
+    // only touched on the client thread
+    private int rate;
+    private long endTime;
+    private long lastTime;
+    private double owed;
+    private Kind[] kinds = new Kind[0];
+    private int totalWeight;
+    private int pendingFollowUp = -1;
+    private int sequence;
+
+    @Inject
+    public ChatFloodGenerator(Client client) {
+        this.client = client;
+    }
+
+    /**
+     * Starts adding messages, replacing any flood already running.
+     *
+     * @param rate messages per second, up to {@link #MAX_RATE}.
+     * @param seconds how long to run for, or 0 to run until stopped.
+     * @param kinds the kinds of message to add, or empty for all of them.
+     */
+    public void start(int rate, int seconds, Set<Kind> kinds) {
+        Set<Kind> selected = kinds.isEmpty() ? EnumSet.allOf(Kind.class) : kinds;
+        this.kinds = selected.toArray(new Kind[0]);
+        totalWeight = 0;
+        for (Kind kind : this.kinds) {
+            totalWeight += kind.weight;
+        }
+        this.rate = Math.max(0, Math.min(MAX_RATE, rate));
+        long now = System.nanoTime();
+        lastTime = now;
+        endTime = seconds > 0 ? now + seconds * 1_000_000_000L : Long.MAX_VALUE;
+        owed = 0;
+        pendingFollowUp = -1;
+    }
+
+    public void stop() {
+        rate = 0;
+    }
+
+    public boolean isRunning() {
+        return rate > 0;
+    }
+
+    /**
+     * Adds the messages due since the last tick. Must be called on the client thread.
+     */
+    public void tick() {
+        if (rate <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now >= endTime) {
+            stop();
+            return;
+        }
+        // never catch up on more than a second, e.g. after the client stalled
+        owed = Math.min(rate, owed + rate * (now - lastTime) / 1e9);
+        lastTime = now;
+        while (owed >= 1) {
+            owed--;
+            addMessage();
+        }
+    }
+
+    private void addMessage() {
+        sequence++;
+        if (pendingFollowUp >= 0) {
+            // the second half of a merge pair has to come straight after the first
+            int doses = pendingFollowUp;
+            pendingFollowUp = -1;
+            if (doses == 0) {
+                client.addChatMessage(ChatMessageType.SPAM, "", "It heals some health.", null);
+            } else {
+                client.addChatMessage(ChatMessageType.SPAM, "", "You have " + doses + " doses of potion left.",
+                        null);
+            }
+            return;
+        }
+
+        switch (pickKind()) {
+            case GAME:
+                addGameMessage();
+                break;
+            case SPAM:
+                addSpamMessage();
+                break;
+            case BROADCAST:
+                client.addChatMessage(ChatMessageType.BROADCAST, "", String.format(Locale.ROOT,
+                        "<img=%d><col=0000ff>Broadcast:</col> %s received a drop: <col=ef1020>%s</col>",
+                        1 + random.nextInt(3), pick(PLAYERS), pick(ITEMS)), null);
+                break;
+            case PRIVATE:
+                addPrivateMessage();
+                break;
+            case LOGIN:
+                String player = pick(PLAYERS);
+                client.addChatMessage(ChatMessageType.LOGINLOGOUTNOTIFICATION, player,
+                        player + (random.nextBoolean() ? " has logged in." : " has logged out."), null);
+                break;
+        }
+    }
+
+    private void addGameMessage() {
+        String message;
+        switch (random.nextInt(5)) {
+            case 0:
+                message = String.format(Locale.ROOT,
+                        "Your Bracelet of slaughter has <col=ff0000>%d</col> charges remaining.", random.nextInt(30));
+                break;
+            case 1:
+                message = String.format(Locale.ROOT, "Your Vorkath kill count is: <col=ff0000>%,d</col>.",
+                        1000 + sequence);
+                break;
+            case 2:
+                message = String.format(Locale.ROOT, "<col=ef1020>Valuable drop: %s (%,d coins)</col>",
+                        pick(ITEMS), random.nextInt(20_000_000));
+                break;
+            case 3:
+                message = LONG_MESSAGE;
+                break;
+            default:
+                message = String.format(Locale.ROOT, "The <col=00ff00>\"%s\"</col> music track has been unlocked.",
+                        pick(PLAYERS));
+                break;
+        }
+        client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", message, null);
+    }
+
+    private void addSpamMessage() {
+        switch (random.nextInt(4)) {
+            case 0:
+                client.addChatMessage(ChatMessageType.SPAM, "", "You eat the " + pick(FOODS) + ".", null);
+                pendingFollowUp = 0;
+                break;
+            case 1:
+                client.addChatMessage(ChatMessageType.SPAM, "", "You drink some of your " + pick(POTIONS) + ".",
+                        null);
+                pendingFollowUp = 1 + random.nextInt(3);
+                break;
+            default:
+                client.addChatMessage(ChatMessageType.SPAM, "", "You catch a lobster.", null);
+                break;
+        }
+    }
+
+    private void addPrivateMessage() {
+        String player = pick(PLAYERS);
+        String name = random.nextInt(3) == 0 ? "<img=" + random.nextInt(3) + ">" + player : player;
+        String message = random.nextInt(4) == 0 ? LONG_MESSAGE : "pm number " + sequence + " from " + player;
+        ChatMessageType type = random.nextInt(4) == 0 ? ChatMessageType.PRIVATECHATOUT : ChatMessageType.PRIVATECHAT;
+        client.addChatMessage(type, name, message, null);
+    }
+
+    private Kind pickKind() {
+        int roll = random.nextInt(totalWeight);
+        for (Kind kind : kinds) {
+            roll -= kind.weight;
+            if (roll < 0) {
+                return kind;
+            }
+        }
+        return kinds[kinds.length - 1];
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
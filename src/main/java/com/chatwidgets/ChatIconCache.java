@@ -0,0 +1,62 @@
+package com.chatwidgets;
+
+import net.runelite.api.IndexedSprite;
+
+import javax.inject.Singleton;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mod icon images shared by every chat overlay, so each icon is only converted from its sprite once.
+ */
+@Singleton
+public class ChatIconCache {
+    private final Map<Integer, BufferedImage> images = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public synchronized BufferedImage get(IndexedSprite[] modIcons, int iconId) {
+        BufferedImage cached = images.get(iconId);
+        BufferedImage img = ChatRenderUtils.getCachedSprite(modIcons, iconId, images);
+        if (img != null && img == cached) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return img;
+    }
+
+    public synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * @return estimated bytes held by the cached images.
+     */
+    public synchronized long estimateBytes() {
+        long bytes = 0;
+        for (BufferedImage image : images.values()) {
+            if (image != null) {
+                bytes += 64 + 4L * image.getWidth() * image.getHeight();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Drops every image; they are converted again from their sprites as they are next drawn.
+     */
+    public synchronized void clear() {
+        images.clear();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
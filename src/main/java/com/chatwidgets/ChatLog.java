@@ -0,0 +1,658 @@
+package com.chatwidgets;
+
+import net.runelite.client.RuneLite;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Append-only log of changes to the chat history, kept on disk so history survives client restarts.
+ * <p>
+ * Changes are queued by the {@link MessageJournal}s returned from {@link #journal(ChatChannel)} and written in
+ * batches by a background thread, so the client thread never waits on disk. The log is split into segments which
+ * are read back sequentially through a small buffer. Each segment is first scanned by record header only, which is
+ * enough to work out which segments are needed to restore the most recent messages, and only records in those
+ * segments are decoded. Once enough segments are sealed they are compacted into a single snapshot segment holding just the messages that
+ * would be restored.
+ */
+@Singleton
+public class ChatLog {
+    private static final int MAGIC = 0x43574c47;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6;
+    private static final int FLAG_SNAPSHOT = 1;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long SEGMENT_BYTES = 1 << 20;
+    private static final int MAX_SEALED_SEGMENTS = 4;
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 512;
+    private static final long POLL_INTERVAL_MS = 200;
+
+    private static final byte OP_ADD = 0;
+    private static final byte OP_REPLACE = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+
+    private static final ChatChannel[] CHANNELS = ChatChannel.values();
+    private static final Entry STOP = new Entry(OP_CLEAR, null, null, 0);
+    private static final Entry COMPACT = new Entry(OP_CLEAR, null, null, 0);
+
+    private final File directory;
+    // a fresh queue per session, so nothing left from a previous session reaches the next writer
+    private volatile BlockingQueue<Entry> queue;
+
+    private volatile boolean running;
+    private Thread writer;
+    private ToIntFunction<ChatChannel> limits;
+
+    // writer thread state
+    private FileChannel active;
+    private long activeId;
+    private long activeBytes;
+
+    @Inject
+    public ChatLog() {
+        this(new File(RuneLite.RUNELITE_DIR, "chat-widgets"));
+    }
+
+    public ChatLog(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Restores the most recent messages for every channel and starts logging.
+     *
+     * @param limits the number of messages to restore for a channel.
+     * @return the restored messages per channel, oldest first.
+     */
+    public synchronized Map<ChatChannel, List<WidgetMessage>> open(ToIntFunction<ChatChannel> limits) {
+        Map<ChatChannel, List<WidgetMessage>> restored = new EnumMap<>(ChatChannel.class);
+        if (running) {
+            return restored;
+        }
+        // a writer still finishing from the last close owns the active segment
+        if (!joinWriter()) {
+            return restored;
+        }
+        this.limits = limits;
+
+        List<Segment> segments = new ArrayList<>();
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                return restored;
+            }
+            segments = scanSegments();
+            for (Map.Entry<ChatChannel, Replay> replay : replay(segments, limits).entrySet()) {
+                restored.put(replay.getKey(), replay.getValue().messages());
+            }
+
+            long lastId = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).id;
+            activeId = (lastId / 2 + 1) * 2;
+            active = openSegment(activeId, 0);
+        } catch (IOException e) {
+            return restored;
+        }
+
+        BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        if (segments.size() > MAX_SEALED_SEGMENTS) {
+            queue.offer(COMPACT);
+        }
+        this.queue = queue;
+        running = true;
+        writer = new Thread(() -> runWriter(queue), "chat-widgets-log");
+        writer.setDaemon(true);
+        writer.start();
+        return restored;
+    }
+
+    /**
+     * Stops logging. The writer finishes writing every queued change in the background, so this never waits on
+     * the disk.
+     */
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // if the queue is full the writer stops on its own once it has drained it
+        queue.offer(STOP);
+    }
+
+    /**
+     * Stops logging and removes the log from disk, in the background once the writer has finished.
+     */
+    public synchronized void delete() {
+        close();
+        Thread previous = writer;
+        writer = new Thread(() -> {
+            join(previous);
+            File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX));
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }, "chat-widgets-log-delete");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return whether the previous writer has finished, so a new one may take over the log.
+     */
+    private boolean joinWriter() {
+        join(writer);
+        if (writer != null && writer.isAlive()) {
+            return false;
+        }
+        writer = null;
+        return true;
+    }
+
+    private static void join(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public MessageJournal journal(ChatChannel channel) {
+        return new MessageJournal() {
+            @Override
+            public void appended(WidgetMessage msg) {
+                enqueue(new Entry(OP_ADD, channel, msg, 0));
+            }
+
+            @Override
+            public void replaced(WidgetMessage previous, WidgetMessage replacement) {
+                enqueue(new Entry(OP_REPLACE, channel, replacement, previous.getSequence()));
+            }
+
+            @Override
+            public void removed(WidgetMessage msg) {
+                enqueue(new Entry(OP_REMOVE, channel, null, msg.getSequence()));
+            }
+
+            @Override
+            public void cleared() {
+                enqueue(new Entry(OP_CLEAR, channel, null, 0));
+            }
+        };
+    }
+
+    private void enqueue(Entry entry) {
+        // changes are dropped rather than blocking the client thread if the disk can't keep up
+        BlockingQueue<Entry> queue = this.queue;
+        if (running && queue != null) {
+            queue.offer(entry);
+        }
+    }
+
+    private void runWriter(BlockingQueue<Entry> queue) {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        ByteArrayOutputStream batchBytes = new ByteArrayOutputStream(BATCH_SIZE * 64);
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+        DataOutputStream batchOut = new DataOutputStream(batchBytes);
+        DataOutputStream recordOut = new DataOutputStream(recordBytes);
+
+        try {
+            boolean stop = false;
+            while (!stop) {
+                Entry first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    stop = !running;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+
+                batchBytes.reset();
+                boolean compact = false;
+                for (Entry entry : batch) {
+                    if (entry == STOP) {
+                        stop = true;
+                        break;
+                    }
+                    if (entry == COMPACT) {
+                        compact = true;
+                        continue;
+                    }
+                    recordBytes.reset();
+                    writeRecord(recordOut, entry);
+                    batchOut.writeInt(recordBytes.size());
+                    recordBytes.writeTo(batchOut);
+                }
+                batch.clear();
+
+                batchOut.flush();
+                writeFully(active, ByteBuffer.wrap(batchBytes.toByteArray()));
+                activeBytes += batchBytes.size();
+
+                if (activeBytes >= SEGMENT_BYTES) {
+                    rotate();
+                    compact = true;
+                }
+                if (compact) {
+                    compact();
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            running = false;
+            queue.clear();
+        } finally {
+            // a failed rotate leaves no active segment
+            if (active != null) {
+                try {
+                    active.force(false);
+                    active.close();
+                } catch (IOException ignored) {
+                }
+                active = null;
+            }
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Entry entry) throws IOException {
+        out.writeByte(entry.op);
+        out.writeByte(entry.channel.ordinal());
+        switch (entry.op) {
+            case OP_REPLACE:
+                out.writeLong(entry.sequence);
+                MessageCodec.write(out, entry.msg);
+                break;
+            case OP_ADD:
+                MessageCodec.write(out, entry.msg);
+                break;
+            case OP_REMOVE:
+                out.writeLong(entry.sequence);
+                break;
+        }
+        out.flush();
+    }
+
+    private void rotate() throws IOException {
+        active.force(false);
+        active.close();
+        active = null;
+        activeId += 2;
+        active = openSegment(activeId, 0);
+    }
+
+    /**
+     * Replaces every sealed segment with a snapshot of the messages they would restore. Snapshots take the odd id
+     * after the last segment they replace, so they sort before the active segment.
+     */
+    private void compact() throws IOException {
+        List<Segment> sealed = new ArrayList<>();
+        for (Segment segment : scanSegments()) {
+            if (segment.id < activeId) {
+                sealed.add(segment);
+            }
+        }
+        if (sealed.size() <= MAX_SEALED_SEGMENTS) {
+            return;
+        }
+
+        Map<ChatChannel, Replay> replays = replay(sealed, limits);
+        long snapshotId = sealed.get(sealed.size() - 1).id | 1;
+        File tmp = new File(directory, SEGMENT_PREFIX + snapshotId + ".tmp");
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+        DataOutputStream recordOut = new DataOutputStream(recordBytes);
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(out, FLAG_SNAPSHOT);
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream chunkOut = new DataOutputStream(chunk);
+            for (Map.Entry<ChatChannel, Replay> replay : replays.entrySet()) {
+                for (WidgetMessage msg : replay.getValue().messages()) {
+                    recordBytes.reset();
+                    writeRecord(recordOut, new Entry(OP_ADD, replay.getKey(), msg, 0));
+                    chunkOut.writeInt(recordBytes.size());
+                    recordBytes.writeTo(chunkOut);
+                }
+                chunkOut.flush();
+                writeFully(out, ByteBuffer.wrap(chunk.toByteArray()));
+                chunk.reset();
+            }
+            out.force(false);
+        }
+
+        if (!tmp.renameTo(segmentFile(snapshotId))) {
+            tmp.delete();
+            return;
+        }
+        for (Segment segment : sealed) {
+            if (segment.id != snapshotId) {
+                // anything that can't be deleted is before the snapshot, so it is ignored on replay and removed by
+                // the next compaction
+                segment.file.delete();
+            }
+        }
+    }
+
+    private List<Segment> scanSegments() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX)
+                && name.endsWith(SEGMENT_SUFFIX));
+        List<Segment> segments = new ArrayList<>();
+        if (files == null) {
+            return segments;
+        }
+        for (File file : files) {
+            long id = parseId(file.getName());
+            if (id < 0) {
+                continue;
+            }
+            Segment segment = Segment.scan(file, id);
+            if (segment != null) {
+                segments.add(segment);
+            }
+        }
+        segments.sort((a, b) -> Long.compare(a.id, b.id));
+
+        // nothing before the latest snapshot is needed
+        for (int i = segments.size() - 1; i > 0; i--) {
+            if (segments.get(i).snapshot) {
+                return new ArrayList<>(segments.subList(i, segments.size()));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Replays the segments into the most recent messages per channel, skipping the segments that can't affect the
+     * result.
+     */
+    private static Map<ChatChannel, Replay> replay(List<Segment> segments, ToIntFunction<ChatChannel> limits)
+            throws IOException {
+        Map<ChatChannel, Replay> replays = new EnumMap<>(ChatChannel.class);
+        int[] firstNeeded = new int[CHANNELS.length];
+        for (ChatChannel channel : CHANNELS) {
+            int limit = Math.max(0, limits.applyAsInt(channel));
+            replays.put(channel, new Replay(limit));
+
+            // removes can only take away messages added before them, so counting adds net of removes from the end
+            // never starts too late
+            int live = 0;
+            int first = 0;
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                Segment segment = segments.get(i);
+                live += segment.adds[channel.ordinal()] - segment.removes[channel.ordinal()];
+                if (live >= limit || segment.clears[channel.ordinal()]) {
+                    first = i;
+                    break;
+                }
+            }
+            firstNeeded[channel.ordinal()] = first;
+
+            int removes = 0;
+            for (int i = first; i < segments.size(); i++) {
+                removes += segments.get(i).removes[channel.ordinal()];
+            }
+            replays.get(channel).pendingRemoves = removes;
+        }
+
+        for (int i = 0; i < segments.size(); i++) {
+            segments.get(i).replay(replays, firstNeeded, i);
+        }
+        return replays;
+    }
+
+    private FileChannel openSegment(long id, int flags) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(id).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        writeHeader(channel, flags);
+        activeBytes = HEADER_BYTES;
+        return channel;
+    }
+
+    private static void writeHeader(FileChannel channel, int flags) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).put((byte) VERSION).put((byte) flags).flip();
+        writeFully(channel, header);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static long parseId(String name) {
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Entry {
+        private final byte op;
+        private final ChatChannel channel;
+        private final WidgetMessage msg;
+        private final long sequence;
+
+        private Entry(byte op, ChatChannel channel, WidgetMessage msg, long sequence) {
+            this.op = op;
+            this.channel = channel;
+            this.msg = msg;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * A segment on disk, with the end of its last whole record and the per channel counts found by scanning its
+     * record headers. No file is held open between reads.
+     */
+    private static final class Segment {
+        private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+        private final File file;
+        private final long id;
+        private final boolean snapshot;
+        private final long end;
+        private final int[] adds = new int[CHANNELS.length];
+        private final int[] removes = new int[CHANNELS.length];
+        private final boolean[] clears = new boolean[CHANNELS.length];
+
+        private Segment(File file, long id, boolean snapshot, DataInputStream in, long size) throws IOException {
+            this.file = file;
+            this.id = id;
+            this.snapshot = snapshot;
+
+            long position = HEADER_BYTES;
+            try {
+                // a torn write at the end of a segment is ignored
+                while (position + 4 <= size) {
+                    int length = in.readInt();
+                    if (length < 2 || length > size - position - 4) {
+                        break;
+                    }
+                    byte op = in.readByte();
+                    int channel = in.readByte();
+                    if (channel >= 0 && channel < CHANNELS.length) {
+                        if (op == OP_ADD) {
+                            adds[channel]++;
+                        } else if (op == OP_REMOVE) {
+                            removes[channel]++;
+                        } else if (op == OP_CLEAR) {
+                            clears[channel] = true;
+                        }
+                    }
+                    skipFully(in, length - 2);
+                    position += 4 + length;
+                }
+            } catch (EOFException e) {
+                // the file was shorter than it claimed; keep the whole records read so far
+            }
+            this.end = position;
+            if (snapshot) {
+                Arrays.fill(clears, true);
+            }
+        }
+
+        private static Segment scan(File file, long id) throws IOException {
+            long size = file.length();
+            if (size < HEADER_BYTES) {
+                return null;
+            }
+            try (DataInputStream in = open(file)) {
+                if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                    return null;
+                }
+                boolean snapshot = (in.readByte() & FLAG_SNAPSHOT) != 0;
+                return new Segment(file, id, snapshot, in, size);
+            }
+        }
+
+        private static DataInputStream open(File file) throws IOException {
+            return new DataInputStream(new BufferedInputStream(new FileInputStream(file), READ_BUFFER_BYTES));
+        }
+
+        private static void skipFully(DataInputStream in, int bytes) throws IOException {
+            while (bytes > 0) {
+                int skipped = in.skipBytes(bytes);
+                if (skipped <= 0) {
+                    throw new EOFException();
+                }
+                bytes -= skipped;
+            }
+        }
+
+        private void replay(Map<ChatChannel, Replay> replays, int[] firstNeeded, int index) throws IOException {
+            if (snapshot) {
+                for (Replay replay : replays.values()) {
+                    replay.clear();
+                }
+            }
+
+            try (DataInputStream in = open(file)) {
+                skipFully(in, HEADER_BYTES);
+                long position = HEADER_BYTES;
+                while (position < end) {
+                    int length = in.readInt();
+                    byte op = in.readByte();
+                    int channel = in.readByte();
+                    position += 4 + length;
+                    if (channel < 0 || channel >= CHANNELS.length || index < firstNeeded[channel]) {
+                        skipFully(in, length - 2);
+                        continue;
+                    }
+                    Replay replay = replays.get(CHANNELS[channel]);
+                    byte[] payload = new byte[length - 2];
+                    in.readFully(payload);
+                    DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                    switch (op) {
+                        case OP_ADD:
+                            replay.add(MessageCodec.read(record));
+                            break;
+                        case OP_REPLACE:
+                            long previous = record.readLong();
+                            replay.replace(previous, MessageCodec.read(record));
+                            break;
+                        case OP_REMOVE:
+                            replay.remove(record.readLong());
+                            replay.pendingRemoves--;
+                            break;
+                        case OP_CLEAR:
+                            replay.clear();
+                            break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The most recent messages for one channel. Replacing or removing a message which has already been dropped is a
+     * no-op, so replay can start part way through the log.
+     */
+    private static final class Replay {
+        private final int limit;
+        private final List<WidgetMessage> messages = new ArrayList<>();
+        // removes still to be replayed, each of which may take away a message kept now
+        private int pendingRemoves;
+
+        private Replay(int limit) {
+            this.limit = limit;
+        }
+
+        private void add(WidgetMessage msg) {
+            if (limit == 0) {
+                return;
+            }
+            messages.add(msg);
+            int keep = limit + Math.max(0, pendingRemoves);
+            if (messages.size() >= keep * 2) {
+                messages.subList(0, messages.size() - keep).clear();
+            }
+        }
+
+        private void replace(long sequence, WidgetMessage msg) {
+            int index = indexOf(sequence);
+            if (index >= 0) {
+                messages.set(index, msg);
+            }
+        }
+
+        private void remove(long sequence) {
+            int index = indexOf(sequence);
+            if (index >= 0) {
+                messages.remove(index);
+            }
+        }
+
+        private void clear() {
+            messages.clear();
+        }
+
+        private int indexOf(long sequence) {
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                if (messages.get(i).getSequence() == sequence) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private List<WidgetMessage> messages() {
+            int from = Math.max(0, messages.size() - limit);
+            return new ArrayList<>(messages.subList(from, messages.size()));
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.events.ChatMessage;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records the chat messages the client receives to a file, so a session can be replayed later to reproduce a flood
+ * of messages without being logged in.
+ * <p>
+ * A recording is a gzip stream of records, each holding the milliseconds since the previous record, the message
+ * type, name, sender and message. Like {@link ChatLog}, records are written by a background thread and dropped
+ * and counted rather than blocking the client thread if the disk can't keep up.
+ */
+@Singleton
+public class ChatRecorder {
+    private static final int MAGIC = 0x43575243;
+    private static final int VERSION = 1;
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final long POLL_INTERVAL_MS = 200;
+    private static final Recording STOP = new Recording(0, null, null, null, null);
+
+    private final File directory;
+    private final LongAdder dropped = new LongAdder();
+
+    // a fresh queue per recording, so a STOP left from the last recording never reaches the next writer
+    private volatile BlockingQueue<Recording> queue;
+    private volatile boolean running;
+    private Thread writer;
+    private File file;
+
+    @Inject
+    public ChatRecorder() {
+        this(new File(new File(RuneLite.RUNELITE_DIR, "chat-widgets"), "recordings"));
+    }
+
+    public ChatRecorder(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Starts recording to a new file named after the current time.
+     */
+    public synchronized void start() {
+        // a writer still finishing the last recording owns the recorder's state until it exits
+        if (running || !joinWriter()) {
+            return;
+        }
+        String name = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss-SSS").format(new Date());
+        File file = new File(directory, name + ".chat.gz");
+        // never overwrite a recording started in the same millisecond
+        for (int i = 1; file.exists(); i++) {
+            file = new File(directory, name + "-" + i + ".chat.gz");
+        }
+        DataOutputStream out;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                return;
+            }
+            out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+                    new FileOutputStream(file), 8192)));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+        } catch (IOException e) {
+            return;
+        }
+
+        BlockingQueue<Recording> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.file = file;
+        this.queue = queue;
+        running = true;
+        writer = new Thread(() -> runWriter(queue, out), "chat-widgets-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops recording. The writer finishes writing every queued message in the background, so this never waits on
+     * the disk.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // if the queue is full the writer stops on its own once it has drained it
+        queue.offer(STOP);
+    }
+
+    /**
+     * Waits briefly for the writer of the last recording to finish.
+     *
+     * @return whether it has finished, so a new recording may start.
+     */
+    private boolean joinWriter() {
+        if (writer == null) {
+            return true;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            return false;
+        }
+        writer = null;
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the file being recorded to, or the last one recorded.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of messages dropped because the queue was full.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void record(ChatMessage event) {
+        BlockingQueue<Recording> queue = this.queue;
+        if (running && queue != null && !queue.offer(new Recording(System.currentTimeMillis(), event.getType(),
+                event.getName(), event.getSender(), event.getMessage()))) {
+            dropped.increment();
+        }
+    }
+
+    private void runWriter(BlockingQueue<Recording> queue, DataOutputStream out) {
+        List<Recording> batch = new ArrayList<>();
+        long lastTime = 0;
+        try {
+            boolean stop = false;
+            while (!stop) {
+                Recording first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    stop = !running;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                for (Recording recording : batch) {
+                    if (recording == STOP) {
+                        stop = true;
+                        break;
+                    }
+                    long time = recording.getTime();
+                    writeVarLong(out, lastTime == 0 ? 0 : Math.max(0, time - lastTime));
+                    lastTime = time;
+                    out.writeUTF(recording.getType() != null ? recording.getType().name() : "");
+                    writeString(out, recording.getName());
+                    writeString(out, recording.getSender());
+                    writeString(out, recording.getMessage());
+                }
+                batch.clear();
+            }
+        } catch (IOException | InterruptedException e) {
+            running = false;
+            queue.clear();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Reads a recording back. Times start at 0 for the first message.
+     */
+    public static List<Recording> read(File file) throws IOException {
+        List<Recording> recordings = new ArrayList<>();
+        try (InputStream stream = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not a chat recording: " + file);
+            }
+            long time = 0;
+            while (true) {
+                long delta;
+                try {
+                    delta = readVarLong(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                time += delta;
+                ChatMessageType type = parseType(in.readUTF());
+                String name = readString(in);
+                String sender = readString(in);
+                String message = readString(in);
+                recordings.add(new Recording(time, type, name, sender, message));
+            }
+        } catch (EOFException e) {
+            // a recording cut short by the client closing keeps every complete record
+        }
+        return recordings;
+    }
+
+    private static ChatMessageType parseType(String name) {
+        try {
+            return ChatMessageType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return ChatMessageType.UNKNOWN;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed recording");
+    }
+
+    /**
+     * One recorded chat message.
+     */
+    public static final class Recording {
+        private final long time;
+        private final ChatMessageType type;
+        private final String name;
+        private final String sender;
+        private final String message;
+
+        Recording(long time, ChatMessageType type, String name, String sender, String message) {
+            this.time = time;
+            this.type = type;
+            this.name = name;
+            this.sender = sender;
+            this.message = message;
+        }
+
+        /**
+         * @return milliseconds since the first message of the recording.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        public ChatMessageType getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSender() {
+            return sender;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return a new event as the client would post it for this message.
+         */
+        public ChatMessage toEvent() {
+            ChatMessage event = new ChatMessage();
+            event.setType(type);
+            event.setName(name != null ? name : "");
+            event.setSender(sender);
+            event.setMessage(message);
+            event.setTimestamp((int) (time / 1000));
+            return event;
+        }
+    }
+}
@@ -20,6 +20,8 @@ import java.util.regex.Pattern;
 
 public final class ChatRenderUtils {
 
+    private static final Pattern NON_ICON_TAG_PATTERN = Pattern.compile("<(?!img=)[^>]*>");
+
     private ChatRenderUtils() {
     }
 
@@ -157,6 +159,55 @@ public final class ChatRenderUtils {
         return lines;
     }
 
+    /**
+     * Lines for a message shown outside the game and private widgets: an optional timestamp, the sender if there is
+     * one, then the message with colour tags removed.
+     */
+    public static List<RenderLine> buildChannelMessageLines(WidgetMessage msg, FontMetrics metrics, int widgetWidth,
+            boolean wrapText, Color textColor, FontSize fontSize, IndexedSprite[] modIcons, boolean showTimestamp,
+            String timestampFormat, int maxMessageLength) {
+        List<RenderLine> lines = new ArrayList<>();
+        List<TextSegment> headerSegments = new ArrayList<>();
+        int headerWidth = 0;
+
+        if (showTimestamp && timestampFormat != null && !timestampFormat.isEmpty()) {
+            String ts = formatTimestamp(msg.getTimestamp(), timestampFormat + " ");
+            if (ts != null) {
+                int width = metrics.stringWidth(ts);
+                headerSegments.add(new TextSegment(ts, -1, width, textColor));
+                headerWidth += width;
+            }
+        }
+
+        if (msg.getSender() != null) {
+            for (TextSegment seg : parseTextWithIcons(msg.getSender(), metrics, modIcons, textColor, fontSize)) {
+                headerSegments.add(seg);
+                headerWidth += seg.width;
+            }
+            headerSegments.add(new TextSegment(": ", -1, metrics.stringWidth(": "), textColor));
+            headerWidth += metrics.stringWidth(": ");
+        }
+
+        String messageText = msg.getMessage() != null
+                ? NON_ICON_TAG_PATTERN.matcher(msg.getMessage()).replaceAll("")
+                : "";
+        if (messageText.length() > maxMessageLength) {
+            messageText = messageText.substring(0, maxMessageLength) + "...";
+        }
+        List<TextSegment> messageSegments = parseTextWithIcons(messageText, metrics, modIcons, textColor, fontSize);
+
+        if (!wrapText) {
+            List<TextSegment> singleLine = new ArrayList<>(headerSegments);
+            singleLine.addAll(messageSegments);
+            lines.add(new RenderLine(singleLine, 255));
+        } else {
+            List<List<TextSegment>> wrappedLines = wrapSegments(messageSegments, metrics, widgetWidth - headerWidth,
+                    widgetWidth, textColor);
+            addWrappedLines(lines, 255, headerSegments, wrappedLines);
+        }
+        return lines;
+    }
+
     public static void addWrappedLines(List<RenderLine> lines, int alpha, List<TextSegment> headerSegments,
             List<List<TextSegment>> wrappedLines) {
         if (wrappedLines.isEmpty()) {
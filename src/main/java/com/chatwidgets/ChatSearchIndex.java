@@ -0,0 +1,360 @@
+package com.chatwidgets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over the tag-stripped text and sender of every message in a {@link MessageStore}, kept up to date
+ * by attaching it to the store as a {@link MessageJournal}. Postings are sorted sequence numbers, so a query is an
+ * intersection of postings and matches are looked up with {@link MessageStore#indexOfSequence(long)}.
+ * <p>
+ * Removed and replaced messages are dropped from their postings straight away. Evicted messages are left in the
+ * postings until the next prune, and skipped when they no longer resolve to a message in the store. After
+ * {@link #invalidate()} the index is rebuilt on the next search, so the archived history is only decoded once
+ * someone searches it.
+ */
+public class ChatSearchIndex implements MessageJournal {
+    private static final Pattern TAG_PATTERN = Pattern.compile("<[^>]*>");
+    private static final int PRUNE_INTERVAL = 4096;
+
+    private final MessageStore store;
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final TreeMap<String, Postings> senders = new TreeMap<>();
+    private int addsSincePrune;
+    private int version;
+    private boolean stale;
+
+    public ChatSearchIndex(MessageStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Indexes the store's current history from scratch.
+     */
+    public synchronized void rebuild() {
+        terms.clear();
+        senders.clear();
+        int size = store.historySize();
+        for (int i = 0; i < size; i++) {
+            index(store.getFromHistory(i));
+        }
+        stale = false;
+        version++;
+    }
+
+    /**
+     * Drops the index and rebuilds it from the store's history on the next search. Changes to the store are not
+     * indexed until then.
+     */
+    public synchronized void invalidate() {
+        terms.clear();
+        senders.clear();
+        stale = true;
+        version++;
+    }
+
+    /**
+     * @return a counter which changes whenever search results may have changed.
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    @Override
+    public synchronized void appended(WidgetMessage msg) {
+        version++;
+        if (stale) {
+            return;
+        }
+        index(msg);
+        if (++addsSincePrune >= PRUNE_INTERVAL) {
+            prune();
+        }
+    }
+
+    @Override
+    public synchronized void replaced(WidgetMessage previous, WidgetMessage replacement) {
+        version++;
+        if (!stale) {
+            unindex(previous);
+            index(replacement);
+        }
+    }
+
+    @Override
+    public synchronized void removed(WidgetMessage msg) {
+        version++;
+        if (!stale) {
+            unindex(msg);
+        }
+    }
+
+    @Override
+    public synchronized void cleared() {
+        terms.clear();
+        senders.clear();
+        stale = false;
+        version++;
+    }
+
+    /**
+     * @return the most recent matching messages, oldest first.
+     */
+    public synchronized List<WidgetMessage> search(ChatSearchQuery query, int limit) {
+        if (query.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (stale) {
+            rebuild();
+        }
+
+        long[] candidates = null;
+        for (String prefix : query.getPrefixes()) {
+            candidates = intersect(candidates, union(withPrefix(terms, prefix)));
+        }
+        for (List<String> phrase : query.getPhrases()) {
+            for (String term : phrase) {
+                Postings postings = terms.get(term);
+                candidates = intersect(candidates, postings != null ? postings.toArray() : new long[0]);
+            }
+        }
+        if (query.getSender() != null) {
+            candidates = intersect(candidates, union(withPrefix(senders, query.getSender())));
+        }
+
+        List<WidgetMessage> results = new ArrayList<>(Math.min(limit, candidates.length));
+        for (int i = candidates.length - 1; i >= 0 && results.size() < limit; i--) {
+            int index = store.indexOfSequence(candidates[i]);
+            if (index < 0) {
+                continue;
+            }
+            WidgetMessage msg = store.getFromHistory(index);
+            if (matchesPhrases(msg, query.getPhrases())) {
+                results.add(msg);
+            }
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Splits text into lower case words, ignoring tags and punctuation.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String stripped = TAG_PATTERN.matcher(text).replaceAll(" ");
+        int start = -1;
+        for (int i = 0; i <= stripped.length(); i++) {
+            boolean wordChar = i < stripped.length() && Character.isLetterOrDigit(stripped.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(stripped.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    static String normalizeSender(String sender) {
+        return String.join(" ", tokenize(sender));
+    }
+
+    private void index(WidgetMessage msg) {
+        long sequence = msg.getSequence();
+        for (String token : tokenize(msg.getMessage())) {
+            terms.computeIfAbsent(token, k -> new Postings()).add(sequence);
+        }
+        if (msg.getSender() != null) {
+            String sender = normalizeSender(msg.getSender());
+            if (!sender.isEmpty()) {
+                senders.computeIfAbsent(sender, k -> new Postings()).add(sequence);
+            }
+        }
+    }
+
+    private void unindex(WidgetMessage msg) {
+        long sequence = msg.getSequence();
+        for (String token : tokenize(msg.getMessage())) {
+            remove(terms, token, sequence);
+        }
+        if (msg.getSender() != null) {
+            String sender = normalizeSender(msg.getSender());
+            if (!sender.isEmpty()) {
+                remove(senders, sender, sequence);
+            }
+        }
+    }
+
+    private static void remove(TreeMap<String, Postings> index, String key, long sequence) {
+        Postings postings = index.get(key);
+        if (postings != null) {
+            postings.remove(sequence);
+            if (postings.size == 0) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Drops postings for messages which have been evicted from the front of the store.
+     */
+    public synchronized void prune() {
+        addsSincePrune = 0;
+        if (stale) {
+            return;
+        }
+        long oldest = store.historySize() > 0 ? store.getFromHistory(0).getSequence() : Long.MAX_VALUE;
+        prune(terms, oldest);
+        prune(senders, oldest);
+    }
+
+    /**
+     * @return estimated bytes held by the index.
+     */
+    public synchronized long estimateBytes() {
+        return estimateBytes(terms) + estimateBytes(senders);
+    }
+
+    private static long estimateBytes(TreeMap<String, Postings> index) {
+        long bytes = 0;
+        for (Map.Entry<String, Postings> entry : index.entrySet()) {
+            bytes += 40 + 40 + entry.getKey().length() + 32 + 8L * entry.getValue().sequences.length;
+        }
+        return bytes;
+    }
+
+    private static void prune(TreeMap<String, Postings> index, long oldest) {
+        Iterator<Postings> it = index.values().iterator();
+        while (it.hasNext()) {
+            Postings postings = it.next();
+            postings.dropBefore(oldest);
+            if (postings.size == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    private static Collection<Postings> withPrefix(TreeMap<String, Postings> index, String prefix) {
+        NavigableMap<String, Postings> range = index.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        return range.values();
+    }
+
+    private static long[] union(Collection<Postings> postings) {
+        if (postings.size() == 1) {
+            return postings.iterator().next().toArray();
+        }
+        int total = 0;
+        for (Postings p : postings) {
+            total += p.size;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (Postings p : postings) {
+            System.arraycopy(p.sequences, 0, merged, offset, p.size);
+            offset += p.size;
+        }
+        Arrays.sort(merged);
+        int size = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (size == 0 || merged[size - 1] != merged[i]) {
+                merged[size++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        if (a == null) {
+            return b;
+        }
+        long[] result = new long[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static boolean matchesPhrases(WidgetMessage msg, List<List<String>> phrases) {
+        if (phrases.isEmpty()) {
+            return true;
+        }
+        String text = " " + String.join(" ", tokenize(msg.getMessage())) + " ";
+        for (List<String> phrase : phrases) {
+            if (!text.contains(" " + String.join(" ", phrase) + " ")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Postings {
+        private long[] sequences = new long[4];
+        private int size;
+
+        private void add(long sequence) {
+            if (size > 0 && sequences[size - 1] >= sequence) {
+                int index = Arrays.binarySearch(sequences, 0, size, sequence);
+                if (index >= 0) {
+                    return;
+                }
+                insert(-index - 1, sequence);
+                return;
+            }
+            insert(size, sequence);
+        }
+
+        private void insert(int index, long sequence) {
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, size * 2);
+            }
+            System.arraycopy(sequences, index, sequences, index + 1, size - index);
+            sequences[index] = sequence;
+            size++;
+        }
+
+        private void remove(long sequence) {
+            int index = Arrays.binarySearch(sequences, 0, size, sequence);
+            if (index >= 0) {
+                System.arraycopy(sequences, index + 1, sequences, index, size - index - 1);
+                size--;
+            }
+        }
+
+        private void dropBefore(long sequence) {
+            int index = Arrays.binarySearch(sequences, 0, size, sequence);
+            int from = index >= 0 ? index : -index - 1;
+            if (from > 0) {
+                System.arraycopy(sequences, from, sequences, 0, size - from);
+                size -= from;
+            }
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(sequences, size);
+        }
+    }
+}
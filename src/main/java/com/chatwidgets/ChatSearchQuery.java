@@ -0,0 +1,73 @@
+package com.chatwidgets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed chat search. Bare words match the start of any word in a message, quoted text must appear as a phrase,
+ * and {@code from:name} matches the start of the sender's name.
+ */
+public class ChatSearchQuery {
+    private static final String SENDER_PREFIX = "from:";
+
+    private final String text;
+    private final List<String> prefixes;
+    private final List<List<String>> phrases;
+    private final String sender;
+
+    private ChatSearchQuery(String text, List<String> prefixes, List<List<String>> phrases, String sender) {
+        this.text = text;
+        this.prefixes = prefixes;
+        this.phrases = phrases;
+        this.sender = sender;
+    }
+
+    public static ChatSearchQuery parse(String text) {
+        List<String> prefixes = new ArrayList<>();
+        List<List<String>> phrases = new ArrayList<>();
+        String sender = null;
+
+        String[] parts = text.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i % 2 == 1) {
+                List<String> phrase = ChatSearchIndex.tokenize(parts[i]);
+                if (!phrase.isEmpty()) {
+                    phrases.add(phrase);
+                }
+                continue;
+            }
+            for (String word : parts[i].trim().split("\\s+")) {
+                if (word.regionMatches(true, 0, SENDER_PREFIX, 0, SENDER_PREFIX.length())) {
+                    String name = ChatSearchIndex.normalizeSender(word.substring(SENDER_PREFIX.length()));
+                    sender = name.isEmpty() ? sender : name;
+                } else {
+                    prefixes.addAll(ChatSearchIndex.tokenize(word));
+                }
+            }
+        }
+
+        return new ChatSearchQuery(text.trim(), Collections.unmodifiableList(prefixes),
+                Collections.unmodifiableList(phrases), sender);
+    }
+
+    public boolean isEmpty() {
+        return prefixes.isEmpty() && phrases.isEmpty() && sender == null;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<String> getPrefixes() {
+        return prefixes;
+    }
+
+    public List<List<String>> getPhrases() {
+        return phrases;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+}
@@ -0,0 +1,129 @@
+package com.chatwidgets;
+
+import net.runelite.api.Client;
+import net.runelite.api.Point;
+import net.runelite.api.gameval.InterfaceID;
+import net.runelite.api.widgets.Widget;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Tracks whether any of the chat control widgets which display game messages is being hovered. Currently, this
+ * covers the following widgets:
+ * <ul>
+ *     <li>CHAT_ALL</li>
+ *     <li>CHAT_GAME</li>
+ *     <li>CHAT_PUBLIC</li>
+ * </ul>
+ * Widget bounds are cached and only looked up again after {@link #invalidate()}, which the plugin calls when the
+ * chatbox is loaded, resized or changes layout.
+ */
+@Singleton
+public class ChatTabHoverTracker {
+    private static final int[] TAB_WIDGET_IDS = {
+            InterfaceID.Chatbox.CHAT_ALL,
+            InterfaceID.Chatbox.CHAT_GAME,
+            InterfaceID.Chatbox.CHAT_PUBLIC
+    };
+
+    private final Client client;
+    private final ChatWidgetConfig config;
+
+    // x1, y1, x2, y2 per visible tab
+    private final int[] bounds = new int[TAB_WIDGET_IDS.length * 4];
+    private int boundsCount;
+    private volatile boolean dirty = true;
+
+    private long lastHoverTime;
+
+    @Inject
+    public ChatTabHoverTracker(Client client, ChatWidgetConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Requests another lookup if the tabs were not available the last time bounds were cached.
+     */
+    public void invalidateIfMissing() {
+        if (boundsCount == 0) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * @return <i>true</i> if the mouse is within any of the cached tab bounds otherwise returns <i>false</i>.
+     */
+    public boolean isHovering() {
+        if (dirty) {
+            refreshBounds();
+        }
+
+        final Point mouse = client.getMouseCanvasPosition();
+        if (mouse == null) {
+            return false;
+        }
+
+        final int mouseX = mouse.getX();
+        final int mouseY = mouse.getY();
+        for (int i = 0; i < boundsCount * 4; i += 4) {
+            if (mouseX >= bounds[i] && mouseX <= bounds[i + 2] && mouseY >= bounds[i + 1] && mouseY <= bounds[i + 3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Opacity of the game widget while it is only displayed on tab hover. Stays fully opaque for the configured
+     * linger duration after the mouse leaves the tabs, then fades out, so moving between tabs does not flicker.
+     *
+     * @return a value between 0 (hidden) and 1 (fully visible).
+     */
+    public float getOpacity(long currentTime) {
+        if (isHovering()) {
+            lastHoverTime = currentTime;
+            return 1f;
+        }
+
+        long elapsed = currentTime - lastHoverTime;
+        int linger = config.hoverLingerDuration();
+        if (elapsed <= linger) {
+            return 1f;
+        }
+
+        int fade = config.hoverFadeDuration();
+        if (fade <= 0 || elapsed >= linger + fade) {
+            return 0f;
+        }
+        return 1f - (float) (elapsed - linger) / fade;
+    }
+
+    private void refreshBounds() {
+        dirty = false;
+        boundsCount = 0;
+        for (int widgetId : TAB_WIDGET_IDS) {
+            Widget widget = client.getWidget(widgetId);
+            if (widget == null || widget.isHidden()) {
+                continue;
+            }
+
+            Point origin = widget.getCanvasLocation();
+            if (origin == null) {
+                continue;
+            }
+
+            int i = boundsCount * 4;
+            bounds[i] = origin.getX();
+            bounds[i + 1] = origin.getY();
+            bounds[i + 2] = origin.getX() + widget.getWidth();
+            bounds[i + 3] = origin.getY() + widget.getHeight();
+            boundsCount++;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.ConfigSection;
 import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 
 import java.awt.Color;
 
@@ -27,6 +28,21 @@ public interface ChatWidgetConfig extends Config {
     @ConfigSection(name = "Private Messages (Adv.)", description = "Advanced private message settings", position = 4, closedByDefault = true)
     String privateAdvancedSection = "privateAdvanced";
 
+    @ConfigSection(name = "Chat Channels (Adv.)", description = "History kept for chat channels without a built-in widget", position = 5, closedByDefault = true)
+    String channelsSection = "channels";
+
+    @ConfigSection(name = "Overhead Chat", description = "Public chat bubbles above nearby players", position = 6, closedByDefault = true)
+    String overheadSection = "overhead";
+
+    @ConfigSection(name = "Custom Widgets", description = "Extra widgets showing chosen channels and message types", position = 7, closedByDefault = true)
+    String customSection = "custom";
+
+    @ConfigSection(name = "Game Retention (Adv.)", description = "How long each type of game message is kept for the game widget", position = 8, closedByDefault = true)
+    String retentionSection = "retention";
+
+    @ConfigSection(name = "Debug", description = "Tools for diagnosing the plugin's performance", position = 9, closedByDefault = true)
+    String debugSection = "debug";
+
     // Game Messages Section
     @ConfigItem(keyName = "enableGameMessages", name = "Enable", description = "Enables the game messages widget. Only renders when the chatbox is minimized.", section = gameSection, position = 0)
     default boolean enableGameMessages() {
@@ -121,6 +137,11 @@ public interface ChatWidgetConfig extends Config {
         return "[HH:mm]";
     }
 
+    @ConfigItem(keyName = "scrollback", name = "Mouse Wheel Scrollback", description = "Scroll a widget with the mouse wheel to browse older history, including deep history. Not available while the widgets are merged.", section = appearanceSection, position = 8)
+    default boolean scrollback() {
+        return true;
+    }
+
     // Game Messages Advanced Section
     @ConfigItem(keyName = "gameDynamicHeight", name = "Dynamic Height", description = "Widget height adjusts to message count", section = gameAdvancedSection, position = 0)
     default boolean gameDynamicHeight() {
@@ -137,7 +158,12 @@ public interface ChatWidgetConfig extends Config {
         return false;
     }
 
-    @ConfigItem(keyName = "hideDuplicateCount", name = "Hide Duplicate Count", description = "Hide the count badge when collapsing duplicates", section = gameAdvancedSection, position = 3)
+    @ConfigItem(keyName = "collapseSimilar", name = "Collapse Similar", description = "With Collapse Duplicates, also collapse messages that only differ in numbers or quoted text, showing the latest values", section = gameAdvancedSection, position = 3)
+    default boolean collapseSimilar() {
+        return false;
+    }
+
+    @ConfigItem(keyName = "hideDuplicateCount", name = "Hide Duplicate Count", description = "Hide the count badge when collapsing duplicates", section = gameAdvancedSection, position = 4)
     default boolean hideDuplicateCount() {
         return false;
     }
@@ -147,23 +173,37 @@ public interface ChatWidgetConfig extends Config {
         return false;
     }
 
-    @ConfigItem(keyName = "gameFadeOutDuration", name = "Fade Out Duration", description = "Seconds before messages start fading (0 = never fade)", section = gameAdvancedSection, position = 6)
+    @ConfigItem(keyName = "hoverLingerDuration", name = "Hover Linger", description = "How long game messages stay visible after the mouse leaves the chat tabs when 'Display on Tab Hover' is enabled", section = gameAdvancedSection, position = 6)
+    @Units(Units.MILLISECONDS)
+    @Range(min = 0, max = 5000)
+    default int hoverLingerDuration() {
+        return 250;
+    }
+
+    @ConfigItem(keyName = "hoverFadeDuration", name = "Hover Fade", description = "How long game messages take to fade out after the hover linger ends", section = gameAdvancedSection, position = 7)
+    @Units(Units.MILLISECONDS)
+    @Range(min = 0, max = 2000)
+    default int hoverFadeDuration() {
+        return 150;
+    }
+
+    @ConfigItem(keyName = "gameFadeOutDuration", name = "Fade Out Duration", description = "Seconds before messages start fading (0 = never fade)", section = gameAdvancedSection, position = 8)
     @Range(min = 0, max = 300)
     default int gameFadeOutDuration() {
         return 0;
     }
 
-    @ConfigItem(keyName = "gameWidgetWidth", name = "Widget Width", description = "Width of the widget in pixels. Overridden if the widget is manually resized.", section = gameAdvancedSection, position = 77)
+    @ConfigItem(keyName = "gameWidgetWidth", name = "Widget Width", description = "Width of the widget in pixels. Overridden if the widget is manually resized.", section = gameAdvancedSection, position = 9)
     @Range(min = 150, max = 1024)
     default int gameWidgetWidth() {
         return 512;
     }
 
-    @ConfigItem(keyName = "gameMarginTop", name = "Margin Top", description = "Extra space above the widget", section = gameAdvancedSection, position = 8)
+    @ConfigItem(keyName = "gameMarginTop", name = "Margin Top", description = "Extra space above the widget", section = gameAdvancedSection, position = 10)
     @Range(min = 0, max = 200)
     default int gameMarginTop() { return 0; }
 
-    @ConfigItem(keyName = "gameMarginBottom", name = "Margin Bottom", description = "Extra space below the widget", section = gameAdvancedSection, position = 9)
+    @ConfigItem(keyName = "gameMarginBottom", name = "Margin Bottom", description = "Extra space below the widget", section = gameAdvancedSection, position = 11)
     @Range(min = 0, max = 200)
     default int gameMarginBottom() {
         return 0;
@@ -198,4 +238,178 @@ public interface ChatWidgetConfig extends Config {
     default int privateMarginBottom() {
         return 0;
     }
+
+    // Chat Channels Section
+    @ConfigItem(keyName = "clanHistorySize", name = "Clan History", description = "Number of clan chat messages to keep (0 = ignore clan chat)", section = channelsSection, position = 0)
+    @Range(min = 0, max = 500)
+    default int clanHistorySize() {
+        return 50;
+    }
+
+    @ConfigItem(keyName = "friendsChatHistorySize", name = "Friends Chat History", description = "Number of friends chat messages to keep (0 = ignore friends chat)", section = channelsSection, position = 1)
+    @Range(min = 0, max = 500)
+    default int friendsChatHistorySize() {
+        return 50;
+    }
+
+    @ConfigItem(keyName = "publicHistorySize", name = "Public History", description = "Number of public chat messages to keep (0 = ignore public chat)", section = channelsSection, position = 2)
+    @Range(min = 0, max = 500)
+    default int publicHistorySize() {
+        return 50;
+    }
+
+    @ConfigItem(keyName = "deepHistorySize", name = "Deep History", description = "Number of older game and private messages to keep compressed in memory for each widget (0 = keep only recent messages)", section = channelsSection, position = 3)
+    @Range(min = 0, max = 100000)
+    default int deepHistorySize() {
+        return 10000;
+    }
+
+    @ConfigItem(keyName = "persistHistory", name = "Persist History", description = "Keep chat history on disk so it is restored after a client restart. Disabling removes the saved history.", section = channelsSection, position = 4)
+    default boolean persistHistory() {
+        return false;
+    }
+
+    @ConfigItem(keyName = "memoryBudget", name = "Memory Budget", description = "Estimated memory the plugin may use for history and caches. Above it, icon and bubble images, then laid out lines, then the oldest deep history are dropped.", section = channelsSection, position = 5)
+    @Range(min = 8, max = 1024)
+    @Units(" MB")
+    default int memoryBudget() {
+        return 64;
+    }
+
+    // Overhead Chat Section
+    @ConfigItem(keyName = "overheadChatEnabled", name = "Enable", description = "Shows recent public messages in a bubble above each speaking player", section = overheadSection, position = 0)
+    default boolean overheadChatEnabled() {
+        return false;
+    }
+
+    @ConfigItem(keyName = "overheadMessagesPerPlayer", name = "Messages Per Player", description = "Maximum number of messages shown above each player", section = overheadSection, position = 1)
+    @Range(min = 1, max = 5)
+    default int overheadMessagesPerPlayer() {
+        return 2;
+    }
+
+    @ConfigItem(keyName = "overheadDuration", name = "Duration", description = "Seconds a message stays above a player", section = overheadSection, position = 2)
+    @Units(Units.SECONDS)
+    @Range(min = 1, max = 30)
+    default int overheadDuration() {
+        return 6;
+    }
+
+    @ConfigItem(keyName = "overheadMaxBubbles", name = "Max Bubbles", description = "Maximum number of bubbles drawn per frame, nearest players first", section = overheadSection, position = 3)
+    @Range(min = 1, max = 100)
+    default int overheadMaxBubbles() {
+        return 20;
+    }
+
+    @ConfigItem(keyName = "overheadMaxDistance", name = "Max Distance", description = "Players further away than this many tiles are not given a bubble", section = overheadSection, position = 4)
+    @Range(min = 1, max = 32)
+    default int overheadMaxDistance() {
+        return 15;
+    }
+
+    @Alpha
+    @ConfigItem(keyName = "overheadTextColor", name = "Text Colour", description = "Colour for bubble text", section = overheadSection, position = 5)
+    default Color overheadTextColor() {
+        return Color.YELLOW;
+    }
+
+    @Alpha
+    @ConfigItem(keyName = "overheadBackgroundColor", name = "Background", description = "Background colour of the bubbles", section = overheadSection, position = 6)
+    default Color overheadBackgroundColor() {
+        return new Color(0, 0, 0, 120);
+    }
+
+    // Custom Widgets Section
+    @ConfigItem(keyName = "customWidgets", name = "Widgets", description = "One widget per line, e.g. 'Clan: clan, friends_chat; width=300; max=8'. See the plugin README for the full format.", section = customSection, position = 0)
+    default String customWidgets() {
+        return "";
+    }
+
+    // Game Retention Section
+    @ConfigItem(keyName = "spamRetention", name = "Spam", description = "Number of filtered spam messages to keep", section = retentionSection, position = 0)
+    @Range(min = 1, max = 1000)
+    default int spamRetention() {
+        return 50;
+    }
+
+    @ConfigItem(keyName = "spamRetentionAge", name = "Spam Max Age", description = "Seconds to keep filtered spam messages (0 = no limit)", section = retentionSection, position = 1)
+    @Range(min = 0, max = 86400)
+    @Units(Units.SECONDS)
+    default int spamRetentionAge() {
+        return 0;
+    }
+
+    @ConfigItem(keyName = "broadcastRetention", name = "Broadcast", description = "Number of broadcasts to keep", section = retentionSection, position = 2)
+    @Range(min = 1, max = 1000)
+    default int broadcastRetention() {
+        return 500;
+    }
+
+    @ConfigItem(keyName = "broadcastRetentionAge", name = "Broadcast Max Age", description = "Seconds to keep broadcasts (0 = no limit)", section = retentionSection, position = 3)
+    @Range(min = 0, max = 86400)
+    @Units(Units.SECONDS)
+    default int broadcastRetentionAge() {
+        return 0;
+    }
+
+    @ConfigItem(keyName = "tradeRetention", name = "Trade", description = "Number of trade messages and requests to keep", section = retentionSection, position = 4)
+    @Range(min = 1, max = 1000)
+    default int tradeRetention() {
+        return 50;
+    }
+
+    @ConfigItem(keyName = "tradeRetentionAge", name = "Trade Max Age", description = "Seconds to keep trade messages and requests (0 = no limit)", section = retentionSection, position = 5)
+    @Range(min = 0, max = 86400)
+    @Units(Units.SECONDS)
+    default int tradeRetentionAge() {
+        return 0;
+    }
+
+    @ConfigItem(keyName = "killsAndDropsRetention", name = "Kills & Drops", description = "Number of kill counts, personal bests, drops and collection log messages to keep", section = retentionSection, position = 6)
+    @Range(min = 1, max = 1000)
+    default int killsAndDropsRetention() {
+        return 100;
+    }
+
+    @ConfigItem(keyName = "killsAndDropsRetentionAge", name = "Kills & Drops Max Age", description = "Seconds to keep kill counts, personal bests, drops and collection log messages (0 = no limit)", section = retentionSection, position = 7)
+    @Range(min = 0, max = 86400)
+    @Units(Units.SECONDS)
+    default int killsAndDropsRetentionAge() {
+        return 3600;
+    }
+
+    @ConfigItem(keyName = "otherRetention", name = "Other", description = "Number of other game messages to keep", section = retentionSection, position = 8)
+    @Range(min = 1, max = 1000)
+    default int otherRetention() {
+        return 100;
+    }
+
+    @ConfigItem(keyName = "otherRetentionAge", name = "Other Max Age", description = "Seconds to keep other game messages (0 = no limit)", section = retentionSection, position = 9)
+    @Range(min = 0, max = 86400)
+    @Units(Units.SECONDS)
+    default int otherRetentionAge() {
+        return 0;
+    }
+
+    // Debug Section
+    @ConfigItem(keyName = "performanceHud", name = "Performance HUD", description = "Shows render times, cache hit rates, ingest rate and history usage for each widget", section = debugSection, position = 0)
+    default boolean performanceHud() {
+        return false;
+    }
+
+    @ConfigItem(keyName = "recordChat", name = "Record Chat", description = "Records received chat messages to .runelite/chat-widgets/recordings for replaying with the replay harness. Each time this is turned on starts a new recording.", section = debugSection, position = 1)
+    default boolean recordChat() {
+        return false;
+    }
+
+    @ConfigItem(keyName = "exportChat", name = "Export Chat", description = "Streams every message as newline-delimited JSON to .runelite/chat-widgets/export", section = debugSection, position = 2)
+    default boolean exportChat() {
+        return false;
+    }
+
+    @ConfigItem(keyName = "exportPort", name = "Export Port", description = "Also streams exported messages to this TCP port on localhost (0 = file only)", section = debugSection, position = 3)
+    @Range(min = 0, max = 65535)
+    default int exportPort() {
+        return 0;
+    }
 }
@@ -0,0 +1,219 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A user-defined chat widget, parsed from one line of the Custom Widgets setting:
+ * <pre>
+ * Name: filter, filter, ... ; width=300; max=5; fade=10; colour=#ffffff; background=#80000000
+ * </pre>
+ * Filters are {@link ChatChannel}, {@link ChatMessageType} or {@link MessageCategory} names. A channel shows
+ * everything in that channel's history, while types and categories only show matching messages from the channel
+ * they belong to. Everything after the filters is optional.
+ */
+public class ChatWidgetDefinition {
+    private static final int DEFAULT_WIDTH = 300;
+    private static final int DEFAULT_MAX_MESSAGES = 5;
+    private static final int MAX_MESSAGES = 50;
+    private static final Color DEFAULT_TEXT_COLOR = Color.WHITE;
+    private static final Color DEFAULT_BACKGROUND_COLOR = new Color(0, 0, 0, 0);
+
+    private final String name;
+    private final Set<ChatChannel> channels;
+    private final Set<ChatChannel> wholeChannels;
+    private final Set<ChatMessageType> types;
+    private final int categories;
+    private final int width;
+    private final int maxMessages;
+    private final int fadeOutSeconds;
+    private final Color textColor;
+    private final Color backgroundColor;
+
+    private ChatWidgetDefinition(String name, Set<ChatChannel> channels, Set<ChatChannel> wholeChannels,
+            Set<ChatMessageType> types, int categories, int width, int maxMessages, int fadeOutSeconds,
+            Color textColor, Color backgroundColor) {
+        this.name = name;
+        this.channels = channels;
+        this.wholeChannels = wholeChannels;
+        this.types = types;
+        this.categories = categories;
+        this.width = width;
+        this.maxMessages = maxMessages;
+        this.fadeOutSeconds = fadeOutSeconds;
+        this.textColor = textColor;
+        this.backgroundColor = backgroundColor;
+    }
+
+    /**
+     * Parses one definition per line. Blank lines, lines starting with {@code #} and lines without a name or
+     * channel are skipped.
+     */
+    public static List<ChatWidgetDefinition> parseAll(String text) {
+        List<ChatWidgetDefinition> definitions = new ArrayList<>();
+        if (text == null) {
+            return definitions;
+        }
+        Set<String> names = new HashSet<>();
+        for (String line : text.split("\\r?\\n")) {
+            ChatWidgetDefinition definition = parse(line);
+            if (definition != null && names.add(definition.name.toLowerCase(Locale.ROOT))) {
+                definitions.add(definition);
+            }
+        }
+        return definitions;
+    }
+
+    static ChatWidgetDefinition parse(String line) {
+        line = line.trim();
+        int colon = line.indexOf(':');
+        if (line.isEmpty() || line.startsWith("#") || colon <= 0) {
+            return null;
+        }
+
+        String name = line.substring(0, colon).trim();
+        String[] parts = line.substring(colon + 1).split(";");
+
+        Set<ChatChannel> channels = EnumSet.noneOf(ChatChannel.class);
+        Set<ChatChannel> wholeChannels = EnumSet.noneOf(ChatChannel.class);
+        Set<ChatMessageType> types = EnumSet.noneOf(ChatMessageType.class);
+        int categories = 0;
+        for (String filter : parts[0].split(",")) {
+            String key = filter.trim().toUpperCase(Locale.ROOT).replace(' ', '_');
+            if (key.isEmpty()) {
+                continue;
+            }
+            ChatChannel channel = parseEnum(ChatChannel.class, key);
+            ChatMessageType type = parseEnum(ChatMessageType.class, key);
+            MessageCategory category = parseEnum(MessageCategory.class, key);
+            if (channel != null) {
+                channels.add(channel);
+                wholeChannels.add(channel);
+            } else if (type != null) {
+                types.add(type);
+                if (ChatChannel.forType(type) != null) {
+                    channels.add(ChatChannel.forType(type));
+                }
+            } else if (category != null) {
+                categories |= category.mask();
+                channels.add(ChatChannel.GAME);
+            }
+        }
+        if (name.isEmpty() || channels.isEmpty()) {
+            return null;
+        }
+
+        int width = DEFAULT_WIDTH;
+        int maxMessages = DEFAULT_MAX_MESSAGES;
+        int fadeOutSeconds = 0;
+        Color textColor = DEFAULT_TEXT_COLOR;
+        Color backgroundColor = DEFAULT_BACKGROUND_COLOR;
+        for (int i = 1; i < parts.length; i++) {
+            String[] option = parts[i].split("=", 2);
+            if (option.length != 2) {
+                continue;
+            }
+            String value = option[1].trim();
+            switch (option[0].trim().toLowerCase(Locale.ROOT)) {
+                case "width":
+                    width = clamp(parseInt(value, width), 150, 1024);
+                    break;
+                case "max":
+                    maxMessages = clamp(parseInt(value, maxMessages), 1, MAX_MESSAGES);
+                    break;
+                case "fade":
+                    fadeOutSeconds = clamp(parseInt(value, fadeOutSeconds), 0, 3600);
+                    break;
+                case "colour":
+                case "color":
+                    textColor = parseColor(value, textColor);
+                    break;
+                case "background":
+                    backgroundColor = parseColor(value, backgroundColor);
+                    break;
+            }
+        }
+
+        return new ChatWidgetDefinition(name, Collections.unmodifiableSet(channels),
+                Collections.unmodifiableSet(wholeChannels), Collections.unmodifiableSet(types), categories, width,
+                maxMessages, fadeOutSeconds, textColor, backgroundColor);
+    }
+
+    /**
+     * @return whether a message from one of this widget's channels should be shown.
+     */
+    public boolean accepts(ChatChannel channel, WidgetMessage msg) {
+        return wholeChannels.contains(channel) || types.contains(msg.getType())
+                || (msg.getCategories() & categories) != 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<ChatChannel> getChannels() {
+        return channels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public int getFadeOutSeconds() {
+        return fadeOutSeconds;
+    }
+
+    public Color getTextColor() {
+        return textColor;
+    }
+
+    public Color getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static Color parseColor(String value, Color fallback) {
+        String hex = value.startsWith("#") ? value.substring(1) : value;
+        try {
+            long argb = Long.parseLong(hex, 16);
+            if (hex.length() == 6) {
+                return new Color((int) argb);
+            } else if (hex.length() == 8) {
+                return new Color((int) argb, true);
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        return fallback;
+    }
+}
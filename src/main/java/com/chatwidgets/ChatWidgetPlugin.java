@@ -4,20 +4,29 @@ import com.google.inject.Provides;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
 import net.runelite.api.GameState;
-import net.runelite.api.Point;
+import net.runelite.api.events.CanvasSizeChanged;
 import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.ClientTick;
+import net.runelite.api.events.CommandExecuted;
 import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
 import net.runelite.api.events.MenuOptionClicked;
+import net.runelite.api.events.PlayerDespawned;
 import net.runelite.api.events.ResizeableChanged;
 import net.runelite.api.events.VarClientIntChanged;
+import net.runelite.api.events.VarbitChanged;
+import net.runelite.api.events.WidgetClosed;
 import net.runelite.api.events.WidgetLoaded;
 import net.runelite.api.gameval.InterfaceID;
 import net.runelite.api.gameval.VarClientID;
 import net.runelite.api.gameval.VarbitID;
 import net.runelite.api.widgets.Widget;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ConfigChanged;
+import net.runelite.client.input.MouseManager;
+import net.runelite.client.input.MouseWheelListener;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.plugins.PluginManager;
@@ -25,17 +34,30 @@ import net.runelite.client.ui.overlay.OverlayManager;
 import net.runelite.client.ui.overlay.OverlayPosition;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.awt.Rectangle;
+import java.awt.event.MouseWheelEvent;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.regex.Pattern;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 @PluginDescriptor(name = "Chat Widgets", description = "Displays game and private chat messages in customizable overlay widgets.", tags = {
         "game", "private", "chat", "pm", "message", "widget", "overlay", "split", "move", "custom", "customize",
         "resizable", "transparent" })
 public class ChatWidgetPlugin extends Plugin {
 
-    private static final Pattern BOSS_KC_PATTERN = Pattern.compile("Your .+ count is:");
+    private static final int HISTORY_SIZE = 50;
+    private static final int SCROLL_LINES_PER_NOTCH = 3;
+    private static final String SEARCH_COMMAND = "chatsearch";
+    private static final String FLOOD_COMMAND = "chatflood";
+    // history kept for a channel which is only enabled because a custom widget shows it
+    private static final int CUSTOM_WIDGET_HISTORY_SIZE = 50;
 
     private static final MessageMergeRule[] MESSAGE_MERGE_RULES = {
             new MessageMergeRule("You eat", "It heals some health.", true),
@@ -48,22 +70,136 @@ public class ChatWidgetPlugin extends Plugin {
     @Inject
     private ChatWidgetConfig config;
 
+    @Inject
+    private ClientThread clientThread;
+
     @Inject
     private OverlayManager overlayManager;
 
+    @Inject
+    private MouseManager mouseManager;
+
+    @Inject
+    private ChatboxState chatboxState;
+
+    @Inject
+    private ChatTabHoverTracker chatTabHoverTracker;
+
+    @Inject
+    private PlayerAnchor playerAnchor;
+
     @Inject
     private GameChatOverlay gameOverlay;
 
     @Inject
     private PrivateChatOverlay privateOverlay;
 
-    private final CopyOnWriteArrayList<WidgetMessage> gameMessages = new CopyOnWriteArrayList<>();
-    private final CopyOnWriteArrayList<WidgetMessage> privateMessages = new CopyOnWriteArrayList<>();
+    @Inject
+    private OverheadChatOverlay overheadOverlay;
+
+    @Inject
+    private OverheadChatTracker overheadChatTracker;
+
+    @Inject
+    private ChatLog chatLog;
+
+    @Inject
+    private LayoutCache layoutCache;
+
+    @Inject
+    private ChatIconCache iconCache;
+
+    @Inject
+    private PerformanceMetrics performanceMetrics;
+
+    @Inject
+    private PerformanceOverlay performanceOverlay;
+
+    @Inject
+    private ChatWidgetsStats stats;
+
+    @Inject
+    private ChatRecorder chatRecorder;
+
+    @Inject
+    private ChatFloodGenerator floodGenerator;
+
+    @Inject
+    private ChatExporter chatExporter;
+
+    @Inject
+    private MemoryBudget memoryBudget;
+
+    @Inject
+    @Named("developerMode")
+    private boolean developerMode;
+
+    private final MessageStore gameMessages = new MessageStore(HISTORY_SIZE);
+    private final MessageStore privateMessages = new MessageStore(HISTORY_SIZE);
+    private final MessageArchive gameArchive = new MessageArchive(0);
+    private final MessageArchive privateArchive = new MessageArchive(0);
+    private final MessageStore clanMessages = new MessageStore(0);
+    private final MessageStore friendsChatMessages = new MessageStore(0);
+    private final MessageStore publicMessages = new MessageStore(0);
+    private final Map<ChatChannel, MessageStore> channelStores = createChannelStores();
+    private final RetentionBuffers gameRetention = new RetentionBuffers();
+    private final DuplicateCollapser gameCollapser = new DuplicateCollapser(gameMessages);
+    private volatile Predicate<WidgetMessage> gameFilter = msg -> true;
+    private final Map<ChatChannel, MessageJournal> logJournals = new EnumMap<>(ChatChannel.class);
+    private final Map<ChatChannel, MessageJournal> exportJournals = new EnumMap<>(ChatChannel.class);
+    private final ChatSearchIndex gameSearchIndex = new ChatSearchIndex(gameMessages);
+    private final ChatSearchIndex privateSearchIndex = new ChatSearchIndex(privateMessages);
+
+    private final List<CustomChatOverlay> customOverlays = new ArrayList<>();
+
+    private volatile ChatSearchQuery searchQuery;
+    private List<WidgetMessage> searchResults = Collections.emptyList();
+    // what the cached search results were searched for
+    private ChatSearchQuery searchResultsQuery;
+    private int searchResultsLimit;
+    private boolean searchResultsMerged;
+    private int searchResultsGameVersion;
+    private int searchResultsPrivateVersion;
+    private final MouseWheelListener scrollListener = new MouseWheelListener() {
+        @Override
+        public MouseWheelEvent mouseWheelMoved(MouseWheelEvent event) {
+            return onMouseWheelMoved(event);
+        }
+    };
 
     @Override
     protected void startUp() {
+        updateMemoryBudget();
+        rebuildCustomWidgets();
+        updateRetention();
+        gameRetention.rebuild(gameMessages);
+        gameMessages.addJournal(gameRetention);
+        updateCollapser();
+        gameSearchIndex.invalidate();
+        privateSearchIndex.invalidate();
+        gameMessages.addJournal(gameSearchIndex);
+        privateMessages.addJournal(privateSearchIndex);
+        if (config.persistHistory()) {
+            openChatLog();
+        }
+        clientThread.invoke(() -> {
+            chatboxState.refreshAll();
+            refreshGameView();
+        });
+
         overlayManager.add(gameOverlay);
         overlayManager.add(privateOverlay);
+        overlayManager.add(overheadOverlay);
+        performanceMetrics.setEnabled(config.performanceHud());
+        overlayManager.add(performanceOverlay);
+        stats.register();
+        if (config.recordChat()) {
+            chatRecorder.start();
+        }
+        if (config.exportChat()) {
+            openExport();
+        }
+        mouseManager.registerMouseWheelListener(scrollListener);
 
         if (config.enablePrivateMessages()) {
             hidePmWidgets();
@@ -72,8 +208,29 @@ public class ChatWidgetPlugin extends Plugin {
 
     @Override
     protected void shutDown() {
+        gameMessages.removeJournal(gameRetention);
+        gameMessages.removeJournal(gameCollapser);
+        gameMessages.removeJournal(gameSearchIndex);
+        privateMessages.removeJournal(privateSearchIndex);
+        searchQuery = null;
+        closeChatLog();
+        gameArchive.close();
+        privateArchive.close();
         overlayManager.remove(gameOverlay);
         overlayManager.remove(privateOverlay);
+        overlayManager.remove(overheadOverlay);
+        overlayManager.remove(performanceOverlay);
+        performanceMetrics.setEnabled(false);
+        stats.unregister();
+        chatRecorder.stop();
+        closeExport();
+        floodGenerator.stop();
+        removeCustomWidgets();
+        mouseManager.unregisterMouseWheelListener(scrollListener);
+        gameOverlay.getScrollback().reset();
+        privateOverlay.getScrollback().reset();
+        overheadChatTracker.clear();
+        WidgetMessage.clearSenderPool();
         //keep history for now i think
         //clearGameMessages();
         //clearPrivateMessages();
@@ -94,6 +251,65 @@ public class ChatWidgetPlugin extends Plugin {
             }
         }
 
+        chatboxState.refreshMerged();
+
+        if (event.getKey().equals("overheadChatEnabled") && !config.overheadChatEnabled()) {
+            overheadChatTracker.clear();
+        }
+
+        if (event.getKey().endsWith("Retention") || event.getKey().endsWith("RetentionAge")) {
+            updateRetention();
+        }
+
+        if (event.getKey().equals("performanceHud")) {
+            performanceMetrics.setEnabled(config.performanceHud());
+        }
+
+        if (event.getKey().equals("recordChat")) {
+            if (config.recordChat()) {
+                chatRecorder.start();
+            } else {
+                chatRecorder.stop();
+            }
+        }
+
+        if (event.getKey().equals("memoryBudget")) {
+            updateMemoryBudget();
+        }
+
+        if (event.getKey().equals("exportChat") || event.getKey().equals("exportPort")) {
+            closeExport();
+            if (config.exportChat()) {
+                openExport();
+            }
+        }
+
+        if (event.getKey().equals("collapseGameChat") || event.getKey().equals("collapseSimilar")) {
+            updateCollapser();
+        }
+
+        if (event.getKey().equals("customWidgets")) {
+            rebuildCustomWidgets();
+        }
+
+        if (event.getKey().endsWith("HistorySize")) {
+            updateChannelCapacities();
+        }
+
+        if (event.getKey().equals("persistHistory")) {
+            if (config.persistHistory()) {
+                openChatLog();
+            } else {
+                closeChatLog();
+                chatLog.delete();
+            }
+        }
+
+        if (event.getKey().equals("scrollback") && !config.scrollback()) {
+            gameOverlay.getScrollback().reset();
+            privateOverlay.getScrollback().reset();
+        }
+
         if (event.getKey().equals("swapStackingOrder")) {
             overlayManager.remove(gameOverlay);
             overlayManager.remove(privateOverlay);
@@ -102,8 +318,217 @@ public class ChatWidgetPlugin extends Plugin {
         }
     }
 
+    private Map<ChatChannel, MessageStore> createChannelStores() {
+        Map<ChatChannel, MessageStore> stores = new EnumMap<>(ChatChannel.class);
+        gameMessages.setArchive(gameArchive);
+        privateMessages.setArchive(privateArchive);
+        stores.put(ChatChannel.GAME, gameMessages);
+        stores.put(ChatChannel.PRIVATE, privateMessages);
+        stores.put(ChatChannel.CLAN, clanMessages);
+        stores.put(ChatChannel.FRIENDS_CHAT, friendsChatMessages);
+        stores.put(ChatChannel.PUBLIC, publicMessages);
+        return stores;
+    }
+
+    private void updateChannelCapacities() {
+        clanMessages.setCapacity(channelCapacity(ChatChannel.CLAN, config.clanHistorySize()));
+        friendsChatMessages.setCapacity(channelCapacity(ChatChannel.FRIENDS_CHAT, config.friendsChatHistorySize()));
+        publicMessages.setCapacity(channelCapacity(ChatChannel.PUBLIC, config.publicHistorySize()));
+        gameMessages.setArchiveCapacity(config.deepHistorySize());
+        privateMessages.setArchiveCapacity(config.deepHistorySize());
+    }
+
+    /**
+     * @return the configured history size, raised so that custom widgets showing the channel have messages to show.
+     */
+    private int channelCapacity(ChatChannel channel, int configured) {
+        for (CustomChatOverlay overlay : customOverlays) {
+            if (overlay.getDefinition().getChannels().contains(channel)) {
+                return Math.max(configured, CUSTOM_WIDGET_HISTORY_SIZE);
+            }
+        }
+        return configured;
+    }
+
+    private void rebuildCustomWidgets() {
+        removeCustomWidgets();
+        for (ChatWidgetDefinition definition : ChatWidgetDefinition.parseAll(config.customWidgets())) {
+            CustomChatOverlay overlay = new CustomChatOverlay(this, config, client, layoutCache, iconCache,
+                    definition, performanceMetrics.widget("Custom: " + definition.getName()));
+            customOverlays.add(overlay);
+            overlayManager.add(overlay);
+        }
+        updateChannelCapacities();
+    }
+
+    private void removeCustomWidgets() {
+        for (CustomChatOverlay overlay : customOverlays) {
+            overlayManager.remove(overlay);
+            performanceMetrics.removeWidget("Custom: " + overlay.getDefinition().getName());
+        }
+        customOverlays.clear();
+        layoutCache.clear();
+    }
+
+    /**
+     * Restores history from the on-disk log into any empty channel store, then journals every store to the log.
+     * Stores that still hold history from before the plugin was last stopped are already in the log.
+     */
+    private void openChatLog() {
+        if (!logJournals.isEmpty()) {
+            return;
+        }
+        Map<ChatChannel, List<WidgetMessage>> restored = chatLog.open(
+                channel -> channelStores.get(channel).getHistoryCapacity());
+        for (Map.Entry<ChatChannel, MessageStore> entry : channelStores.entrySet()) {
+            MessageStore store = entry.getValue();
+            List<WidgetMessage> messages = restored.get(entry.getKey());
+            if (messages != null && store.historySize() == 0) {
+                for (WidgetMessage msg : messages) {
+                    store.add(msg);
+                }
+            }
+            MessageJournal journal = chatLog.journal(entry.getKey());
+            logJournals.put(entry.getKey(), journal);
+            store.addJournal(journal);
+        }
+    }
+
+    private void closeChatLog() {
+        for (Map.Entry<ChatChannel, MessageJournal> entry : logJournals.entrySet()) {
+            channelStores.get(entry.getKey()).removeJournal(entry.getValue());
+        }
+        logJournals.clear();
+        chatLog.close();
+    }
+
+    private void openExport() {
+        if (!exportJournals.isEmpty()) {
+            return;
+        }
+        chatExporter.start(config.exportPort());
+        for (Map.Entry<ChatChannel, MessageStore> entry : channelStores.entrySet()) {
+            MessageJournal journal = chatExporter.journal(entry.getKey());
+            exportJournals.put(entry.getKey(), journal);
+            entry.getValue().addJournal(journal);
+        }
+    }
+
+    private void closeExport() {
+        for (Map.Entry<ChatChannel, MessageJournal> entry : exportJournals.entrySet()) {
+            channelStores.get(entry.getKey()).removeJournal(entry.getValue());
+        }
+        exportJournals.clear();
+        chatExporter.stop();
+    }
+
+    @Subscribe
+    public void onCommandExecuted(CommandExecuted event) {
+        if (developerMode && FLOOD_COMMAND.equalsIgnoreCase(event.getCommand())) {
+            startFlood(event.getArguments());
+            return;
+        }
+        if (!SEARCH_COMMAND.equalsIgnoreCase(event.getCommand())) {
+            return;
+        }
+        setSearch(String.join(" ", event.getArguments()));
+    }
+
+    /**
+     * Handles {@code ::chatflood <messages per second> [seconds] [kinds...]}. With no rate, or a rate of 0, stops
+     * the flood.
+     */
+    private void startFlood(String[] arguments) {
+        int rate = 0;
+        int seconds = 0;
+        Set<ChatFloodGenerator.Kind> kinds = EnumSet.noneOf(ChatFloodGenerator.Kind.class);
+        try {
+            if (arguments.length > 0) {
+                rate = Integer.parseInt(arguments[0]);
+            }
+            if (arguments.length > 1) {
+                seconds = Integer.parseInt(arguments[1]);
+            }
+            for (int i = 2; i < arguments.length; i++) {
+                kinds.add(ChatFloodGenerator.Kind.valueOf(arguments[i].toUpperCase(Locale.ROOT)));
+            }
+        } catch (IllegalArgumentException e) {
+            rate = 0;
+        }
+
+        if (rate <= 0) {
+            floodGenerator.stop();
+        } else {
+            floodGenerator.start(rate, seconds, kinds);
+        }
+    }
+
+    /**
+     * Shows messages matching the query in the game widget instead of the latest messages, or returns to the latest
+     * messages if the query is empty.
+     */
+    public void setSearch(String text) {
+        ChatSearchQuery query = ChatSearchQuery.parse(text);
+        searchQuery = query.isEmpty() ? null : query;
+        searchResultsQuery = null;
+        gameOverlay.getScrollback().reset();
+    }
+
+    public boolean isSearching() {
+        return searchQuery != null;
+    }
+
+    public ChatSearchQuery getSearchQuery() {
+        return searchQuery;
+    }
+
+    /**
+     * @return the most recent messages matching the current search, oldest first. Results are only searched
+     * again once the history changes.
+     */
+    public List<WidgetMessage> getSearchResults(int limit) {
+        ChatSearchQuery query = searchQuery;
+        if (query == null) {
+            return Collections.emptyList();
+        }
+
+        boolean merged = isWidgetsMerged();
+        int gameVersion = gameSearchIndex.getVersion();
+        int privateVersion = merged ? privateSearchIndex.getVersion() : 0;
+        // queries are replaced rather than changed, so the same query object means the same search
+        if (query != searchResultsQuery || limit != searchResultsLimit || merged != searchResultsMerged
+                || gameVersion != searchResultsGameVersion || privateVersion != searchResultsPrivateVersion) {
+            List<WidgetMessage> results = gameSearchIndex.search(query, limit);
+            if (merged) {
+                results = mergeBySequence(results, privateSearchIndex.search(query, limit), limit);
+            }
+            searchResults = results;
+            searchResultsQuery = query;
+            searchResultsLimit = limit;
+            searchResultsMerged = merged;
+            searchResultsGameVersion = gameVersion;
+            searchResultsPrivateVersion = privateVersion;
+        }
+        return searchResults;
+    }
+
+    private static List<WidgetMessage> mergeBySequence(List<WidgetMessage> a, List<WidgetMessage> b, int limit) {
+        List<WidgetMessage> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j >= b.size() || (i < a.size() && a.get(i).getSequence() < b.get(j).getSequence())) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
+            }
+        }
+        return merged.subList(Math.max(0, merged.size() - limit), merged.size());
+    }
+
     @Subscribe
     public void onGameStateChanged(GameStateChanged event) {
+        chatboxState.refreshGameState();
         if (event.getGameState() == GameState.LOGIN_SCREEN) {
             //keep history for now i think
             // clearGameMessages();
@@ -113,16 +538,139 @@ public class ChatWidgetPlugin extends Plugin {
         }
     }
 
+    @Subscribe
+    public void onVarbitChanged(VarbitChanged event) {
+        int varbitId = event.getVarbitId();
+        if (varbitId == VarbitID.GAME_FILTER || varbitId == VarbitID.BOSS_KILLCOUNT_FILTERED) {
+            chatboxState.refreshFilters();
+            refreshGameView();
+        }
+    }
+
+    /**
+     * Rebuilds the game message filter from the client's current chat filter settings.
+     */
+    private void refreshGameView() {
+        boolean hideSpam = isGameFilterEnabled();
+        int hiddenCategories = getHiddenCategories();
+        gameFilter = msg -> !(hideSpam && msg.getType() == ChatMessageType.SPAM)
+                && (msg.getCategories() & hiddenCategories) == 0;
+        gameRetention.setFilter(gameFilter);
+    }
+
+    /**
+     * @return whether the message passes the client's current game chat filters.
+     */
+    public boolean isGameMessageVisible(WidgetMessage msg) {
+        return gameFilter.test(msg);
+    }
+
+    /**
+     * Attaches the duplicate collapser to the game store while collapsing is enabled, so its keys aren't computed
+     * for every message otherwise.
+     */
+    private void updateCollapser() {
+        gameMessages.removeJournal(gameCollapser);
+        gameCollapser.cleared();
+        if (config.collapseGameChat()) {
+            gameCollapser.setTemplates(config.collapseSimilar());
+            gameCollapser.rebuild();
+            gameMessages.addJournal(gameCollapser);
+        }
+    }
+
+    /**
+     * Applies the per-type retention settings to the game widget's buffers.
+     */
+    private void updateRetention() {
+        gameRetention.setPolicy(RetentionClass.SPAM, config.spamRetention(), config.spamRetentionAge() * 1000L);
+        gameRetention.setPolicy(RetentionClass.BROADCAST, config.broadcastRetention(),
+                config.broadcastRetentionAge() * 1000L);
+        gameRetention.setPolicy(RetentionClass.TRADE, config.tradeRetention(), config.tradeRetentionAge() * 1000L);
+        gameRetention.setPolicy(RetentionClass.KILLS_AND_DROPS, config.killsAndDropsRetention(),
+                config.killsAndDropsRetentionAge() * 1000L);
+        gameRetention.setPolicy(RetentionClass.OTHER, config.otherRetention(), config.otherRetentionAge() * 1000L);
+    }
+
+    private MouseWheelEvent onMouseWheelMoved(MouseWheelEvent event) {
+        if (!config.scrollback() || isSearching()) {
+            return event;
+        }
+
+        Scrollback target = null;
+        // the merged widget shows two stores, but scrollback walks a single store's history
+        if (shouldShowGameOverlay() && config.gamePosition() == WidgetPosition.DEFAULT && !isWidgetsMerged()
+                && contains(gameOverlay.getBounds(), event)) {
+            target = gameOverlay.getScrollback();
+        } else if (shouldShowPrivateOverlay() && !isWidgetsMerged() && contains(privateOverlay.getBounds(), event)) {
+            target = privateOverlay.getScrollback();
+        }
+
+        if (target != null) {
+            // positive wheel rotation is towards the user, which should move back to newer messages
+            target.scroll(-event.getWheelRotation() * SCROLL_LINES_PER_NOTCH);
+            event.consume();
+        }
+        return event;
+    }
+
+    private static boolean contains(Rectangle bounds, MouseWheelEvent event) {
+        return bounds != null && !bounds.isEmpty() && bounds.contains(event.getPoint());
+    }
+
     @Subscribe
     public void onWidgetLoaded(WidgetLoaded event) {
+        if (event.getGroupId() == InterfaceID.CHATBOX) {
+            chatboxState.refreshChatbox();
+            chatTabHoverTracker.invalidate();
+        }
         if (event.getGroupId() == InterfaceID.PM_CHAT && config.enablePrivateMessages()) {
             hidePmWidgets();
         }
     }
 
+    @Subscribe
+    public void onWidgetClosed(WidgetClosed event) {
+        if (event.getGroupId() == InterfaceID.CHATBOX) {
+            chatboxState.refreshChatbox();
+        }
+    }
+
+    @Subscribe
+    public void onGameTick(GameTick event) {
+        // the chatbox can be hidden by scripts without a widget event, so pick that up at least once a tick
+        chatboxState.refreshChatbox();
+        chatTabHoverTracker.invalidateIfMissing();
+        overheadChatTracker.prune(System.currentTimeMillis());
+        memoryBudget.check(System.currentTimeMillis());
+    }
+
+    @Subscribe
+    public void onPlayerDespawned(PlayerDespawned event) {
+        overheadChatTracker.remove(event.getPlayer().getName());
+    }
+
+    @Subscribe
+    public void onClientTick(ClientTick event) {
+        floodGenerator.tick();
+        WidgetPosition positionMode = config.gamePosition();
+        if (positionMode == WidgetPosition.DEFAULT || !shouldShowGameOverlay()) {
+            playerAnchor.reset();
+            return;
+        }
+        playerAnchor.sample(positionMode);
+    }
+
+    @Subscribe
+    public void onCanvasSizeChanged(CanvasSizeChanged event) {
+        chatTabHoverTracker.invalidate();
+    }
+
     @Subscribe
     public void onVarClientIntChanged(VarClientIntChanged event) {
         if (event.getIndex() == VarClientID.CHAT_VIEW) {
+            chatboxState.refreshChatbox();
+            chatTabHoverTracker.invalidate();
             updateSmartPosition(gameOverlay);
             updateSmartPosition(privateOverlay);
         }
@@ -130,6 +678,8 @@ public class ChatWidgetPlugin extends Plugin {
 
     @Subscribe
     public void onResizeableChanged(ResizeableChanged event) {
+        chatboxState.refreshResized();
+        chatTabHoverTracker.invalidate();
         updateDefaultPosition(gameOverlay);
         updateDefaultPosition(privateOverlay);
         updateSmartPosition(gameOverlay);
@@ -195,6 +745,20 @@ public class ChatWidgetPlugin extends Plugin {
             return;
         }
 
+        if (option.equals("Clear search")) {
+            setSearch("");
+            return;
+        }
+
+        if (option.equals("Jump to latest") && target != null) {
+            if (target.equals("Private chat history")) {
+                privateOverlay.getScrollback().reset();
+            } else {
+                gameOverlay.getScrollback().reset();
+            }
+            return;
+        }
+
         if (option.equals("Clear") && target != null) {
             switch (target) {
                 case "Merged chat history":
@@ -213,52 +777,43 @@ public class ChatWidgetPlugin extends Plugin {
 
     @Subscribe
     public void onChatMessage(ChatMessage event) {
-        ChatMessageType type = event.getType();
-
-        switch (type) {
-            case GAMEMESSAGE:
-            case SPAM:
-            case CONSOLE:
-            case WELCOME:
-            case BROADCAST:
-            case DIDYOUKNOW:
-            case ENGINE:
-            case FRIENDNOTIFICATION:
-            case FRIENDSCHATNOTIFICATION:
-            case IGNORENOTIFICATION:
-            case ITEM_EXAMINE:
-            case NPC_EXAMINE:
-            case OBJECT_EXAMINE:
-            case PLAYERRELATED:
-            case SNAPSHOTFEEDBACK:
-            case TRADE:
-            case TRADE_SENT:
-            case TRADEREQ:
-            case UNKNOWN: //combat achievements-related?
-                handleGameMessage(event);
-                break;
+        chatRecorder.record(event);
+        ChatChannel channel = ChatChannel.forType(event.getType());
+        if (channel == null) {
+            return;
+        }
+        performanceMetrics.recordIngest(event.getType());
 
-            case PRIVATECHAT:
-            case PRIVATECHATOUT:
-            case MODPRIVATECHAT:
-                handlePrivateMessage(event);
+        switch (channel) {
+            case GAME:
+                handleGameMessage(event);
                 break;
-
-            case LOGINLOGOUTNOTIFICATION:
-                handleLoginLogoutNotification(event);
+            case PRIVATE: {
+                Object ingestEvent = ChatEvents.beginIngest();
+                if (event.getType() == ChatMessageType.LOGINLOGOUTNOTIFICATION) {
+                    handleLoginLogoutNotification(event);
+                } else {
+                    handlePrivateMessage(event);
+                }
+                ChatEvents.endIngest(ingestEvent, event.getType(), event.getMessage(), false, false);
                 break;
-
-            default:
+            }
+            default: {
+                Object ingestEvent = ChatEvents.beginIngest();
+                handleChannelMessage(channel, event);
+                ChatEvents.endIngest(ingestEvent, event.getType(), event.getMessage(), false, false);
                 break;
+            }
         }
     }
 
-    private void handleGameMessage(ChatMessage event) {
+    void handleGameMessage(ChatMessage event) {
         String message = event.getMessage();
         if (message == null || message.trim().isEmpty()) {
             return;
         }
 
+        Object ingestEvent = ChatEvents.beginIngest();
         String cleanMessage = message.trim();
         for (MessageMergeRule rule : MESSAGE_MERGE_RULES) {
             if (rule.matchesPreviousPrefix(cleanMessage)) {
@@ -266,60 +821,53 @@ public class ChatWidgetPlugin extends Plugin {
                 break;
             }
         }
-        boolean isBossKc = BOSS_KC_PATTERN.matcher(cleanMessage).find();
+        int categories = MessageClassifier.classify(cleanMessage);
 
         if (!gameMessages.isEmpty()) {
             WidgetMessage lastMsg = gameMessages.get(gameMessages.size() - 1);
             String merged = tryMergeMessages(lastMsg.getMessage(), cleanMessage);
             if (merged != null) {
-                String mergedStripped = stripTags(merged);
                 int existingCount = 0;
 
                 if (config.collapseGameChat()) {
-                    for (int i = gameMessages.size() - 2; i >= 0; i--) {
-                        WidgetMessage existing = gameMessages.get(i);
-                        if (stripTags(existing.getMessage()).equals(mergedStripped)) {
-                            existingCount = existing.getCount();
-                            gameMessages.remove(i);
-                            break;
-                        }
+                    int index = gameCollapser.find(merged);
+                    if (index >= 0 && index < gameMessages.size() - 1) {
+                        existingCount = gameMessages.get(index).getCount();
+                        gameMessages.remove(index);
+                        performanceMetrics.recordCollapse();
                     }
                 }
 
                 WidgetMessage mergedMsg = WidgetMessage.gameMessage(
-                        merged, System.currentTimeMillis(), lastMsg.getType(), lastMsg.isBossKc());
+                        merged, System.currentTimeMillis(), lastMsg.getType(), lastMsg.getCategories());
                 for (int i = 0; i < existingCount; i++) {
                     mergedMsg.incrementCount();
                 }
                 gameMessages.set(gameMessages.size() - 1, mergedMsg);
+                performanceMetrics.recordMerge();
+                ChatEvents.endIngest(ingestEvent, event.getType(), message, existingCount > 0, true);
                 return;
             }
         }
 
-        String currentStripped = stripTags(cleanMessage);
         int existingCount = 0;
 
         if (config.collapseGameChat()) {
-            for (int i = gameMessages.size() - 1; i >= 0; i--) {
-                WidgetMessage existing = gameMessages.get(i);
-                if (stripTags(existing.getMessage()).equals(currentStripped)) {
-                    existingCount = existing.getCount();
-                    gameMessages.remove(i);
-                    break;
-                }
+            int index = gameCollapser.find(cleanMessage);
+            if (index >= 0) {
+                existingCount = gameMessages.get(index).getCount();
+                gameMessages.remove(index);
+                performanceMetrics.recordCollapse();
             }
         }
 
         WidgetMessage newMsg = WidgetMessage.gameMessage(
-                cleanMessage, System.currentTimeMillis(), event.getType(), isBossKc);
+                cleanMessage, System.currentTimeMillis(), event.getType(), categories);
         for (int i = 0; i < existingCount; i++) {
             newMsg.incrementCount();
         }
         gameMessages.add(newMsg);
-
-        while (gameMessages.size() > 50) {
-            gameMessages.remove(0);
-        }
+        ChatEvents.endIngest(ingestEvent, event.getType(), message, existingCount > 0, false);
     }
 
     private String tryMergeMessages(String previousMessage, String newMessage) {
@@ -331,22 +879,10 @@ public class ChatWidgetPlugin extends Plugin {
         return null;
     }
 
-    private String stripTags(String text) {
-        if (text == null) {
-            return "";
-        }
-        return text.replaceAll("<[^>]*>", "");
-    }
-
     private void handlePrivateMessage(ChatMessage event) {
         boolean isOutgoing = event.getType() == ChatMessageType.PRIVATECHATOUT;
 
-        String sender = event.getName();
-        if (sender != null) {
-            sender = sender.replace('\u00A0', ' ').trim();
-        } else {
-            sender = "Unknown";
-        }
+        String sender = cleanSender(event.getName(), "Unknown");
 
         String message = event.getMessage();
         if (message == null || message.trim().isEmpty()) {
@@ -355,19 +891,10 @@ public class ChatWidgetPlugin extends Plugin {
 
         privateMessages.add(WidgetMessage.privateMessage(
                 sender, message.trim(), System.currentTimeMillis(), isOutgoing));
-
-        while (privateMessages.size() > 50) {
-            privateMessages.remove(0);
-        }
     }
 
     private void handleLoginLogoutNotification(ChatMessage event) {
-        String sender = event.getName();
-        if (sender != null) {
-            sender = sender.replace('\u00A0', ' ').trim();
-        } else {
-            sender = "System";
-        }
+        String sender = cleanSender(event.getName(), "System");
 
         String message = event.getMessage();
         if (message == null || message.trim().isEmpty()) {
@@ -382,41 +909,55 @@ public class ChatWidgetPlugin extends Plugin {
         privateMessages.add(WidgetMessage.loginNotification(
                 sender, message.trim(), System.currentTimeMillis(), maxFade));
 
-        while (privateMessages.size() > config.privateMaxMessages() * 2) {
-            privateMessages.remove(0);
+        privateMessages.trimTo(config.privateMaxMessages() * 2);
+    }
+
+    private void handleChannelMessage(ChatChannel channel, ChatMessage event) {
+        MessageStore store = channelStores.get(channel);
+        boolean showOverhead = channel == ChatChannel.PUBLIC && config.overheadChatEnabled();
+        if ((store == null || !store.isEnabled()) && !showOverhead) {
+            return;
+        }
+
+        String message = event.getMessage();
+        if (message == null || message.trim().isEmpty()) {
+            return;
+        }
+
+        WidgetMessage msg = WidgetMessage.channelMessage(
+                cleanSender(event.getName(), "Unknown"), message.trim(), System.currentTimeMillis(), event.getType());
+        if (store != null && store.isEnabled()) {
+            store.add(msg);
+        }
+        if (showOverhead) {
+            overheadChatTracker.add(msg);
         }
     }
 
+    private String cleanSender(String sender, String fallback) {
+        if (sender == null) {
+            return fallback;
+        }
+        return sender.replace('\u00A0', ' ').trim();
+    }
+
     public boolean shouldShowGameOverlay() {
         if (!config.enableGameMessages()) {
             return false;
         }
-        if (client.getGameState() != GameState.LOGGED_IN) {
+        if (!chatboxState.isLoggedIn()) {
             return false;
         }
         return isChatboxHidden();
     }
 
 
-    public boolean isChatboxHidden() {
-        return isChatboxMinimized() || isChatboxWidgetHidden();
+    public boolean isLoggedIn() {
+        return chatboxState.isLoggedIn();
     }
 
-    /**
-     * Checks if the user manually minimized their chatbox by clicking on the active tab underneath the chatbox.<br>
-     * Use {@link ChatWidgetPlugin#isChatboxHidden()}.
-     */
-    private boolean isChatboxMinimized() {
-        return client.getVarcIntValue(VarClientID.CHAT_VIEW) == 1337;
-    }
-
-    /**
-     * Checks if the chatbox widget itself is hidden from the game interface.
-     * Use {@link ChatWidgetPlugin#isChatboxHidden()}.
-     */
-    private boolean isChatboxWidgetHidden() {
-        Widget chatboxWidget = client.getWidget(InterfaceID.Chatbox.CHATAREA);
-        return (chatboxWidget != null && chatboxWidget.isHidden());
+    public boolean isChatboxHidden() {
+        return chatboxState.isChatboxMinimized() || chatboxState.isChatboxWidgetHidden();
     }
 
     public boolean shouldShowPrivateOverlay() {
@@ -424,54 +965,40 @@ public class ChatWidgetPlugin extends Plugin {
     }
 
     public boolean isWidgetsMerged() {
-        return ((client.isResized() && isChatboxMinimized()) || !client.isResized() && isChatboxWidgetHidden())
-                && config.mergeWithGameWidget()
-                && config.enableGameMessages()
-                && config.enablePrivateMessages()
-                && config.gamePosition() == WidgetPosition.DEFAULT;
+        return chatboxState.isWidgetsMerged();
+    }
+
+    /**
+     * @return the opacity the game widget should be drawn at when it is only displayed while the game chat tabs are
+     * hovered, see {@link ChatTabHoverTracker#getOpacity(long)}.
+     */
+    public float getChatTabHoverOpacity(long currentTime) {
+        return chatTabHoverTracker.getOpacity(currentTime);
     }
 
     public boolean isGameFilterEnabled() {
-        return client.getVarbitValue(VarbitID.GAME_FILTER) == 1;
+        return chatboxState.isGameFilterEnabled();
     }
 
     public boolean isBossKcFilterEnabled() {
-        return client.getVarbitValue(VarbitID.BOSS_KILLCOUNT_FILTERED) == 1;
+        return chatboxState.isBossKcFilterEnabled();
     }
 
-    public List<WidgetMessage> getGameMessages() {
-        int size = gameMessages.size();
-        if (size == 0) {
-            return new ArrayList<>(0);
+    /**
+     * @return a bitmask of {@link MessageCategory} values the client's chat filters currently hide.
+     */
+    public int getHiddenCategories() {
+        int hidden = 0;
+        if (isBossKcFilterEnabled()) {
+            hidden |= MessageCategory.BOSS_KC.mask();
         }
+        return hidden;
+    }
 
-        long currentTime = System.currentTimeMillis();
+    public List<WidgetMessage> getGameMessages() {
         int fadeOutDuration = config.gameFadeOutDuration();
         long fadeOutThreshold = fadeOutDuration > 0 ? (fadeOutDuration * 2000L) + 2000 : 0;
-        boolean gameFilterEnabled = isGameFilterEnabled();
-        boolean bossKcFilterEnabled = isBossKcFilterEnabled();
-
-        int maxMessages = config.gameMaxMessages();
-        List<WidgetMessage> filtered = new ArrayList<>(maxMessages);
-        for (int i = size - 1; i >= 0 && filtered.size() < maxMessages; i--) {
-            WidgetMessage msg = gameMessages.get(i);
-
-            if (fadeOutThreshold > 0 && currentTime - msg.getTimestamp() >= fadeOutThreshold) {
-                continue;
-            }
-
-            if (gameFilterEnabled && msg.getType() == ChatMessageType.SPAM) {
-                continue;
-            }
-
-            if (bossKcFilterEnabled && msg.isBossKc()) {
-                continue;
-            }
-
-            filtered.add(0, msg);
-        }
-
-        return filtered;
+        return gameRetention.getLatest(config.gameMaxMessages(), fadeOutThreshold, System.currentTimeMillis());
     }
 
     public List<WidgetMessage> getPrivateMessages() {
@@ -507,21 +1034,89 @@ public class ChatWidgetPlugin extends Plugin {
                 continue;
             }
 
-            filtered.add(0, msg);
+            filtered.add(msg);
             if (!isLoginNotification) {
                 pmCount++;
             }
         }
 
+        Collections.reverse(filtered);
         return filtered;
     }
 
+    /**
+     * @return a copy of the stored history for the channel, oldest first.
+     */
+    public List<WidgetMessage> getChannelMessages(ChatChannel channel) {
+        MessageStore store = channelStores.get(channel);
+        return store == null ? new ArrayList<>(0) : store.snapshot();
+    }
+
+    public MessageStore getChannelStore(ChatChannel channel) {
+        return channelStores.get(channel);
+    }
+
+    /**
+     * @return estimated bytes held by all channel stores and their archives.
+     */
+    public long estimateHistoryBytes() {
+        long bytes = 0;
+        for (MessageStore store : channelStores.values()) {
+            bytes += store.estimateBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return estimated bytes held by the game widget's retention buffers and duplicate keys, which follow the recent
+     * history.
+     */
+    public long estimateRetainedBytes() {
+        return gameRetention.estimateBytes() + gameCollapser.estimateBytes();
+    }
+
+    /**
+     * @return estimated bytes held by the rasterized overhead chat bubbles.
+     */
+    public long estimateBubbleBytes() {
+        return overheadOverlay.estimateBytes();
+    }
+
+    /**
+     * Drops the rasterized overhead chat bubbles. Must be called on the client thread.
+     */
+    void clearBubbles() {
+        overheadOverlay.clearBubbles();
+    }
+
+    /**
+     * @return estimated bytes held by the search indexes.
+     */
+    public long estimateSearchIndexBytes() {
+        return gameSearchIndex.estimateBytes() + privateSearchIndex.estimateBytes();
+    }
+
+    /**
+     * Drops search postings for messages no longer in the history, after history was freed outside the usual
+     * eviction.
+     */
+    void pruneSearchIndexes() {
+        gameSearchIndex.prune();
+        privateSearchIndex.prune();
+    }
+
+    private void updateMemoryBudget() {
+        memoryBudget.setBudget(config.memoryBudget() * 1024L * 1024L);
+    }
+
     public void clearGameMessages() {
         gameMessages.clear();
+        gameOverlay.getScrollback().reset();
     }
 
     public void clearPrivateMessages() {
         privateMessages.clear();
+        privateOverlay.getScrollback().reset();
     }
 
     private void hidePmWidgets() {
@@ -581,44 +1176,4 @@ public class ChatWidgetPlugin extends Plugin {
     ChatWidgetConfig provideConfig(ConfigManager configManager) {
         return configManager.getConfig(ChatWidgetConfig.class);
     }
-
-    /**
-     * Validates whether any of the chat control widgets which display game messages is being
-     * hovered. Currently, this yields true for the following widgets:
-     * <ul>
-     *     <li>CHAT_ALL</li>
-     *     <li>CHAT_GAME</li>
-     *     <li>CHAT_PUBLIC</li>
-     * </ul>
-     *
-     * @return <i>true</i> if any of the aforementioned widgets are being hovered otherwise returns <i>false</i>.
-     */
-    boolean isHoveringGameChatControls() {
-        final Point mouse = client.getMouseCanvasPosition();
-        return isHoveringWidget(mouse, client.getWidget(InterfaceID.Chatbox.CHAT_ALL)) ||
-                isHoveringWidget(mouse, client.getWidget(InterfaceID.Chatbox.CHAT_GAME)) ||
-                isHoveringWidget(mouse, client.getWidget(InterfaceID.Chatbox.CHAT_PUBLIC));
-    }
-
-    /**
-     * Helper function to determine if the target {@link Widget} passed in is being hovered.
-     *
-     * @param mouse  The current coordinates of the mouse within the game canvas.
-     * @param target The widget
-     * @return <i>true</i> if the mouse coordinates falls within the targeted widget boundary otherwise returns
-     * <i>false</i>.
-     */
-    boolean isHoveringWidget(Point mouse, Widget target) {
-        if (target == null || target.isHidden()) {
-            return false;
-        }
-
-        final Point origin = target.getCanvasLocation();
-        final int mouseX = mouse.getX();
-        final int mouseY = mouse.getY();
-        return mouseX >= origin.getX()
-                && mouseX <= (origin.getX() + target.getWidth())
-                && mouseY >= origin.getY()
-                && mouseY <= (origin.getY() + target.getHeight());
-    }
 }
@@ -0,0 +1,75 @@
+package com.chatwidgets;
+
+import java.util.Map;
+
+/**
+ * Counters exposed over JMX while the plugin is running, under {@link ChatWidgetsStats#OBJECT_NAME}. Counts are
+ * totals since the client started, so rates can be taken by sampling them from a JMX client.
+ */
+public interface ChatWidgetsMXBean {
+    long getMessagesIngested();
+
+    /**
+     * @return messages received per chat message type, for the types which have been seen.
+     */
+    Map<String, Long> getMessagesIngestedByType();
+
+    /**
+     * @return game messages collapsed into an earlier duplicate.
+     */
+    long getCollapseHits();
+
+    /**
+     * @return game messages merged into the message before them.
+     */
+    long getMergeHits();
+
+    /**
+     * @return messages dropped from each channel's history because it was full.
+     */
+    Map<String, Long> getEvictions();
+
+    Map<String, Integer> getStoreSizes();
+
+    Map<String, Integer> getArchiveSizes();
+
+    int getLayoutCacheSize();
+
+    double getLayoutCacheHitRatio();
+
+    int getIconCacheSize();
+
+    double getIconCacheHitRatio();
+
+    /**
+     * @return total time spent rendering each overlay, in nanoseconds.
+     */
+    Map<String, Long> getRenderNanos();
+
+    Map<String, Long> getRenderFrames();
+
+    /**
+     * @return estimated bytes held by the icon and bubble images, layouts, history, search index and retention
+     * buffers, as of the last budget check.
+     */
+    Map<String, Long> getMemoryBytes();
+
+    long getMemoryBudget();
+
+    long getMessagesExported();
+
+    /**
+     * @return messages the export dropped because it couldn't keep up.
+     */
+    long getExportDropped();
+
+    /**
+     * @return exported messages not sent to the export port because its reader was behind.
+     */
+    long getExportSocketDropped();
+
+    /**
+     * @return messages the chat recorder dropped because it couldn't keep up.
+     */
+    long getRecordingDropped();
+}
@@ -0,0 +1,213 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Publishes the plugin's counters as a platform MXBean, so they can be watched from JConsole or VisualVM during
+ * long sessions without the performance HUD.
+ */
+@Singleton
+public class ChatWidgetsStats implements ChatWidgetsMXBean {
+    public static final String OBJECT_NAME = "com.chatwidgets:type=ChatWidgets";
+
+    private final ChatWidgetPlugin plugin;
+    private final PerformanceMetrics metrics;
+    private final LayoutCache layoutCache;
+    private final ChatIconCache iconCache;
+    private final ChatExporter exporter;
+    private final ChatRecorder recorder;
+    private final MemoryBudget memoryBudget;
+
+    @Inject
+    public ChatWidgetsStats(ChatWidgetPlugin plugin, PerformanceMetrics metrics, LayoutCache layoutCache,
+            ChatIconCache iconCache, ChatExporter exporter, ChatRecorder recorder, MemoryBudget memoryBudget) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.layoutCache = layoutCache;
+        this.iconCache = iconCache;
+        this.exporter = exporter;
+        this.recorder = recorder;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Registers with the platform MBean server, replacing a bean left behind by an earlier start.
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            // the counters are only diagnostics, the plugin works the same without them
+        }
+    }
+
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            // already gone
+        }
+    }
+
+    @Override
+    public long getMessagesIngested() {
+        return metrics.getIngested();
+    }
+
+    @Override
+    public Map<String, Long> getMessagesIngestedByType() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (ChatMessageType type : ChatMessageType.values()) {
+            long count = metrics.getIngested(type);
+            if (count > 0) {
+                counts.put(type.name(), count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public long getCollapseHits() {
+        return metrics.getCollapses();
+    }
+
+    @Override
+    public long getMergeHits() {
+        return metrics.getMerges();
+    }
+
+    @Override
+    public Map<String, Long> getEvictions() {
+        Map<String, Long> evictions = new TreeMap<>();
+        for (ChatChannel channel : ChatChannel.values()) {
+            MessageStore store = plugin.getChannelStore(channel);
+            if (store != null) {
+                evictions.put(channel.name(), store.getEvictions());
+            }
+        }
+        return evictions;
+    }
+
+    @Override
+    public Map<String, Integer> getStoreSizes() {
+        Map<String, Integer> sizes = new TreeMap<>();
+        for (ChatChannel channel : ChatChannel.values()) {
+            MessageStore store = plugin.getChannelStore(channel);
+            if (store != null) {
+                sizes.put(channel.name(), store.size());
+            }
+        }
+        return sizes;
+    }
+
+    @Override
+    public Map<String, Integer> getArchiveSizes() {
+        Map<String, Integer> sizes = new TreeMap<>();
+        for (ChatChannel channel : ChatChannel.values()) {
+            MessageStore store = plugin.getChannelStore(channel);
+            MessageArchive archive = store != null ? store.getArchive() : null;
+            if (archive != null) {
+                sizes.put(channel.name(), archive.size());
+            }
+        }
+        return sizes;
+    }
+
+    @Override
+    public int getLayoutCacheSize() {
+        return layoutCache.size();
+    }
+
+    @Override
+    public double getLayoutCacheHitRatio() {
+        return hitRatio(layoutCache.getHits(), layoutCache.getMisses());
+    }
+
+    @Override
+    public int getIconCacheSize() {
+        return iconCache.size();
+    }
+
+    @Override
+    public double getIconCacheHitRatio() {
+        return hitRatio(iconCache.getHits(), iconCache.getMisses());
+    }
+
+    @Override
+    public Map<String, Long> getRenderNanos() {
+        Map<String, Long> nanos = new TreeMap<>();
+        for (WidgetMetrics widget : metrics.getWidgets()) {
+            nanos.put(widget.getName(), widget.getTotalRenderNanos());
+        }
+        return nanos;
+    }
+
+    @Override
+    public Map<String, Long> getRenderFrames() {
+        Map<String, Long> frames = new TreeMap<>();
+        for (WidgetMetrics widget : metrics.getWidgets()) {
+            frames.put(widget.getName(), widget.getTotalFrames());
+        }
+        return frames;
+    }
+
+    @Override
+    public Map<String, Long> getMemoryBytes() {
+        Map<String, Long> bytes = new TreeMap<>();
+        bytes.put("icons", memoryBudget.getIconBytes());
+        bytes.put("bubbles", memoryBudget.getBubbleBytes());
+        bytes.put("layouts", memoryBudget.getLayoutBytes());
+        bytes.put("history", memoryBudget.getHistoryBytes());
+        bytes.put("searchIndex", memoryBudget.getSearchIndexBytes());
+        bytes.put("retained", memoryBudget.getRetainedBytes());
+        return bytes;
+    }
+
+    @Override
+    public long getMemoryBudget() {
+        return memoryBudget.getBudget();
+    }
+
+    @Override
+    public long getMessagesExported() {
+        return exporter.getExported();
+    }
+
+    @Override
+    public long getExportDropped() {
+        return exporter.getDropped();
+    }
+
+    @Override
+    public long getExportSocketDropped() {
+        return exporter.getSocketDropped();
+    }
+
+    @Override
+    public long getRecordingDropped() {
+        return recorder.getDropped();
+    }
+
+    private static double hitRatio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
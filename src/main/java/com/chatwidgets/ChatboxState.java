@@ -0,0 +1,113 @@
+package com.chatwidgets;
+
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.gameval.InterfaceID;
+import net.runelite.api.gameval.VarClientID;
+import net.runelite.api.gameval.VarbitID;
+import net.runelite.api.widgets.Widget;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Client state used for visibility decisions, refreshed by {@link ChatWidgetPlugin} from client events so the
+ * overlays can read plain fields every frame instead of polling vars and widgets.
+ */
+@Singleton
+public class ChatboxState {
+    private static final int CHAT_VIEW_MINIMIZED = 1337;
+
+    private final Client client;
+    private final ChatWidgetConfig config;
+
+    private volatile boolean loggedIn;
+    private volatile boolean resized;
+    private volatile boolean chatboxMinimized;
+    private volatile boolean chatboxWidgetHidden;
+    private volatile boolean gameFilterEnabled;
+    private volatile boolean bossKcFilterEnabled;
+    private volatile boolean widgetsMerged;
+
+    @Inject
+    public ChatboxState(Client client, ChatWidgetConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    /**
+     * Must be called on the client thread.
+     */
+    public void refreshAll() {
+        loggedIn = client.getGameState() == GameState.LOGGED_IN;
+        resized = client.isResized();
+        refreshChatbox();
+        refreshFilters();
+    }
+
+    public void refreshGameState() {
+        loggedIn = client.getGameState() == GameState.LOGGED_IN;
+    }
+
+    public void refreshResized() {
+        resized = client.isResized();
+        refreshMerged();
+    }
+
+    public void refreshChatbox() {
+        chatboxMinimized = client.getVarcIntValue(VarClientID.CHAT_VIEW) == CHAT_VIEW_MINIMIZED;
+        Widget chatboxWidget = client.getWidget(InterfaceID.Chatbox.CHATAREA);
+        chatboxWidgetHidden = chatboxWidget != null && chatboxWidget.isHidden();
+        refreshMerged();
+    }
+
+    public void refreshFilters() {
+        gameFilterEnabled = client.getVarbitValue(VarbitID.GAME_FILTER) == 1;
+        bossKcFilterEnabled = client.getVarbitValue(VarbitID.BOSS_KILLCOUNT_FILTERED) == 1;
+    }
+
+    /**
+     * Recomputes the merged state, needed whenever one of the config values it depends on changes.
+     */
+    public void refreshMerged() {
+        widgetsMerged = ((resized && chatboxMinimized) || !resized && chatboxWidgetHidden)
+                && config.mergeWithGameWidget()
+                && config.enableGameMessages()
+                && config.enablePrivateMessages()
+                && config.gamePosition() == WidgetPosition.DEFAULT;
+    }
+
+    public boolean isLoggedIn() {
+        return loggedIn;
+    }
+
+    public boolean isResized() {
+        return resized;
+    }
+
+    /**
+     * Checks if the user manually minimized their chatbox by clicking on the active tab underneath the chatbox.
+     */
+    public boolean isChatboxMinimized() {
+        return chatboxMinimized;
+    }
+
+    /**
+     * Checks if the chatbox widget itself is hidden from the game interface.
+     */
+    public boolean isChatboxWidgetHidden() {
+        return chatboxWidgetHidden;
+    }
+
+    public boolean isGameFilterEnabled() {
+        return gameFilterEnabled;
+    }
+
+    public boolean isBossKcFilterEnabled() {
+        return bossKcFilterEnabled;
+    }
+
+    public boolean isWidgetsMerged() {
+        return widgetsMerged;
+    }
+}
@@ -0,0 +1,192 @@
+package com.chatwidgets;
+
+import net.runelite.api.Client;
+import net.runelite.api.IndexedSprite;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPosition;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Overlay for a {@link ChatWidgetDefinition}. Messages come straight from the plugin's channel stores, and layouts
+ * and icons come from caches shared with every other custom widget, so a widget only adds the cost of its own
+ * draw for messages another widget with the same layout has already laid out.
+ */
+public class CustomChatOverlay extends Overlay {
+    private static final int MAX_MESSAGE_LENGTH = 500;
+
+    private final ChatWidgetPlugin plugin;
+    private final ChatWidgetConfig config;
+    private final Client client;
+    private final LayoutCache layoutCache;
+    private final ChatIconCache iconCache;
+    private final ChatWidgetDefinition definition;
+    private final WidgetMetrics frameMetrics;
+    private final MergedMessageView mergedView = new MergedMessageView();
+
+    public CustomChatOverlay(ChatWidgetPlugin plugin, ChatWidgetConfig config, Client client,
+            LayoutCache layoutCache, ChatIconCache iconCache, ChatWidgetDefinition definition,
+            WidgetMetrics frameMetrics) {
+        this.plugin = plugin;
+        this.frameMetrics = frameMetrics;
+        this.config = config;
+        this.client = client;
+        this.layoutCache = layoutCache;
+        this.iconCache = iconCache;
+        this.definition = definition;
+        setPosition(OverlayPosition.TOP_LEFT);
+        setLayer(OverlayLayer.UNDER_WIDGETS);
+        setResizable(true);
+        setMovable(true);
+        setMinimumSize(150);
+    }
+
+    /**
+     * Named after the definition so each custom widget keeps its own saved position and size.
+     */
+    @Override
+    public String getName() {
+        return "ChatWidgets:" + definition.getName();
+    }
+
+    public ChatWidgetDefinition getDefinition() {
+        return definition;
+    }
+
+    @Override
+    public Dimension render(Graphics2D graphics) {
+        frameMetrics.beginFrame();
+        try {
+            return renderWidget(graphics);
+        } finally {
+            frameMetrics.endFrame();
+        }
+    }
+
+    private Dimension renderWidget(Graphics2D graphics) {
+        if (!plugin.isLoggedIn()) {
+            return null;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        long fadeOutMs = definition.getFadeOutSeconds() * 1000L;
+        List<WidgetMessage> messages = collectMessages(currentTime, fadeOutMs);
+        if (messages.isEmpty()) {
+            return null;
+        }
+
+        FontSize fontSize = config.fontSize();
+        FontMetrics metrics = ChatRenderUtils.setupGraphics(graphics, fontSize);
+        Dimension preferredSize = getPreferredSize();
+        int widgetWidth = (preferredSize != null && preferredSize.width > 0)
+                ? preferredSize.width
+                : definition.getWidth();
+        int lineHeight = metrics.getHeight() - 2;
+        boolean wrapText = config.wrapText();
+        boolean drawShadow = config.textShadow();
+        Color textColor = definition.getTextColor();
+        IndexedSprite[] modIcons = client.getModIcons();
+
+        boolean showTimestamp = config.showTimestamp();
+        String timestampFormat = config.timestampFormat();
+        LayoutKey layoutKey = new LayoutKey("custom", widgetWidth, fontSize, wrapText, showTimestamp, timestampFormat,
+                textColor, null, false, null, false);
+        Object layoutEvent = ChatEvents.beginLayout();
+        List<RenderLine> renderableLines = new ArrayList<>();
+        for (WidgetMessage msg : messages) {
+            int alpha = ChatRenderUtils.calculateAlpha(msg, currentTime, fadeOutMs);
+            if (alpha <= 0) {
+                continue;
+            }
+            List<RenderLine> lines = layoutCache.get(msg, layoutKey, m -> m.isPrivate()
+                    ? ChatRenderUtils.buildPrivateMessageLines(m, metrics, widgetWidth, currentTime, 0, wrapText,
+                            textColor, fontSize, modIcons, showTimestamp, timestampFormat, MAX_MESSAGE_LENGTH)
+                    : ChatRenderUtils.buildChannelMessageLines(m, metrics, widgetWidth, wrapText, textColor,
+                            fontSize, modIcons, showTimestamp, timestampFormat, MAX_MESSAGE_LENGTH));
+            for (RenderLine line : lines) {
+                renderableLines.add(alpha == line.alpha ? line : new RenderLine(line.segments, alpha));
+            }
+        }
+        ChatEvents.endLayout(layoutEvent, getName(), messages.size(), renderableLines.size(), widgetWidth);
+        if (renderableLines.isEmpty()) {
+            return null;
+        }
+
+        Color bgColor = definition.getBackgroundColor();
+        int bgPadding = bgColor.getAlpha() > 0 ? 3 : 0;
+        int widgetHeight = renderableLines.size() * lineHeight + bgPadding * 2;
+        if (bgColor.getAlpha() > 0) {
+            graphics.setColor(bgColor);
+            graphics.fillRect(0, 0, widgetWidth, widgetHeight);
+        }
+
+        Shape originalClip = graphics.getClip();
+        graphics.setClip(0, 0, widgetWidth, widgetHeight + 4);
+
+        Object drawEvent = ChatEvents.beginDraw();
+        int iconsDrawn = 0;
+        int y = widgetHeight - bgPadding - metrics.getDescent();
+        for (int i = renderableLines.size() - 1; i >= 0; i--) {
+            RenderLine line = renderableLines.get(i);
+            int x = bgPadding;
+            for (TextSegment segment : line.segments) {
+                if (segment.iconId >= 0 && modIcons != null && segment.iconId < modIcons.length) {
+                    BufferedImage img = iconCache.get(modIcons, segment.iconId);
+                    iconsDrawn++;
+                    x += ChatRenderUtils.drawIcon(graphics, img, fontSize, metrics, x, y);
+                } else {
+                    Color segmentColor = segment.color != null ? segment.color : textColor;
+                    x += ChatRenderUtils.drawText(graphics, segment.text, segmentColor, line.alpha, x, y,
+                            drawShadow, metrics);
+                }
+            }
+            y -= lineHeight;
+        }
+
+        graphics.setClip(originalClip);
+        frameMetrics.recordLines(renderableLines.size(), renderableLines.size());
+        ChatEvents.endDraw(drawEvent, getName(), renderableLines.size(), iconsDrawn);
+        return new Dimension(widgetWidth, widgetHeight);
+    }
+
+    /**
+     * @return the most recent messages shown by this widget across all of its channels, oldest first.
+     */
+    private List<WidgetMessage> collectMessages(long currentTime, long fadeOutMs) {
+        int maxMessages = definition.getMaxMessages();
+        // fully faded after the fade duration plus the fade animation itself
+        long expiry = fadeOutMs > 0 ? fadeOutMs + 1200 : Long.MAX_VALUE;
+
+        List<List<WidgetMessage>> sources = new ArrayList<>(definition.getChannels().size());
+        for (ChatChannel channel : definition.getChannels()) {
+            MessageStore store = plugin.getChannelStore(channel);
+            if (store == null) {
+                continue;
+            }
+            List<WidgetMessage> source = new ArrayList<>(maxMessages);
+            for (int i = store.size() - 1; i >= 0 && source.size() < maxMessages; i--) {
+                WidgetMessage msg = store.get(i);
+                if (currentTime - msg.getTimestamp() >= expiry) {
+                    break;
+                }
+                if (definition.accepts(channel, msg)) {
+                    source.add(msg);
+                }
+            }
+            Collections.reverse(source);
+            sources.add(source);
+        }
+
+        List<WidgetMessage> merged = mergedView.merge(sources);
+        return merged.subList(Math.max(0, merged.size() - maxMessages), merged.size());
+    }
+}
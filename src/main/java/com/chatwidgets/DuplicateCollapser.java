@@ -0,0 +1,147 @@
+package com.chatwidgets;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the earlier copy of a game message so duplicates can be collapsed into one message with a count. Messages
+ * are matched on their text with tags removed, or in template mode on a template of that text where numbers and
+ * quoted text are replaced by placeholders, so "Your amulet has 12 charges" stacks with "Your amulet has 11
+ * charges".
+ * <p>
+ * Attached to the store as a {@link MessageJournal} to keep a map from each key to the newest message with that
+ * key, so a lookup doesn't need to scan the store. Keys are dropped as their messages are evicted from the store.
+ */
+public class DuplicateCollapser implements MessageJournal {
+    private final MessageStore store;
+    private final Map<String, Long> latestByKey = new HashMap<>();
+    private boolean templates;
+
+    public DuplicateCollapser(MessageStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Switches between exact and template matching, rebuilding the keys from the store if it changes.
+     */
+    public synchronized void setTemplates(boolean templates) {
+        if (this.templates != templates) {
+            this.templates = templates;
+            rebuild();
+        }
+    }
+
+    /**
+     * Recomputes the keys of the messages currently in the store.
+     */
+    public synchronized void rebuild() {
+        latestByKey.clear();
+        for (int i = 0, size = store.size(); i < size; i++) {
+            WidgetMessage msg = store.get(i);
+            latestByKey.put(key(msg.getMessage(), templates), msg.getSequence());
+        }
+    }
+
+    /**
+     * @return the index for {@link MessageStore#get(int)} of the newest message matching the given text, or -1 if
+     * there is none.
+     */
+    public synchronized int find(String message) {
+        String key = key(message, templates);
+        Long sequence = latestByKey.get(key);
+        if (sequence == null) {
+            return -1;
+        }
+        int index = store.indexOfRecent(sequence);
+        if (index < 0) {
+            // evicted from the store since it was added
+            latestByKey.remove(key);
+        }
+        return index;
+    }
+
+    @Override
+    public synchronized void appended(WidgetMessage msg) {
+        latestByKey.put(key(msg.getMessage(), templates), msg.getSequence());
+    }
+
+    @Override
+    public synchronized void replaced(WidgetMessage previous, WidgetMessage replacement) {
+        latestByKey.remove(key(previous.getMessage(), templates), previous.getSequence());
+        latestByKey.put(key(replacement.getMessage(), templates), replacement.getSequence());
+    }
+
+    @Override
+    public synchronized void removed(WidgetMessage msg) {
+        latestByKey.remove(key(msg.getMessage(), templates), msg.getSequence());
+    }
+
+    @Override
+    public synchronized void evicted(WidgetMessage msg) {
+        latestByKey.remove(key(msg.getMessage(), templates), msg.getSequence());
+    }
+
+    @Override
+    public synchronized void cleared() {
+        latestByKey.clear();
+    }
+
+    /**
+     * @return estimated bytes held by the keys. There is at most one key per recent message in the store.
+     */
+    public synchronized long estimateBytes() {
+        long bytes = 48 + 4L * latestByKey.size();
+        for (String key : latestByKey.keySet()) {
+            // map entry, key string and boxed sequence
+            bytes += 32 + 40 + key.length() + 16;
+        }
+        return bytes;
+    }
+
+    /**
+     * Removes tags and, in template mode, replaces every number with {@code #} and every double quoted string with
+     * {@code ""} in a single pass.
+     */
+    static String key(String message, boolean templates) {
+        if (message == null) {
+            return "";
+        }
+        int length = message.length();
+        StringBuilder key = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            if (c == '<') {
+                int close = message.indexOf('>', i);
+                if (close >= 0) {
+                    i = close;
+                    continue;
+                }
+            }
+            if (templates && c >= '0' && c <= '9') {
+                // digits with thousands separators and decimal points are one number
+                while (i + 1 < length && isNumberChar(message, i + 1)) {
+                    i++;
+                }
+                key.append('#');
+            } else if (templates && c == '"') {
+                int close = message.indexOf('"', i + 1);
+                if (close >= 0) {
+                    i = close;
+                }
+                key.append("\"\"");
+            } else {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isNumberChar(String message, int index) {
+        char c = message.charAt(index);
+        if (c >= '0' && c <= '9') {
+            return true;
+        }
+        return (c == ',' || c == '.') && index + 1 < message.length()
+                && message.charAt(index + 1) >= '0' && message.charAt(index + 1) <= '9';
+    }
+}
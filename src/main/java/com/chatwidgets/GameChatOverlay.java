@@ -4,8 +4,6 @@ import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
 import net.runelite.api.IndexedSprite;
 import net.runelite.api.MenuAction;
-import net.runelite.api.Point;
-import net.runelite.api.Player;
 import net.runelite.client.config.ChatColorConfig;
 import net.runelite.client.ui.overlay.Overlay;
 import net.runelite.client.ui.overlay.OverlayLayer;
@@ -13,16 +11,17 @@ import net.runelite.client.ui.overlay.OverlayMenuEntry;
 import net.runelite.client.ui.overlay.OverlayPosition;
 
 import javax.inject.Inject;
+import java.awt.AlphaComposite;
 import java.awt.Color;
+import java.awt.Composite;
 import java.awt.Dimension;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,27 +35,29 @@ public class GameChatOverlay extends Overlay {
     private static final Pattern BR_TAG_PATTERN = Pattern.compile("<br>");
     private static final int MAX_MESSAGE_LENGTH = 500;
 
-    private static final int MIN_ZOOM = -22;
-    private static final int MAX_ZOOM = 1400;
-    private static final int BELOW_OFFSET_MIN_ZOOM = 40;
-    private static final int BELOW_OFFSET_MAX_ZOOM = 150;
-    private static final int ABOVE_OFFSET_MIN_ZOOM = -40;
-    private static final int ABOVE_OFFSET_MAX_ZOOM = -120;
-
     private final ChatWidgetPlugin plugin;
     private final ChatWidgetConfig config;
     private final Client client;
     private final ChatColorConfig chatColorConfig;
+    private final PlayerAnchor playerAnchor;
 
-    private final Map<Integer, BufferedImage> spriteCache = new HashMap<>();
+    private final LayoutCache layoutCache;
+    private final ChatIconCache iconCache;
+    private final WidgetMetrics frameMetrics;
 
     @Inject
     public GameChatOverlay(ChatWidgetPlugin plugin, ChatWidgetConfig config, Client client,
-            ChatColorConfig chatColorConfig) {
+            ChatColorConfig chatColorConfig, PlayerAnchor playerAnchor, LayoutCache layoutCache,
+            ChatIconCache iconCache, PerformanceMetrics performanceMetrics) {
         this.plugin = plugin;
+        this.layoutCache = layoutCache;
+        this.scrollback = new Scrollback(layoutCache);
+        this.frameMetrics = performanceMetrics.widget("Game");
+        this.iconCache = iconCache;
         this.config = config;
         this.client = client;
         this.chatColorConfig = chatColorConfig;
+        this.playerAnchor = playerAnchor;
         setPosition(client.isResized() ? OverlayPosition.ABOVE_CHATBOX_RIGHT : OverlayPosition.BOTTOM_LEFT);
         setLayer(OverlayLayer.UNDER_WIDGETS);
         setPriority(config.swapStackingOrder() ? 9f : 10f);
@@ -66,16 +67,34 @@ public class GameChatOverlay extends Overlay {
         getMenuEntries().add(new OverlayMenuEntry(MenuAction.RUNELITE_OVERLAY, "Clear", "Game chat history"));
     }
 
+    private final Scrollback scrollback;
+    private final MergedMessageView mergedView = new MergedMessageView();
+
     private boolean lastMergedState = false;
+    private boolean lastScrolledState = false;
+    private boolean lastSearchingState = false;
 
     @Override
     public Dimension render(Graphics2D graphics) {
+        frameMetrics.beginFrame();
+        try {
+            return renderWidget(graphics);
+        } finally {
+            frameMetrics.endFrame();
+        }
+    }
+
+    private Dimension renderWidget(Graphics2D graphics) {
         if (!plugin.shouldShowGameOverlay()) {
             return null;
         }
 
-        if (config.showGameMessageWhenHovered() && !plugin.isHoveringGameChatControls()) {
-            return null;
+        float hoverOpacity = 1f;
+        if (config.showGameMessageWhenHovered()) {
+            hoverOpacity = plugin.getChatTabHoverOpacity(System.currentTimeMillis());
+            if (hoverOpacity <= 0f) {
+                return null;
+            }
         }
 
         if (config.swapStackingOrder()) {
@@ -84,23 +103,26 @@ public class GameChatOverlay extends Overlay {
             setPriority(10f);
         }
 
+        WidgetPosition positionMode = config.gamePosition();
+        boolean followPlayer = positionMode != WidgetPosition.DEFAULT;
+        if (followPlayer && !playerAnchor.isVisible()) {
+            return null;
+        }
+
         boolean isMerged = plugin.isWidgetsMerged();
-        if (isMerged != lastMergedState) {
-            lastMergedState = isMerged;
-            getMenuEntries().clear();
-            if (isMerged) {
-                getMenuEntries().add(new OverlayMenuEntry(MenuAction.RUNELITE_OVERLAY, "Clear", "Merged chat history"));
-            } else {
-                getMenuEntries().add(new OverlayMenuEntry(MenuAction.RUNELITE_OVERLAY, "Clear", "Game chat history"));
-            }
+        boolean searching = plugin.isSearching();
+        if (isMerged && scrollback.isActive()) {
+            // scrollback only covers game messages, so it isn't available while private messages are merged in
+            scrollback.reset();
         }
+        boolean scrolled = !searching && !followPlayer && scrollback.isActive();
+        updateMenuEntries(isMerged, scrolled, searching);
 
-        List<WidgetMessage> gameMessages = plugin.getGameMessages();
-        WidgetPosition positionMode = config.gamePosition();
-        boolean followPlayer = positionMode != WidgetPosition.DEFAULT;
-        List<WidgetMessage> privateMessages = isMerged ? plugin.getPrivateMessages() : new ArrayList<>();
+        boolean showLatest = !scrolled && !searching;
+        List<WidgetMessage> gameMessages = showLatest ? plugin.getGameMessages() : new ArrayList<>();
+        List<WidgetMessage> privateMessages = isMerged && showLatest ? plugin.getPrivateMessages() : new ArrayList<>();
 
-        if (gameMessages.isEmpty() && privateMessages.isEmpty()) {
+        if (showLatest && gameMessages.isEmpty() && privateMessages.isEmpty()) {
             return null;
         }
 
@@ -119,31 +141,42 @@ public class GameChatOverlay extends Overlay {
         boolean drawShadow = config.textShadow();
         boolean wrapText = config.wrapText();
         boolean useDynamicHeight = followPlayer || config.gameDynamicHeight();
+        LayoutKey layoutKey = new LayoutKey("game", widgetWidth, fontSize, wrapText, config.showTimestamp(),
+                config.timestampFormat(), gameTextColor, privateTextColor, retainContextualColours,
+                chatColorConfig.transparentExamineHighlight(), config.hideDuplicateCount());
 
+        int totalMaxMessages = config.gameMaxMessages() + (isMerged ? config.privateMaxMessages() : 0);
         List<RenderLine> renderableLines = new ArrayList<>();
-        boolean swapOrder = config.swapStackingOrder();
-
-        if (swapOrder) {
-            addGameMessages(renderableLines, gameMessages, metrics, widgetWidth, currentTime, wrapText,
-                    retainContextualColours, gameTextColor);
-            if (isMerged) {
-                addPrivateMessages(renderableLines, privateMessages, metrics, widgetWidth, currentTime, wrapText,
-                        privateTextColor);
-            }
+        Object layoutEvent = ChatEvents.beginLayout();
+        int messageCount = 0;
+
+        if (searching) {
+            messageCount = addSearchResults(renderableLines, totalMaxMessages, layoutKey, metrics, widgetWidth,
+                    currentTime, wrapText, retainContextualColours, gameTextColor, privateTextColor);
+            useDynamicHeight = false;
+        } else if (scrolled) {
+            renderableLines = scrollback.getVisibleLines(plugin.getChannelStore(ChatChannel.GAME), totalMaxMessages,
+                    layoutKey, plugin::isGameMessageVisible, msg -> buildGameRenderLines(msg, metrics, widgetWidth,
+                            currentTime, 0, wrapText, retainContextualColours, gameTextColor));
+            useDynamicHeight = false;
         } else {
+            List<WidgetMessage> visibleMessages = selectVisible(gameMessages, config.gameMaxMessages(),
+                    config.gameFadeOutDuration(), currentTime);
             if (isMerged) {
-                addPrivateMessages(renderableLines, privateMessages, metrics, widgetWidth, currentTime, wrapText,
-                        privateTextColor);
+                List<WidgetMessage> visiblePrivate = selectVisible(privateMessages, config.privateMaxMessages(),
+                        config.privateFadeOutDuration(), currentTime);
+                visibleMessages = mergedView.merge(Arrays.asList(visibleMessages, visiblePrivate));
             }
-            addGameMessages(renderableLines, gameMessages, metrics, widgetWidth, currentTime, wrapText,
-                    retainContextualColours, gameTextColor);
+            messageCount = visibleMessages.size();
+            addMessages(renderableLines, visibleMessages, layoutKey, metrics, widgetWidth, currentTime, wrapText,
+                    retainContextualColours, gameTextColor, privateTextColor);
         }
 
+        ChatEvents.endLayout(layoutEvent, "Game", messageCount, renderableLines.size(), widgetWidth);
         if (renderableLines.isEmpty()) {
             return null;
         }
 
-        int totalMaxMessages = config.gameMaxMessages() + (isMerged ? config.privateMaxMessages() : 0);
         int widgetHeight;
 
         if (useDynamicHeight) {
@@ -162,21 +195,19 @@ public class GameChatOverlay extends Overlay {
         widgetHeight = contentHeight + marginTop + marginBottom;
 
         if (followPlayer) {
-            Player localPlayer = client.getLocalPlayer();
-            if (localPlayer != null) {
-                Point playerPoint;
-                if (positionMode == WidgetPosition.BELOW_PLAYER) {
-                    playerPoint = localPlayer.getCanvasTextLocation(graphics, "", 0);
-                } else {
-                    playerPoint = localPlayer.getCanvasTextLocation(graphics, "", localPlayer.getLogicalHeight());
-                }
-                if (playerPoint != null) {
-                    int zoomOffset = calculateZoomOffset(positionMode);
-                    int x = playerPoint.getX() - widgetWidth / 2;
-                    int y = playerPoint.getY() + zoomOffset - widgetHeight / 2;
-                    graphics.translate(x - getBounds().x, y - getBounds().y);
-                }
+            long nanoTime = System.nanoTime();
+            int x = playerAnchor.getX(nanoTime) - widgetWidth / 2;
+            int y = playerAnchor.getY(nanoTime) - widgetHeight / 2;
+            if (x + widgetWidth < 0 || y + widgetHeight < 0
+                    || x > client.getCanvasWidth() || y > client.getCanvasHeight()) {
+                return null;
             }
+            graphics.translate(x - getBounds().x, y - getBounds().y);
+        }
+
+        Composite originalComposite = graphics.getComposite();
+        if (hoverOpacity < 1f) {
+            graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, hoverOpacity));
         }
 
         if (bgColor.getAlpha() > 0 && isPositionDefault) {
@@ -190,18 +221,23 @@ public class GameChatOverlay extends Overlay {
         int y = widgetHeight - bgPadding - marginBottom - metrics.getDescent();
         IndexedSprite[] modIcons = client.getModIcons();
 
+        Object drawEvent = ChatEvents.beginDraw();
+        int linesDrawn = 0;
+        int iconsDrawn = 0;
         for (int i = renderableLines.size() - 1; i >= 0; i--) {
             RenderLine line = renderableLines.get(i);
             if (line.alpha <= 0) {
                 continue;
             }
+            linesDrawn++;
 
             int lineWidth = calculateLineWidth(line.segments, metrics);
             int x = followPlayer ? bgPadding + (widgetWidth - bgPadding * 2 - lineWidth) / 2 : bgPadding;
 
             for (TextSegment segment : line.segments) {
                 if (segment.iconId >= 0 && modIcons != null && segment.iconId < modIcons.length) {
-                    BufferedImage img = ChatRenderUtils.getCachedSprite(modIcons, segment.iconId, spriteCache);
+                    BufferedImage img = iconCache.get(modIcons, segment.iconId);
+                    iconsDrawn++;
                     x += ChatRenderUtils.drawIcon(graphics, img, fontSize, metrics, x, y);
                 } else {
                     Color segmentColor = segment.color != null ? segment.color : gameTextColor;
@@ -213,6 +249,9 @@ public class GameChatOverlay extends Overlay {
         }
 
         graphics.setClip(originalClip);
+        graphics.setComposite(originalComposite);
+        frameMetrics.recordLines(renderableLines.size(), linesDrawn);
+        ChatEvents.endDraw(drawEvent, "Game", linesDrawn, iconsDrawn);
 
         if (followPlayer) {
             return null;
@@ -220,21 +259,26 @@ public class GameChatOverlay extends Overlay {
         return new Dimension(widgetWidth, widgetHeight);
     }
 
-    private int calculateZoomOffset(WidgetPosition positionMode) {
-        int zoom = client.get3dZoom();
-        double normalizedZoom = (double) (zoom - MIN_ZOOM) / (MAX_ZOOM - MIN_ZOOM);
-        normalizedZoom = Math.max(0, Math.min(1, normalizedZoom));
+    public Scrollback getScrollback() {
+        return scrollback;
+    }
 
-        int minOffset, maxOffset;
-        if (positionMode == WidgetPosition.BELOW_PLAYER) {
-            minOffset = BELOW_OFFSET_MIN_ZOOM;
-            maxOffset = BELOW_OFFSET_MAX_ZOOM;
-        } else {
-            minOffset = ABOVE_OFFSET_MIN_ZOOM;
-            maxOffset = ABOVE_OFFSET_MAX_ZOOM;
+    private void updateMenuEntries(boolean isMerged, boolean scrolled, boolean searching) {
+        if (isMerged == lastMergedState && scrolled == lastScrolledState && searching == lastSearchingState) {
+            return;
         }
-
-        return (int) (minOffset + normalizedZoom * (maxOffset - minOffset));
+        lastMergedState = isMerged;
+        lastScrolledState = scrolled;
+        lastSearchingState = searching;
+        getMenuEntries().clear();
+        String target = isMerged ? "Merged chat history" : "Game chat history";
+        if (searching) {
+            getMenuEntries().add(new OverlayMenuEntry(MenuAction.RUNELITE_OVERLAY, "Clear search", target));
+        }
+        if (scrolled) {
+            getMenuEntries().add(new OverlayMenuEntry(MenuAction.RUNELITE_OVERLAY, "Jump to latest", target));
+        }
+        getMenuEntries().add(new OverlayMenuEntry(MenuAction.RUNELITE_OVERLAY, "Clear", target));
     }
 
     private int calculateLineWidth(List<TextSegment> segments, FontMetrics metrics) {
@@ -320,68 +364,82 @@ public class GameChatOverlay extends Overlay {
         return lines;
     }
 
-    private void addGameMessages(List<RenderLine> renderableLines, List<WidgetMessage> gameMessages,
-            FontMetrics metrics, int widgetWidth, long currentTime, boolean wrapText,
-            boolean retainContextualColours, Color gameTextColor) {
-        if (gameMessages.isEmpty()) {
-            return;
+    /**
+     * @return the most recent messages which have not faded out, oldest first.
+     */
+    private static List<WidgetMessage> selectVisible(List<WidgetMessage> messages, int maxMessages,
+            int fadeOutDuration, long currentTime) {
+        long fadeOutThreshold = fadeOutDuration * 1000L + 5000;
+        int start = Math.max(0, messages.size() - maxMessages);
+        int end = messages.size();
+        while (start < end && fadeOutDuration != 0
+                && currentTime - messages.get(start).getTimestamp() >= fadeOutThreshold) {
+            start++;
         }
+        return messages.subList(start, end);
+    }
 
-        int gameFadeOutDuration = config.gameFadeOutDuration();
-        long gameFadeOutMs = gameFadeOutDuration * 1000L;
-        long gameFadeOutThreshold = gameFadeOutMs + 5000;
-        int gameMaxMessages = config.gameMaxMessages();
-
-        int gameMessageCount = gameMessages.size();
-        int gameStartIndex = Math.max(0, gameMessageCount - gameMaxMessages);
-
-        for (int i = gameStartIndex; i < gameMessageCount; i++) {
-            WidgetMessage msg = gameMessages.get(i);
-            if (gameFadeOutDuration == 0 || (currentTime - msg.getTimestamp()) < gameFadeOutThreshold) {
-                List<RenderLine> msgLines = buildGameRenderLines(msg, metrics, widgetWidth, currentTime,
-                        gameFadeOutMs, wrapText, retainContextualColours, gameTextColor);
-
-                for (RenderLine msgLine : msgLines) {
-                    if (msgLine.alpha > 0) {
-                        renderableLines.add(msgLine);
-                    }
-                }
+    private void addMessages(List<RenderLine> renderableLines, List<WidgetMessage> messages, LayoutKey layoutKey,
+            FontMetrics metrics, int widgetWidth, long currentTime, boolean wrapText,
+            boolean retainContextualColours, Color gameTextColor, Color privateTextColor) {
+        long gameFadeOutMs = config.gameFadeOutDuration() * 1000L;
+        long privateFadeOutMs = config.privateFadeOutDuration() * 1000L;
+
+        for (WidgetMessage msg : messages) {
+            int alpha = ChatRenderUtils.calculateAlpha(msg, currentTime,
+                    msg.isPrivate() ? privateFadeOutMs : gameFadeOutMs);
+            if (alpha <= 0) {
+                continue;
+            }
+            List<RenderLine> msgLines = getLines(msg, layoutKey, metrics, widgetWidth, currentTime, wrapText,
+                    retainContextualColours, gameTextColor, privateTextColor);
+            for (RenderLine msgLine : msgLines) {
+                renderableLines.add(alpha == msgLine.alpha ? msgLine : new RenderLine(msgLine.segments, alpha));
             }
         }
     }
 
-    private void addPrivateMessages(List<RenderLine> renderableLines, List<WidgetMessage> privateMessages,
-            FontMetrics metrics, int widgetWidth, long currentTime, boolean wrapText, Color privateTextColor) {
-        if (privateMessages.isEmpty()) {
-            return;
-        }
-
-        int privateFadeOutDuration = config.privateFadeOutDuration();
-        long privateFadeOutMs = privateFadeOutDuration * 1000L;
-        long privateFadeOutThreshold = privateFadeOutMs + 5000;
-        int privateMaxMessages = config.privateMaxMessages();
+    /**
+     * @return the cached, fully opaque lines for a message.
+     */
+    private List<RenderLine> getLines(WidgetMessage msg, LayoutKey layoutKey, FontMetrics metrics, int widgetWidth,
+            long currentTime, boolean wrapText, boolean retainContextualColours, Color gameTextColor,
+            Color privateTextColor) {
+        return layoutCache.get(msg, layoutKey, m -> m.isPrivate()
+                ? ChatRenderUtils.buildPrivateMessageLines(m, metrics, widgetWidth, currentTime, 0, wrapText,
+                        privateTextColor, config.fontSize(), client.getModIcons(), config.showTimestamp(),
+                        config.timestampFormat(), MAX_MESSAGE_LENGTH)
+                : buildGameRenderLines(m, metrics, widgetWidth, currentTime, 0, wrapText, retainContextualColours,
+                        gameTextColor));
+    }
 
-        int privateMessageCount = privateMessages.size();
-        int privateStartIndex = Math.max(0, privateMessageCount - privateMaxMessages);
+    /**
+     * Adds a header line for the current search followed by the lines of the most recent matches, without fading.
+     *
+     * @return the number of matches laid out.
+     */
+    private int addSearchResults(List<RenderLine> renderableLines, int maxLines, LayoutKey layoutKey,
+            FontMetrics metrics, int widgetWidth, long currentTime, boolean wrapText,
+            boolean retainContextualColours, Color gameTextColor, Color privateTextColor) {
+        List<WidgetMessage> results = plugin.getSearchResults(maxLines);
+        List<RenderLine> resultLines = new ArrayList<>();
+        for (WidgetMessage msg : results) {
+            resultLines.addAll(getLines(msg, layoutKey, metrics, widgetWidth, currentTime, wrapText,
+                    retainContextualColours, gameTextColor, privateTextColor));
+        }
 
-        for (int i = privateStartIndex; i < privateMessageCount; i++) {
-            WidgetMessage msg = privateMessages.get(i);
-            if (privateFadeOutDuration == 0 || (currentTime - msg.getTimestamp()) < privateFadeOutThreshold) {
-                List<RenderLine> msgLines = ChatRenderUtils.buildPrivateMessageLines(msg, metrics, widgetWidth,
-                        currentTime, privateFadeOutMs,
-                        wrapText, privateTextColor, config.fontSize(), client.getModIcons(), config.showTimestamp(),
-                        config.timestampFormat(), MAX_MESSAGE_LENGTH);
+        String header = "Search: " + plugin.getSearchQuery().getText()
+                + (results.isEmpty() ? " (no matches)" : "");
+        List<TextSegment> headerSegments = new ArrayList<>(1);
+        headerSegments.add(new TextSegment(header, -1, metrics.stringWidth(header), gameTextColor.darker()));
+        renderableLines.add(new RenderLine(headerSegments, 255));
 
-                for (RenderLine msgLine : msgLines) {
-                    if (msgLine.alpha > 0) {
-                        renderableLines.add(msgLine);
-                    }
-                }
-            }
-        }
+        int from = Math.max(0, resultLines.size() - (maxLines - 1));
+        renderableLines.addAll(resultLines.subList(from, resultLines.size()));
+        return results.size();
     }
 
-    private List<TextSegment> parseTextWithColoursAndIcons(String text, FontMetrics metrics,
+    List<TextSegment> parseTextWithColoursAndIcons(String text, FontMetrics metrics,
             IndexedSprite[] modIcons, boolean retainContextualColours, Color textColor) {
         List<TextSegment> segments = new ArrayList<>();
         if (text == null || text.isEmpty()) {
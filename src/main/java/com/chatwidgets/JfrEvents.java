@@ -0,0 +1,142 @@
+package com.chatwidgets;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import net.runelite.api.ChatMessageType;
+
+/**
+ * The JFR side of {@link ChatEvents}. Only loaded once JFR is known to be available.
+ */
+final class JfrEvents {
+    private static final EventType INGEST = EventType.getEventType(IngestEvent.class);
+    private static final EventType LAYOUT = EventType.getEventType(LayoutEvent.class);
+    private static final EventType DRAW = EventType.getEventType(DrawEvent.class);
+
+    private JfrEvents() {
+    }
+
+    static Object beginIngest() {
+        if (!INGEST.isEnabled()) {
+            return null;
+        }
+        IngestEvent event = new IngestEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endIngest(Object token, ChatMessageType type, String message, boolean collapsed, boolean merged) {
+        IngestEvent event = (IngestEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.type = type != null ? type.name() : null;
+            event.length = message != null ? message.length() : 0;
+            event.collapsed = collapsed;
+            event.merged = merged;
+            event.commit();
+        }
+    }
+
+    static Object beginLayout() {
+        if (!LAYOUT.isEnabled()) {
+            return null;
+        }
+        LayoutEvent event = new LayoutEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endLayout(Object token, String widget, int messages, int lines, int wrapWidth) {
+        LayoutEvent event = (LayoutEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.widget = widget;
+            event.messages = messages;
+            event.lines = lines;
+            event.wrapWidth = wrapWidth;
+            event.commit();
+        }
+    }
+
+    static Object beginDraw() {
+        if (!DRAW.isEnabled()) {
+            return null;
+        }
+        DrawEvent event = new DrawEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endDraw(Object token, String widget, int lines, int icons) {
+        DrawEvent event = (DrawEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.widget = widget;
+            event.lines = lines;
+            event.icons = icons;
+            event.commit();
+        }
+    }
+
+    @Name("com.chatwidgets.Ingest")
+    @Label("Chat Message Ingest")
+    @Description("A chat message taken into the plugin's history")
+    @Category("Chat Widgets")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class IngestEvent extends Event {
+        @Label("Message Type")
+        String type;
+
+        @Label("Length")
+        int length;
+
+        @Label("Collapsed")
+        boolean collapsed;
+
+        @Label("Merged")
+        boolean merged;
+    }
+
+    @Name("com.chatwidgets.Layout")
+    @Label("Chat Widget Layout")
+    @Description("Parsing and wrapping the messages shown by a widget")
+    @Category("Chat Widgets")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class LayoutEvent extends Event {
+        @Label("Widget")
+        String widget;
+
+        @Label("Messages")
+        int messages;
+
+        @Label("Lines")
+        int lines;
+
+        @Label("Wrap Width")
+        int wrapWidth;
+    }
+
+    @Name("com.chatwidgets.Draw")
+    @Label("Chat Widget Draw")
+    @Description("Drawing the laid out lines of a widget")
+    @Category("Chat Widgets")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class DrawEvent extends Event {
+        @Label("Widget")
+        String widget;
+
+        @Label("Lines")
+        int lines;
+
+        @Label("Icons")
+        int icons;
+    }
+}
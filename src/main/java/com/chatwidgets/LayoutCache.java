@@ -0,0 +1,121 @@
+package com.chatwidgets;
+
+import javax.inject.Singleton;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Laid out lines per message, shared by chat overlays. Entries are keyed by message sequence number and a
+ * {@link LayoutKey} covering width and style, so overlays with the same layout share the parse and wrap of a
+ * message. Lines are cached fully opaque; fading is applied when they are drawn.
+ */
+@Singleton
+public class LayoutCache {
+    private static final int MAX_ENTRIES = 1024;
+
+    private final Map<Key, List<RenderLine>> layouts = new LinkedHashMap<Key, List<RenderLine>>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, List<RenderLine>> eldest) {
+            if (size() > MAX_ENTRIES) {
+                estimatedBytes -= estimateBytes(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long estimatedBytes;
+
+    public synchronized List<RenderLine> get(WidgetMessage msg, LayoutKey layoutKey,
+            Function<WidgetMessage, List<RenderLine>> layout) {
+        Key key = new Key(msg.getSequence(), layoutKey);
+        List<RenderLine> lines = layouts.get(key);
+        if (lines == null) {
+            misses.increment();
+            lines = layout.apply(msg);
+            estimatedBytes += estimateBytes(lines);
+            layouts.put(key, lines);
+        } else {
+            hits.increment();
+        }
+        return lines;
+    }
+
+    /**
+     * Drops every layout, for when something a layout depends on changes without changing its key.
+     */
+    public synchronized void clear() {
+        layouts.clear();
+        estimatedBytes = 0;
+    }
+
+    /**
+     * Drops the least recently used layouts until the cache holds at most {@code maxBytes}.
+     */
+    public synchronized void trimToBytes(long maxBytes) {
+        Iterator<List<RenderLine>> it = layouts.values().iterator();
+        while (estimatedBytes > maxBytes && it.hasNext()) {
+            estimatedBytes -= estimateBytes(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * @return estimated bytes held by the cached lines.
+     */
+    public synchronized long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return layouts.size();
+    }
+
+    private static long estimateBytes(List<RenderLine> lines) {
+        long bytes = 96;
+        for (RenderLine line : lines) {
+            bytes += 64;
+            for (TextSegment segment : line.segments) {
+                bytes += 32 + (segment.text != null ? 40 + segment.text.length() : 0);
+            }
+        }
+        return bytes;
+    }
+
+    private static final class Key {
+        private final long sequence;
+        private final LayoutKey layoutKey;
+
+        private Key(long sequence, LayoutKey layoutKey) {
+            this.sequence = sequence;
+            this.layoutKey = layoutKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return sequence == other.sequence && layoutKey.equals(other.layoutKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(sequence) * 31 + layoutKey.hashCode();
+        }
+    }
+}
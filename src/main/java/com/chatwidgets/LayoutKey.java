@@ -0,0 +1,85 @@
+package com.chatwidgets;
+
+import java.awt.Color;
+import java.util.Objects;
+
+/**
+ * Everything a message's laid out lines depend on besides the message itself, used to key cached layouts. Settings
+ * a layout doesn't use are left null or false, so layouts which differ only in those still share.
+ */
+public final class LayoutKey {
+    private final String layout;
+    private final int width;
+    private final FontSize fontSize;
+    private final boolean wrapText;
+    private final boolean showTimestamp;
+    private final String timestampFormat;
+    private final Color textColor;
+    private final Color privateTextColor;
+    private final boolean retainContextualColours;
+    private final Color highlightColor;
+    private final boolean hideDuplicateCount;
+    private final int hash;
+
+    /**
+     * @param layout names the code laying out the lines, so overlays which lay out the same message differently
+     *               never share lines.
+     */
+    public LayoutKey(String layout, int width, FontSize fontSize, boolean wrapText, boolean showTimestamp,
+            String timestampFormat, Color textColor, Color privateTextColor, boolean retainContextualColours,
+            Color highlightColor, boolean hideDuplicateCount) {
+        this.layout = layout;
+        this.width = width;
+        this.fontSize = fontSize;
+        this.wrapText = wrapText;
+        this.showTimestamp = showTimestamp;
+        this.timestampFormat = timestampFormat;
+        this.textColor = textColor;
+        this.privateTextColor = privateTextColor;
+        this.retainContextualColours = retainContextualColours;
+        this.highlightColor = highlightColor;
+        this.hideDuplicateCount = hideDuplicateCount;
+
+        // computed once, since the caches hash a key for every message drawn
+        int h = Objects.hashCode(layout);
+        h = h * 31 + width;
+        h = h * 31 + Objects.hashCode(fontSize);
+        h = h * 31 + (wrapText ? 1 : 0);
+        h = h * 31 + (showTimestamp ? 1 : 0);
+        h = h * 31 + Objects.hashCode(timestampFormat);
+        h = h * 31 + Objects.hashCode(textColor);
+        h = h * 31 + Objects.hashCode(privateTextColor);
+        h = h * 31 + (retainContextualColours ? 1 : 0);
+        h = h * 31 + Objects.hashCode(highlightColor);
+        h = h * 31 + (hideDuplicateCount ? 1 : 0);
+        this.hash = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LayoutKey)) {
+            return false;
+        }
+        LayoutKey other = (LayoutKey) o;
+        return hash == other.hash
+                && width == other.width
+                && wrapText == other.wrapText
+                && showTimestamp == other.showTimestamp
+                && retainContextualColours == other.retainContextualColours
+                && hideDuplicateCount == other.hideDuplicateCount
+                && fontSize == other.fontSize
+                && Objects.equals(layout, other.layout)
+                && Objects.equals(timestampFormat, other.timestampFormat)
+                && Objects.equals(textColor, other.textColor)
+                && Objects.equals(privateTextColor, other.privateTextColor)
+                && Objects.equals(highlightColor, other.highlightColor);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,169 @@
+package com.chatwidgets;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the estimated memory held by the plugin's history and caches under one budget. When over it, frees the
+ * cheapest memory to rebuild first: icon and overhead bubble images, then laid out lines (including scrollback's,
+ * which share the layout cache), then the oldest deep history. Recent history, and the retention buffers and
+ * duplicate keys which follow it, are counted but never evicted here, since they follow the history size settings.
+ * The search index shrinks along with the deep history it covers.
+ */
+@Singleton
+public class MemoryBudget {
+    private static final long CHECK_INTERVAL_MS = 5000;
+
+    private final ChatWidgetPlugin plugin;
+    private final LayoutCache layoutCache;
+    private final ChatIconCache iconCache;
+
+    private volatile long budgetBytes = Long.MAX_VALUE;
+    private long lastCheck;
+
+    // usage as of the last check
+    private volatile long iconBytes;
+    private volatile long bubbleBytes;
+    private volatile long layoutBytes;
+    private volatile long historyBytes;
+    private volatile long searchIndexBytes;
+    private volatile long retainedBytes;
+
+    @Inject
+    public MemoryBudget(ChatWidgetPlugin plugin, LayoutCache layoutCache, ChatIconCache iconCache) {
+        this.plugin = plugin;
+        this.layoutCache = layoutCache;
+        this.iconCache = iconCache;
+    }
+
+    public void setBudget(long bytes) {
+        budgetBytes = bytes;
+        lastCheck = 0;
+    }
+
+    public long getBudget() {
+        return budgetBytes;
+    }
+
+    /**
+     * Enforces the budget if it hasn't been checked recently. Must be called on the client thread, which is the
+     * only thread adding to the history.
+     */
+    public void check(long currentTime) {
+        if (currentTime - lastCheck < CHECK_INTERVAL_MS) {
+            return;
+        }
+        lastCheck = currentTime;
+        enforce();
+    }
+
+    /**
+     * Measures usage and evicts towards the budget.
+     */
+    public void enforce() {
+        long icons = iconCache.estimateBytes();
+        long bubbles = plugin.estimateBubbleBytes();
+        long layouts = layoutCache.getEstimatedBytes();
+        long history = plugin.estimateHistoryBytes();
+        long retained = plugin.estimateRetainedBytes();
+        long searchIndex = plugin.estimateSearchIndexBytes();
+        List<MessageStore> archived = archivedStores();
+        long coldBytes = 0;
+        for (MessageStore store : archived) {
+            coldBytes += store.getArchive().getEstimatedBytes();
+        }
+
+        // only what's left after the memory that can't be evicted here is shared by the caches and deep history
+        long available = budgetBytes - (history - coldBytes) - retained;
+        long over = icons + bubbles + layouts + coldBytes + searchIndex - Math.max(0, available);
+        // if recent history alone fills the budget, clearing the images and layouts can't get under it and they
+        // would be redrawn straight away, so only deep history is kept from growing
+        boolean reachable = available > 0;
+
+        if (over > 0 && reachable && icons + bubbles > 0) {
+            iconCache.clear();
+            plugin.clearBubbles();
+            over -= icons + bubbles;
+            icons = 0;
+            bubbles = 0;
+        }
+
+        if (over > 0 && reachable && layouts > 0) {
+            layoutCache.trimToBytes(Math.max(0, layouts - over));
+            long trimmed = layoutCache.getEstimatedBytes();
+            over -= layouts - trimmed;
+            layouts = trimmed;
+        }
+
+        if (over > 0) {
+            // the search index shrinks with the history it covers, so drop the same share of every archive and
+            // count on the index freeing its share too; anything left over is picked up by the next check
+            double share = Math.min(1, (double) over / Math.max(1, coldBytes + searchIndex));
+            int dropped = 0;
+            for (MessageStore store : archived) {
+                long before = store.estimateBytes();
+                long archiveBytes = store.getArchive().getEstimatedBytes();
+                dropped += store.trimArchiveToBytes((long) (archiveBytes * (1 - share)));
+                history -= before - store.estimateBytes();
+            }
+            if (dropped > 0) {
+                plugin.pruneSearchIndexes();
+                searchIndex = plugin.estimateSearchIndexBytes();
+            }
+        }
+
+        iconBytes = icons;
+        bubbleBytes = bubbles;
+        layoutBytes = layouts;
+        historyBytes = history;
+        searchIndexBytes = searchIndex;
+        retainedBytes = retained;
+    }
+
+    public long getIconBytes() {
+        return iconBytes;
+    }
+
+    public long getBubbleBytes() {
+        return bubbleBytes;
+    }
+
+    public long getLayoutBytes() {
+        return layoutBytes;
+    }
+
+    /**
+     * @return bytes held by the channel stores, including their deep history.
+     */
+    public long getHistoryBytes() {
+        return historyBytes;
+    }
+
+    public long getSearchIndexBytes() {
+        return searchIndexBytes;
+    }
+
+    /**
+     * @return bytes held by the game widget's retention buffers and duplicate keys.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public long getTotalBytes() {
+        return iconBytes + bubbleBytes + layoutBytes + historyBytes + searchIndexBytes + retainedBytes;
+    }
+
+    private List<MessageStore> archivedStores() {
+        List<MessageStore> stores = new ArrayList<>();
+        for (ChatChannel channel : ChatChannel.values()) {
+            MessageStore store = plugin.getChannelStore(channel);
+            if (store != null && store.getArchive() != null) {
+                stores.add(store);
+            }
+        }
+        return stores;
+    }
+}
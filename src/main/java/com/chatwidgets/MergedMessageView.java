@@ -0,0 +1,88 @@
+package com.chatwidgets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Chronological interleaving of several message lists, each already ordered by sequence number, using a k-way merge
+ * rather than sorting the union. The merged list is reused between frames for as long as every source holds the
+ * same messages.
+ */
+public class MergedMessageView {
+    private long[] cachedKey = new long[0];
+    private List<WidgetMessage> cached = Collections.emptyList();
+
+    /**
+     * @param sources lists ordered by sequence number, oldest first.
+     * @return the messages of every source, oldest first.
+     */
+    public List<WidgetMessage> merge(List<List<WidgetMessage>> sources) {
+        long[] key = keyOf(sources);
+        if (Arrays.equals(key, cachedKey)) {
+            return cached;
+        }
+
+        int total = 0;
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(Math.max(1, sources.size()));
+        for (List<WidgetMessage> source : sources) {
+            total += source.size();
+            if (!source.isEmpty()) {
+                cursors.add(new Cursor(source));
+            }
+        }
+
+        List<WidgetMessage> merged = new ArrayList<>(total);
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            merged.add(cursor.current());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+
+        cachedKey = key;
+        cached = Collections.unmodifiableList(merged);
+        return cached;
+    }
+
+    /**
+     * Sources are windows over histories ordered by sequence number, so the size and the first and last sequence
+     * numbers identify their contents.
+     */
+    private static long[] keyOf(List<List<WidgetMessage>> sources) {
+        long[] key = new long[sources.size() * 3];
+        for (int i = 0; i < sources.size(); i++) {
+            List<WidgetMessage> source = sources.get(i);
+            int size = source.size();
+            key[i * 3] = size;
+            key[i * 3 + 1] = size == 0 ? -1 : source.get(0).getSequence();
+            key[i * 3 + 2] = size == 0 ? -1 : source.get(size - 1).getSequence();
+        }
+        return key;
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final List<WidgetMessage> source;
+        private int index;
+
+        private Cursor(List<WidgetMessage> source) {
+            this.source = source;
+        }
+
+        private WidgetMessage current() {
+            return source.get(index);
+        }
+
+        private boolean advance() {
+            return ++index < source.size();
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return Long.compare(current().getSequence(), other.current().getSequence());
+        }
+    }
+}
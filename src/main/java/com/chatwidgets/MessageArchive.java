@@ -0,0 +1,316 @@
+package com.chatwidgets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold tier of a {@link MessageStore}. Messages evicted from the store are staged until a block is full, then
+ * encoded with {@link MessageCodec} and deflated with a preset dictionary of common chat phrases. Blocks are only
+ * inflated when a message in them is read, and a few recently read blocks are kept decoded.
+ * <p>
+ * Whole blocks are dropped once the archive holds more than its capacity, so it may exceed the capacity by less
+ * than one block. The native zlib streams are created when first needed and released by {@link #close()}.
+ */
+public class MessageArchive {
+    static final int BLOCK_SIZE = 256;
+    private static final int DECODED_BLOCK_CACHE_SIZE = 4;
+
+    private static final byte[] DICTIONARY = String.join("",
+            "GAMEMESSAGE", "SPAM", "PRIVATECHAT", "PRIVATECHATOUT", "LOGINLOGOUTNOTIFICATION", "BROADCAST",
+            "<col=ff0000>", "<col=ef1020>", "</col>", "<img=", "<br>",
+            "Your ", " kill count is: ", "Fight duration: ", "Personal best: ", "(new personal best)",
+            "Valuable drop: ", "New item added to your collection log: ", "You have completed ",
+            "You eat the ", "It heals some health.", "You drink some of your ", "You have ", " doses of potion left.",
+            "You catch a ", "You get some ", "You successfully ", "You need ", "Nothing interesting happens.",
+            " has logged in.", " has logged out.", "You can't ", "The ", " coins")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final List<Block> blocks = new ArrayList<>();
+    private final List<WidgetMessage> staging = new ArrayList<>(BLOCK_SIZE);
+    private final Map<Block, List<WidgetMessage>> decodedBlocks =
+            new LinkedHashMap<Block, List<WidgetMessage>>(DECODED_BLOCK_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Block, List<WidgetMessage>> eldest) {
+                    if (size() > DECODED_BLOCK_CACHE_SIZE) {
+                        decodedBytes -= eldest.getKey().rawSize;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private Deflater deflater;
+    private Inflater inflater;
+
+    private int capacity;
+    private long compressedBytes;
+    private long stagingBytes;
+    private long decodedBytes;
+
+    public MessageArchive(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        if (capacity <= 0) {
+            clear();
+            close();
+        } else {
+            trim();
+        }
+    }
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * @return the number of messages dropped from the front of the archive to make room, including the added
+     * message itself when the archive is disabled.
+     */
+    public synchronized int add(WidgetMessage msg) {
+        if (capacity <= 0) {
+            return 1;
+        }
+        staging.add(msg);
+        stagingBytes += msg.estimateBytes();
+        if (staging.size() >= BLOCK_SIZE) {
+            seal();
+        }
+        return trim();
+    }
+
+    public synchronized int size() {
+        return blocks.size() * BLOCK_SIZE + staging.size();
+    }
+
+    /**
+     * @param index 0 for the oldest archived message.
+     */
+    public synchronized WidgetMessage get(int index) {
+        int blockIndex = index / BLOCK_SIZE;
+        if (blockIndex < blocks.size()) {
+            return decode(blocks.get(blockIndex)).get(index % BLOCK_SIZE);
+        }
+        return staging.get(index - blocks.size() * BLOCK_SIZE);
+    }
+
+    /**
+     * Finds an archived message by sequence number, relying on sequence numbers increasing through the archive.
+     * At most one block is decoded.
+     *
+     * @return the index of the message, or -1 if it is not archived.
+     */
+    public synchronized int indexOfSequence(long sequence) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Block block = blocks.get(mid);
+            if (sequence < block.firstSequence) {
+                high = mid - 1;
+            } else if (sequence > block.lastSequence) {
+                low = mid + 1;
+            } else {
+                int index = indexOfSequence(decode(block), sequence);
+                return index < 0 ? -1 : mid * BLOCK_SIZE + index;
+            }
+        }
+        int index = indexOfSequence(staging, sequence);
+        return index < 0 ? -1 : blocks.size() * BLOCK_SIZE + index;
+    }
+
+    static int indexOfSequence(List<WidgetMessage> messages, long sequence) {
+        int low = 0;
+        int high = messages.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midSequence = messages.get(mid).getSequence();
+            if (midSequence < sequence) {
+                low = mid + 1;
+            } else if (midSequence > sequence) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public synchronized void clear() {
+        blocks.clear();
+        staging.clear();
+        decodedBlocks.clear();
+        compressedBytes = 0;
+        stagingBytes = 0;
+        decodedBytes = 0;
+    }
+
+    /**
+     * Releases the native memory held by the zlib streams. The archive stays usable and creates them again when
+     * it next seals or reads a block.
+     */
+    public synchronized void close() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    /**
+     * @return bytes held by compressed blocks.
+     */
+    public synchronized long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * @return estimated bytes held by the archive, including staged and currently decoded messages.
+     */
+    public synchronized long getEstimatedBytes() {
+        return compressedBytes + stagingBytes + decodedBytes;
+    }
+
+    /**
+     * Frees memory by dropping the decoded block cache, then the oldest blocks, until the archive holds at most
+     * {@code maxBytes}. Staged messages are kept.
+     *
+     * @return the number of messages dropped from the front of the archive.
+     */
+    public synchronized int trimToBytes(long maxBytes) {
+        if (getEstimatedBytes() > maxBytes) {
+            decodedBlocks.clear();
+            decodedBytes = 0;
+        }
+        int dropped = 0;
+        while (!blocks.isEmpty() && getEstimatedBytes() > maxBytes) {
+            Block evicted = blocks.remove(0);
+            compressedBytes -= evicted.data.length;
+            dropped += evicted.count;
+        }
+        return dropped;
+    }
+
+    private int trim() {
+        int dropped = 0;
+        while (!blocks.isEmpty() && size() - BLOCK_SIZE >= capacity) {
+            Block evicted = blocks.remove(0);
+            compressedBytes -= evicted.data.length;
+            if (decodedBlocks.remove(evicted) != null) {
+                decodedBytes -= evicted.rawSize;
+            }
+            dropped += evicted.count;
+        }
+        return dropped;
+    }
+
+    private void seal() {
+        try {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(BLOCK_SIZE * 64);
+            DataOutputStream out = new DataOutputStream(raw);
+            for (WidgetMessage msg : staging) {
+                MessageCodec.write(out, msg);
+            }
+            out.flush();
+            byte[] input = raw.toByteArray();
+
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            }
+            deflater.reset();
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 3);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                compressed.write(buffer, 0, n);
+            }
+
+            Block block = new Block(compressed.toByteArray(), input.length, staging.size(),
+                    staging.get(0).getSequence(), staging.get(staging.size() - 1).getSequence());
+            blocks.add(block);
+            compressedBytes += block.data.length;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode chat history block", e);
+        }
+        staging.clear();
+        stagingBytes = 0;
+    }
+
+    private List<WidgetMessage> decode(Block block) {
+        List<WidgetMessage> cached = decodedBlocks.get(block);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            byte[] raw = new byte[block.rawSize];
+            if (inflater == null) {
+                inflater = new Inflater();
+            }
+            inflater.reset();
+            inflater.setInput(block.data);
+            int offset = 0;
+            while (offset < raw.length) {
+                int n = inflater.inflate(raw, offset, raw.length - offset);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                        continue;
+                    }
+                    break;
+                }
+                offset += n;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw, 0, offset));
+            List<WidgetMessage> messages = new ArrayList<>(block.count);
+            for (int i = 0; i < block.count; i++) {
+                messages.add(MessageCodec.read(in));
+            }
+            decodedBlocks.put(block, messages);
+            decodedBytes += block.rawSize;
+            return messages;
+        } catch (IOException | DataFormatException e) {
+            throw new IllegalStateException("Unable to decode chat history block", e);
+        }
+    }
+
+    private static final class Block {
+        private final byte[] data;
+        private final int rawSize;
+        private final int count;
+        private final long firstSequence;
+        private final long lastSequence;
+
+        private Block(byte[] data, int rawSize, int count, long firstSequence, long lastSequence) {
+            this.data = data;
+            this.rawSize = rawSize;
+            this.count = count;
+            this.firstSequence = firstSequence;
+            this.lastSequence = lastSequence;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.chatwidgets;
+
+public enum MessageCategory {
+    BOSS_KC("Your .+ count is:"),
+    PERSONAL_BEST("\\(new personal best\\)|Personal best: "),
+    DROP("(?:Valuable|Untradeable) drop: "),
+    COLLECTION_LOG("New item added to your collection log:"),
+    CLUE_COUNT("You have completed .+ Treasure Trails?");
+
+    private final String pattern;
+
+    MessageCategory(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public boolean isSet(int categories) {
+        return (categories & mask()) != 0;
+    }
+}
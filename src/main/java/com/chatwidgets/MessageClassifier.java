@@ -0,0 +1,53 @@
+package com.chatwidgets;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tags messages with a bitset of {@link MessageCategory} values using a single combined pattern,
+ * so adding a category does not add another scan over every incoming message.
+ */
+public final class MessageClassifier {
+
+    private static final MessageCategory[] CATEGORIES = MessageCategory.values();
+    private static final String[] GROUP_NAMES = new String[CATEGORIES.length];
+    private static final Pattern COMBINED_PATTERN = compileCombinedPattern();
+
+    private MessageClassifier() {
+    }
+
+    /**
+     * @return a bitmask of {@link MessageCategory#mask()} values matched anywhere in the message.
+     */
+    public static int classify(String message) {
+        if (message == null || message.isEmpty()) {
+            return 0;
+        }
+
+        int categories = 0;
+        Matcher matcher = COMBINED_PATTERN.matcher(message);
+        while (matcher.find()) {
+            for (int i = 0; i < CATEGORIES.length; i++) {
+                if (matcher.start(GROUP_NAMES[i]) >= 0) {
+                    categories |= CATEGORIES[i].mask();
+                    break;
+                }
+            }
+        }
+        return categories;
+    }
+
+    private static Pattern compileCombinedPattern() {
+        StringBuilder combined = new StringBuilder();
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (i > 0) {
+                combined.append('|');
+            }
+            GROUP_NAMES[i] = "c" + i;
+            combined.append("(?<").append(GROUP_NAMES[i]).append('>')
+                    .append(CATEGORIES[i].getPattern())
+                    .append(')');
+        }
+        return Pattern.compile(combined.toString());
+    }
+}
@@ -0,0 +1,79 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding of a {@link WidgetMessage}. Types are written by name so stored messages survive changes to the
+ * order of {@link ChatMessageType}.
+ */
+public final class MessageCodec {
+
+    private static final int FLAG_OUTGOING = 1;
+    private static final int FLAG_PRIVATE = 1 << 1;
+    private static final int FLAG_HAS_SENDER = 1 << 2;
+
+    private MessageCodec() {
+    }
+
+    public static void write(DataOutput out, WidgetMessage msg) throws IOException {
+        int flags = (msg.isOutgoing() ? FLAG_OUTGOING : 0)
+                | (msg.isPrivate() ? FLAG_PRIVATE : 0)
+                | (msg.getSender() != null ? FLAG_HAS_SENDER : 0);
+
+        out.writeLong(msg.getSequence());
+        out.writeLong(msg.getTimestamp());
+        out.writeUTF(msg.getType() != null ? msg.getType().name() : "");
+        out.writeInt(msg.getCategories());
+        out.writeByte(flags);
+        out.writeShort(msg.getMaxFadeSeconds());
+        out.writeInt(msg.getCount());
+        if (msg.getSender() != null) {
+            writeString(out, msg.getSender());
+        }
+        writeString(out, msg.getMessage() != null ? msg.getMessage() : "");
+    }
+
+    public static WidgetMessage read(DataInput in) throws IOException {
+        long sequence = in.readLong();
+        long timestamp = in.readLong();
+        ChatMessageType type = parseType(in.readUTF());
+        int categories = in.readInt();
+        int flags = in.readByte();
+        int maxFadeSeconds = in.readShort();
+        int count = in.readInt();
+        String sender = (flags & FLAG_HAS_SENDER) != 0 ? readString(in) : null;
+        String message = readString(in);
+
+        return WidgetMessage.restore(sequence, message, timestamp, type, categories, sender,
+                (flags & FLAG_OUTGOING) != 0, (flags & FLAG_PRIVATE) != 0, maxFadeSeconds, count);
+    }
+
+    private static ChatMessageType parseType(String name) {
+        try {
+            return ChatMessageType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return ChatMessageType.UNKNOWN;
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 1 << 20) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,21 @@
+package com.chatwidgets;
+
+/**
+ * Receives the changes made to a {@link MessageStore} so they can be replayed later.
+ */
+public interface MessageJournal {
+    void appended(WidgetMessage msg);
+
+    void replaced(WidgetMessage previous, WidgetMessage replacement);
+
+    void removed(WidgetMessage msg);
+
+    void cleared();
+
+    /**
+     * Called when a message leaves the front of the store's recent messages, whether it moved to the archive or was
+     * dropped. Journals which replay history can ignore this, as replay is always bounded to the store's capacity.
+     */
+    default void evicted(WidgetMessage msg) {
+    }
+}
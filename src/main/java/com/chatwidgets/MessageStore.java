@@ -0,0 +1,281 @@
+package com.chatwidgets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded history for a single {@link ChatChannel}. Oldest messages are evicted once the capacity is exceeded,
+ * and moved to the store's {@link MessageArchive} if it has one.
+ */
+public class MessageStore {
+    private static final int REMOVAL_LOG_SIZE = 64;
+
+    private final CopyOnWriteArrayList<WidgetMessage> messages = new CopyOnWriteArrayList<>();
+    private volatile int capacity;
+    private volatile MessageArchive archive;
+    private final CopyOnWriteArrayList<MessageJournal> journals = new CopyOnWriteArrayList<>();
+    private volatile long headOffset;
+    private volatile int structureVersion;
+    private final LongAdder evictions = new LongAdder();
+    // history positions of the most recent removals, so readers can follow them without a full rebuild
+    private final long[] removals = new long[REMOVAL_LOG_SIZE];
+    private volatile long removalCount;
+
+    public MessageStore(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+        trimTo(capacity);
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public void setArchive(MessageArchive archive) {
+        this.archive = archive;
+        structureVersion++;
+    }
+
+    /**
+     * Resizes the archive. Positions are not tracked through a resize, so this counts as a structure change.
+     */
+    public void setArchiveCapacity(int capacity) {
+        MessageArchive archive = this.archive;
+        if (archive != null) {
+            archive.setCapacity(capacity);
+            structureVersion++;
+        }
+    }
+
+    public MessageArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * @return the number of messages this store keeps, including its archive.
+     */
+    public int getHistoryCapacity() {
+        MessageArchive archive = this.archive;
+        return capacity + (archive != null ? archive.getCapacity() : 0);
+    }
+
+    /**
+     * Attaches a journal which is told about every change to this store.
+     */
+    public void addJournal(MessageJournal journal) {
+        journals.add(journal);
+    }
+
+    public void removeJournal(MessageJournal journal) {
+        journals.remove(journal);
+    }
+
+    public void add(WidgetMessage msg) {
+        messages.add(msg);
+        for (MessageJournal journal : journals) {
+            journal.appended(msg);
+        }
+        trimTo(capacity);
+    }
+
+    public void set(int index, WidgetMessage msg) {
+        WidgetMessage previous = messages.set(index, msg);
+        for (MessageJournal journal : journals) {
+            journal.replaced(previous, msg);
+        }
+    }
+
+    public void remove(int index) {
+        MessageArchive archive = this.archive;
+        long position = headOffset + (archive != null ? archive.size() : 0) + index;
+        WidgetMessage removed = messages.remove(index);
+        removals[(int) (removalCount % REMOVAL_LOG_SIZE)] = position;
+        removalCount++;
+        for (MessageJournal journal : journals) {
+            journal.removed(removed);
+        }
+    }
+
+    public WidgetMessage get(int index) {
+        return messages.get(index);
+    }
+
+    public WidgetMessage getLast() {
+        int size = messages.size();
+        return size == 0 ? null : messages.get(size - 1);
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    public boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    public void clear() {
+        messages.clear();
+        MessageArchive archive = this.archive;
+        if (archive != null) {
+            archive.clear();
+            archive.close();
+        }
+        structureVersion++;
+        for (MessageJournal journal : journals) {
+            journal.cleared();
+        }
+    }
+
+    public void trimTo(int maxSize) {
+        MessageArchive archive = this.archive;
+        while (messages.size() > Math.max(0, maxSize)) {
+            WidgetMessage evicted = messages.get(0);
+            messages.remove(0);
+            for (MessageJournal journal : journals) {
+                journal.evicted(evicted);
+            }
+            int dropped = archive != null ? archive.add(evicted) : 1;
+            headOffset += dropped;
+            evictions.add(dropped);
+        }
+    }
+
+    /**
+     * Drops the oldest archived messages until the archive holds at most {@code maxBytes}.
+     *
+     * @return the number of messages dropped.
+     */
+    public int trimArchiveToBytes(long maxBytes) {
+        MessageArchive archive = this.archive;
+        if (archive == null) {
+            return 0;
+        }
+        int dropped = archive.trimToBytes(maxBytes);
+        headOffset += dropped;
+        evictions.add(dropped);
+        return dropped;
+    }
+
+    /**
+     * @return the number of messages dropped from the history because it was full or over the memory budget.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Messages keep their position in the history as older messages are dropped: the oldest message in the history
+     * is at position {@code getHeadOffset()} and the newest at {@code getHeadOffset() + historySize() - 1}.
+     *
+     * @return the number of messages dropped from the front of the history since the structure last changed.
+     */
+    public long getHeadOffset() {
+        return headOffset;
+    }
+
+    /**
+     * @return a counter which changes whenever positions in the history are no longer stable, such as when the
+     * history is cleared. Single removals are reported through {@link #getRemovalCount()} instead.
+     */
+    public int getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * @return the number of messages removed from the middle of the history so far. Each removal shifts the
+     * positions after it down by one.
+     */
+    public long getRemovalCount() {
+        return removalCount;
+    }
+
+    /**
+     * @param removal a removal number, below {@link #getRemovalCount()}.
+     * @return the history position the message was removed from, or -1 if the removal is too old to be remembered.
+     */
+    public long getRemovalPosition(long removal) {
+        if (removal < 0 || removalCount - removal > REMOVAL_LOG_SIZE) {
+            return -1;
+        }
+        long position = removals[(int) (removal % REMOVAL_LOG_SIZE)];
+        // the slot may have been reused while it was read
+        return removalCount - removal > REMOVAL_LOG_SIZE ? -1 : position;
+    }
+
+    /**
+     * @return the number of messages held in this store and its archive.
+     */
+    public int historySize() {
+        MessageArchive archive = this.archive;
+        return (archive != null ? archive.size() : 0) + messages.size();
+    }
+
+    /**
+     * Finds a message in the full history by sequence number, relying on sequence numbers increasing through the
+     * history.
+     *
+     * @return the index for {@link #getFromHistory(int)}, or -1 if the message is no longer held.
+     */
+    public int indexOfSequence(long sequence) {
+        MessageArchive archive = this.archive;
+        int archived = archive != null ? archive.size() : 0;
+        if (archive != null) {
+            int index = archive.indexOfSequence(sequence);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        int index = MessageArchive.indexOfSequence(messages, sequence);
+        return index < 0 ? -1 : archived + index;
+    }
+
+    /**
+     * @return the index for {@link #get(int)} of the message with the given sequence number, or -1 if it is not
+     * one of the recent messages.
+     */
+    public int indexOfRecent(long sequence) {
+        return MessageArchive.indexOfSequence(messages, sequence);
+    }
+
+    /**
+     * Reads from the full history, archived messages first.
+     *
+     * @param index 0 for the oldest message in the archive.
+     */
+    public WidgetMessage getFromHistory(int index) {
+        MessageArchive archive = this.archive;
+        int archived = archive != null ? archive.size() : 0;
+        if (index < archived) {
+            return archive.get(index);
+        }
+        return messages.get(index - archived);
+    }
+
+    /**
+     * @return estimated bytes held by this store, including its archive.
+     */
+    public long estimateBytes() {
+        long bytes = 0;
+        for (WidgetMessage msg : messages) {
+            bytes += msg.estimateBytes();
+        }
+        MessageArchive archive = this.archive;
+        if (archive != null) {
+            bytes += archive.getEstimatedBytes();
+        }
+        return bytes;
+    }
+
+    public List<WidgetMessage> snapshot() {
+        return new ArrayList<>(messages);
+    }
+}
@@ -0,0 +1,345 @@
+package com.chatwidgets;
+
+import net.runelite.api.Client;
+import net.runelite.api.IndexedSprite;
+import net.runelite.api.Player;
+import net.runelite.api.Point;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPosition;
+
+import javax.inject.Inject;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Draws recent public messages in bubbles above nearby players. Work per frame is bounded: only players with live
+ * messages are considered, bubbles are drawn nearest first up to a per-frame budget, bubbles outside the viewport
+ * or overlapping a nearer player's bubble are skipped, and each message is rasterized once and reused until the
+ * tracker stops holding it. Bubbles are not hidden by scenery.
+ */
+public class OverheadChatOverlay extends Overlay {
+
+    private static final int LOCAL_TILE_SIZE = 128;
+    private static final int MAX_BUBBLE_TEXT_WIDTH = 200;
+    private static final int BUBBLE_PADDING = 3;
+    private static final int BUBBLE_GAP = 2;
+    private static final int HEAD_OFFSET = 40;
+    private static final int FADE_OUT_MS = 1000;
+    private static final int MAX_CACHED_BUBBLES = 256;
+    private static final int MAX_NEW_BUBBLES_PER_FRAME = 8;
+    private static final int MAX_MESSAGE_LENGTH = 200;
+
+    private final ChatWidgetConfig config;
+    private final Client client;
+    private final OverheadChatTracker tracker;
+
+    private final ChatIconCache iconCache;
+    private final WidgetMetrics frameMetrics;
+    private final Map<WidgetMessage, BufferedImage> bubbleCache =
+            new LinkedHashMap<WidgetMessage, BufferedImage>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<WidgetMessage, BufferedImage> eldest) {
+                    if (size() > MAX_CACHED_BUBBLES) {
+                        bubbleBytes -= estimateBytes(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+    private final List<Candidate> candidates = new ArrayList<>();
+    private final List<Rectangle> drawnBounds = new ArrayList<>();
+    private int bubbleStyle;
+    private int trackerGeneration;
+    private long bubbleBytes;
+
+    @Inject
+    public OverheadChatOverlay(ChatWidgetConfig config, Client client, OverheadChatTracker tracker,
+            ChatIconCache iconCache, PerformanceMetrics performanceMetrics) {
+        this.iconCache = iconCache;
+        this.frameMetrics = performanceMetrics.widget("Overhead");
+        this.config = config;
+        this.client = client;
+        this.tracker = tracker;
+        setPosition(OverlayPosition.DYNAMIC);
+        setLayer(OverlayLayer.ABOVE_SCENE);
+    }
+
+    @Override
+    public Dimension render(Graphics2D graphics) {
+        frameMetrics.beginFrame();
+        try {
+            return renderWidget(graphics);
+        } finally {
+            frameMetrics.endFrame();
+        }
+    }
+
+    private Dimension renderWidget(Graphics2D graphics) {
+        if (!config.overheadChatEnabled() || tracker.isEmpty()) {
+            return null;
+        }
+
+        Player localPlayer = client.getLocalPlayer();
+        LocalPoint localPoint = localPlayer != null ? localPlayer.getLocalLocation() : null;
+        if (localPoint == null) {
+            return null;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        long durationMs = config.overheadDuration() * 1000L;
+        int maxDistance = config.overheadMaxDistance() * LOCAL_TILE_SIZE;
+
+        candidates.clear();
+        for (Player player : client.getTopLevelWorldView().players()) {
+            if (player == null) {
+                continue;
+            }
+            PlayerChatBuffer buffer = tracker.get(player.getName());
+            if (buffer == null || currentTime - buffer.getLatestTimestamp() >= durationMs) {
+                continue;
+            }
+            LocalPoint playerPoint = player.getLocalLocation();
+            if (playerPoint == null) {
+                continue;
+            }
+            int distance = playerPoint.distanceTo(localPoint);
+            if (distance > maxDistance) {
+                continue;
+            }
+            candidates.add(new Candidate(player, buffer, distance));
+        }
+
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        candidates.sort(Comparator.comparingInt(c -> c.distance));
+
+        FontSize fontSize = config.fontSize();
+        FontMetrics metrics = ChatRenderUtils.setupGraphics(graphics, fontSize);
+        Color textColor = config.overheadTextColor();
+        Color bgColor = config.overheadBackgroundColor();
+        boolean drawShadow = config.textShadow();
+        int style = Objects.hash(fontSize, textColor, bgColor, drawShadow);
+        if (style != bubbleStyle) {
+            clearBubbles();
+            bubbleStyle = style;
+        }
+        dropUntrackedBubbles();
+
+        int viewportX = client.getViewportXOffset();
+        int viewportY = client.getViewportYOffset();
+        int viewportWidth = client.getViewportWidth();
+        int viewportHeight = client.getViewportHeight();
+        int maxBubbles = config.overheadMaxBubbles();
+        int newBubbleBudget = MAX_NEW_BUBBLES_PER_FRAME;
+        Composite originalComposite = graphics.getComposite();
+        drawnBounds.clear();
+
+        for (Candidate candidate : candidates) {
+            if (drawnBounds.size() >= maxBubbles) {
+                break;
+            }
+
+            Player player = candidate.player;
+            Point anchor = player.getCanvasTextLocation(graphics, "", player.getLogicalHeight() + HEAD_OFFSET);
+            if (anchor == null
+                    || anchor.getX() < viewportX || anchor.getX() > viewportX + viewportWidth
+                    || anchor.getY() < viewportY || anchor.getY() > viewportY + viewportHeight) {
+                continue;
+            }
+
+            PlayerChatBuffer buffer = candidate.buffer;
+            List<BufferedImage> bubbles = new ArrayList<>(buffer.size());
+            List<Integer> alphas = new ArrayList<>(buffer.size());
+            int stackWidth = 0;
+            int stackHeight = 0;
+            boolean complete = true;
+
+            for (int i = 0; i < buffer.size(); i++) {
+                WidgetMessage msg = buffer.get(i);
+                long age = currentTime - msg.getTimestamp();
+                if (age >= durationMs) {
+                    continue;
+                }
+
+                BufferedImage bubble = bubbleCache.get(msg);
+                if (bubble == null) {
+                    if (newBubbleBudget <= 0) {
+                        complete = false;
+                        break;
+                    }
+                    newBubbleBudget--;
+                    bubble = renderBubble(msg, metrics, fontSize, textColor, bgColor, drawShadow);
+                    bubbleCache.put(msg, bubble);
+                    bubbleBytes += estimateBytes(bubble);
+                }
+
+                bubbles.add(bubble);
+                alphas.add(ChatRenderUtils.calculateAlpha(msg, currentTime, durationMs - FADE_OUT_MS));
+                stackWidth = Math.max(stackWidth, bubble.getWidth());
+                stackHeight += bubble.getHeight() + (stackHeight > 0 ? BUBBLE_GAP : 0);
+            }
+
+            if (!complete || bubbles.isEmpty()) {
+                continue;
+            }
+
+            Rectangle bounds = new Rectangle(anchor.getX() - stackWidth / 2, anchor.getY() - stackHeight,
+                    stackWidth, stackHeight);
+            if (overlapsDrawnBubble(bounds)) {
+                continue;
+            }
+            drawnBounds.add(bounds);
+
+            int y = bounds.y;
+            for (int i = 0; i < bubbles.size(); i++) {
+                BufferedImage bubble = bubbles.get(i);
+                int alpha = alphas.get(i);
+                if (alpha < 255) {
+                    graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha / 255f));
+                }
+                graphics.drawImage(bubble, anchor.getX() - bubble.getWidth() / 2, y, null);
+                graphics.setComposite(originalComposite);
+                y += bubble.getHeight() + BUBBLE_GAP;
+            }
+        }
+
+        frameMetrics.recordLines(MAX_NEW_BUBBLES_PER_FRAME - newBubbleBudget, drawnBounds.size());
+        return null;
+    }
+
+    /**
+     * @return estimated bytes held by the rasterized bubbles.
+     */
+    public long estimateBytes() {
+        return bubbleBytes;
+    }
+
+    /**
+     * Drops every rasterized bubble; they are redrawn as they are next shown. Must be called on the client thread,
+     * which draws the overlay.
+     */
+    public void clearBubbles() {
+        bubbleCache.clear();
+        bubbleBytes = 0;
+    }
+
+    /**
+     * Drops bubbles for messages the tracker has since pruned, or forgotten along with their player.
+     */
+    private void dropUntrackedBubbles() {
+        int generation = tracker.getGeneration();
+        if (generation == trackerGeneration) {
+            return;
+        }
+        trackerGeneration = generation;
+        Iterator<Map.Entry<WidgetMessage, BufferedImage>> it = bubbleCache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<WidgetMessage, BufferedImage> entry = it.next();
+            if (!tracker.contains(entry.getKey())) {
+                bubbleBytes -= estimateBytes(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Bubbles are only checked against each other: a bubble is skipped when a nearer player's bubble, drawn
+     * earlier this frame, overlaps it.
+     */
+    private boolean overlapsDrawnBubble(Rectangle bounds) {
+        for (Rectangle drawn : drawnBounds) {
+            if (drawn.intersects(bounds)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BufferedImage renderBubble(WidgetMessage msg, FontMetrics metrics, FontSize fontSize, Color textColor,
+            Color bgColor, boolean drawShadow) {
+        String messageText = msg.getMessage();
+        if (messageText != null && messageText.length() > MAX_MESSAGE_LENGTH) {
+            messageText = messageText.substring(0, MAX_MESSAGE_LENGTH) + "...";
+        }
+
+        IndexedSprite[] modIcons = client.getModIcons();
+        List<TextSegment> segments = ChatRenderUtils.parseTextWithIcons(messageText, metrics, modIcons, textColor,
+                fontSize);
+        List<List<TextSegment>> lines = ChatRenderUtils.wrapSegments(segments, metrics, MAX_BUBBLE_TEXT_WIDTH,
+                MAX_BUBBLE_TEXT_WIDTH, textColor);
+
+        int textWidth = 1;
+        for (List<TextSegment> line : lines) {
+            int lineWidth = 0;
+            for (TextSegment segment : line) {
+                lineWidth += segment.width;
+            }
+            textWidth = Math.max(textWidth, lineWidth);
+        }
+
+        int lineHeight = metrics.getHeight() - (fontSize == FontSize.SMALL ? 2 : 3) + 1;
+        int width = textWidth + BUBBLE_PADDING * 2 + 2;
+        int height = Math.max(1, lines.size()) * lineHeight + BUBBLE_PADDING * 2;
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            FontMetrics bubbleMetrics = ChatRenderUtils.setupGraphics(g, fontSize);
+            if (bgColor.getAlpha() > 0) {
+                g.setColor(bgColor);
+                g.fillRoundRect(0, 0, width, height, 6, 6);
+            }
+
+            int y = BUBBLE_PADDING + bubbleMetrics.getAscent();
+            for (List<TextSegment> line : lines) {
+                int x = BUBBLE_PADDING;
+                for (TextSegment segment : line) {
+                    if (segment.iconId >= 0) {
+                        BufferedImage img = iconCache.get(modIcons, segment.iconId);
+                        x += ChatRenderUtils.drawIcon(g, img, fontSize, bubbleMetrics, x, y);
+                    } else {
+                        x += ChatRenderUtils.drawText(g, segment.text, segment.color, 255, x, y, drawShadow,
+                                bubbleMetrics);
+                    }
+                }
+                y += lineHeight;
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static long estimateBytes(BufferedImage bubble) {
+        return 96 + (long) bubble.getWidth() * bubble.getHeight() * 4;
+    }
+
+    private static final class Candidate {
+        private final Player player;
+        private final PlayerChatBuffer buffer;
+        private final int distance;
+
+        private Candidate(Player player, PlayerChatBuffer buffer, int distance) {
+            this.player = player;
+            this.buffer = buffer;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.chatwidgets;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Recent public messages per player, keyed by normalized player name, for {@link OverheadChatOverlay}.
+ */
+@Singleton
+public class OverheadChatTracker {
+    private static final Pattern TAG_PATTERN = Pattern.compile("<[^>]*>");
+
+    private final ChatWidgetConfig config;
+    private final Map<String, PlayerChatBuffer> buffers = new ConcurrentHashMap<>();
+    // bumped whenever a message stops being tracked, so caches keyed on tracked messages know to drop theirs
+    private volatile int generation;
+
+    @Inject
+    public OverheadChatTracker(ChatWidgetConfig config) {
+        this.config = config;
+    }
+
+    public void add(WidgetMessage msg) {
+        String key = normalizeName(msg.getSender());
+        if (key.isEmpty()) {
+            return;
+        }
+        int capacity = config.overheadMessagesPerPlayer();
+        PlayerChatBuffer buffer = buffers.computeIfAbsent(key, k -> new PlayerChatBuffer(capacity));
+        int size = buffer.size();
+        buffer.setCapacity(capacity);
+        if (buffer.add(msg) != null || buffer.size() < size) {
+            generation++;
+        }
+    }
+
+    public PlayerChatBuffer get(String playerName) {
+        if (buffers.isEmpty() || playerName == null) {
+            return null;
+        }
+        return buffers.get(normalizeName(playerName));
+    }
+
+    public boolean isEmpty() {
+        return buffers.isEmpty();
+    }
+
+    /**
+     * @return whether the message is still held for its sender.
+     */
+    public boolean contains(WidgetMessage msg) {
+        PlayerChatBuffer buffer = buffers.get(normalizeName(msg.getSender()));
+        return buffer != null && buffer.contains(msg);
+    }
+
+    /**
+     * @return a number which changes whenever a message stops being tracked.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    public void remove(String playerName) {
+        if (playerName != null && buffers.remove(normalizeName(playerName)) != null) {
+            generation++;
+        }
+    }
+
+    /**
+     * Drops expired messages and forgets players with nothing left to show.
+     */
+    public void prune(long currentTime) {
+        long cutoff = currentTime - config.overheadDuration() * 1000L;
+        boolean pruned = false;
+        Iterator<PlayerChatBuffer> it = buffers.values().iterator();
+        while (it.hasNext()) {
+            PlayerChatBuffer buffer = it.next();
+            if (buffer.pruneOlderThan(cutoff) > 0) {
+                pruned = true;
+            }
+            if (buffer.isEmpty()) {
+                it.remove();
+            }
+        }
+        if (pruned) {
+            generation++;
+        }
+    }
+
+    public void clear() {
+        buffers.clear();
+        generation++;
+    }
+
+    static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        if (name.indexOf('<') >= 0) {
+            name = TAG_PATTERN.matcher(name).replaceAll("");
+        }
+        return name.replace('\u00A0', ' ').trim().toLowerCase(Locale.ROOT);
+    }
+}
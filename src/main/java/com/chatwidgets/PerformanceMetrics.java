@@ -0,0 +1,113 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+
+import javax.inject.Singleton;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live metrics for the performance HUD and the JMX bean. Recording is lock-free: counters are {@link LongAdder}s,
+ * and the more expensive per-frame samples are only taken while enabled, so the hooks can stay in the render and
+ * ingest paths permanently.
+ */
+@Singleton
+public class PerformanceMetrics {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Map<String, WidgetMetrics> widgets = new ConcurrentSkipListMap<>();
+    private final LongAdder[] ingestedByType = createAdders(ChatMessageType.values().length);
+    private final LongAdder collapses = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+    private volatile boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the metrics for the named widget, created on first use.
+     */
+    public WidgetMetrics widget(String name) {
+        return widgets.computeIfAbsent(name, n -> new WidgetMetrics(n, this));
+    }
+
+    public void removeWidget(String name) {
+        widgets.remove(name);
+    }
+
+    /**
+     * @return every widget's metrics, ordered by name.
+     */
+    public Collection<WidgetMetrics> getWidgets() {
+        return widgets.values();
+    }
+
+    public void recordIngest(ChatMessageType type) {
+        ingestedByType[type.ordinal()].increment();
+    }
+
+    /**
+     * Records a game message collapsed into an earlier duplicate.
+     */
+    public void recordCollapse() {
+        collapses.increment();
+    }
+
+    /**
+     * Records a game message merged into the message before it.
+     */
+    public void recordMerge() {
+        merges.increment();
+    }
+
+    /**
+     * @return the number of chat messages received.
+     */
+    public long getIngested() {
+        long total = 0;
+        for (LongAdder adder : ingestedByType) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    public long getIngested(ChatMessageType type) {
+        return ingestedByType[type.ordinal()].sum();
+    }
+
+    public long getCollapses() {
+        return collapses.sum();
+    }
+
+    public long getMerges() {
+        return merges.sum();
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if the JVM doesn't track allocations.
+     */
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static LongAdder[] createAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,141 @@
+package com.chatwidgets;
+
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPosition;
+
+import javax.inject.Inject;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Debug HUD showing {@link PerformanceMetrics} for each widget, the shared caches and the channel stores. Rates are
+ * measured over the last second.
+ */
+public class PerformanceOverlay extends Overlay {
+    private static final long SAMPLE_INTERVAL_MS = 1000;
+    private static final Color BACKGROUND = new Color(0, 0, 0, 160);
+    private static final Color HEADER = new Color(255, 200, 0);
+
+    private final ChatWidgetPlugin plugin;
+    private final ChatWidgetConfig config;
+    private final PerformanceMetrics metrics;
+    private final LayoutCache layoutCache;
+    private final ChatIconCache iconCache;
+    private final MemoryBudget memoryBudget;
+
+    private long lastSampleTime;
+    private long lastIngested;
+    private long lastLayoutHits;
+    private long lastLayoutMisses;
+    private long lastIconHits;
+    private long lastIconMisses;
+    private double ingestRate;
+    private double layoutHitRate;
+    private double iconHitRate;
+
+    @Inject
+    public PerformanceOverlay(ChatWidgetPlugin plugin, ChatWidgetConfig config, PerformanceMetrics metrics,
+            LayoutCache layoutCache, ChatIconCache iconCache, MemoryBudget memoryBudget) {
+        this.plugin = plugin;
+        this.config = config;
+        this.metrics = metrics;
+        this.layoutCache = layoutCache;
+        this.iconCache = iconCache;
+        this.memoryBudget = memoryBudget;
+        setPosition(OverlayPosition.TOP_RIGHT);
+        setLayer(OverlayLayer.ABOVE_WIDGETS);
+        setMovable(true);
+    }
+
+    @Override
+    public Dimension render(Graphics2D graphics) {
+        if (!config.performanceHud()) {
+            return null;
+        }
+
+        sample(System.currentTimeMillis());
+
+        List<String> lines = new ArrayList<>();
+        lines.add("Widget: p50 / p99 ms, laid out / drawn, KB per frame");
+        for (WidgetMetrics widget : metrics.getWidgets()) {
+            if (widget.getFrames() == 0) {
+                continue;
+            }
+            lines.add(String.format(Locale.ROOT, "%s: %.2f / %.2f, %d / %d, %.1f", widget.getName(),
+                    widget.getRenderNanos(0.5) / 1e6, widget.getRenderNanos(0.99) / 1e6,
+                    widget.getLinesLaidOut(), widget.getLinesDrawn(), widget.getAllocatedBytesPerFrame() / 1024.0));
+        }
+        lines.add(String.format(Locale.ROOT, "Ingest: %.1f msg/s", ingestRate));
+        lines.add(String.format(Locale.ROOT, "Layout cache: %.0f%% hits, %d entries", layoutHitRate * 100,
+                layoutCache.size()));
+        lines.add(String.format(Locale.ROOT, "Icon cache: %.0f%% hits", iconHitRate * 100));
+        lines.add(String.format(Locale.ROOT, "Memory: %.1f / %d MB", memoryBudget.getTotalBytes() / (1024.0 * 1024),
+                memoryBudget.getBudget() / (1024 * 1024)));
+        for (ChatChannel channel : ChatChannel.values()) {
+            MessageStore store = plugin.getChannelStore(channel);
+            if (store == null || !store.isEnabled()) {
+                continue;
+            }
+            MessageArchive archive = store.getArchive();
+            String line = String.format(Locale.ROOT, "%s: %d / %d", channel, store.size(), store.getCapacity());
+            if (archive != null && archive.getCapacity() > 0) {
+                line += String.format(Locale.ROOT, ", deep %d / %d", archive.size(), archive.getCapacity());
+            }
+            lines.add(line);
+        }
+
+        FontMetrics fontMetrics = ChatRenderUtils.setupGraphics(graphics, FontSize.SMALL);
+        int lineHeight = fontMetrics.getHeight();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, fontMetrics.stringWidth(line));
+        }
+        width += 8;
+        int height = lines.size() * lineHeight + 6;
+
+        graphics.setColor(BACKGROUND);
+        graphics.fillRect(0, 0, width, height);
+        int y = 3 + fontMetrics.getAscent();
+        for (int i = 0; i < lines.size(); i++) {
+            ChatRenderUtils.drawText(graphics, lines.get(i), i == 0 ? HEADER : Color.WHITE, 255, 4, y, true,
+                    fontMetrics);
+            y += lineHeight;
+        }
+        return new Dimension(width, height);
+    }
+
+    private void sample(long currentTime) {
+        long elapsed = currentTime - lastSampleTime;
+        if (elapsed < SAMPLE_INTERVAL_MS) {
+            return;
+        }
+
+        long ingested = metrics.getIngested();
+        long layoutHits = layoutCache.getHits();
+        long layoutMisses = layoutCache.getMisses();
+        long iconHits = iconCache.getHits();
+        long iconMisses = iconCache.getMisses();
+        if (lastSampleTime > 0) {
+            ingestRate = (ingested - lastIngested) * 1000.0 / elapsed;
+            layoutHitRate = hitRate(layoutHits - lastLayoutHits, layoutMisses - lastLayoutMisses);
+            iconHitRate = hitRate(iconHits - lastIconHits, iconMisses - lastIconMisses);
+        }
+        lastSampleTime = currentTime;
+        lastIngested = ingested;
+        lastLayoutHits = layoutHits;
+        lastLayoutMisses = layoutMisses;
+        lastIconHits = iconHits;
+        lastIconMisses = iconMisses;
+    }
+
+    private static double hitRate(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 1 : (double) hits / total;
+    }
+}
@@ -0,0 +1,127 @@
+package com.chatwidgets;
+
+import net.runelite.api.Client;
+import net.runelite.api.Perspective;
+import net.runelite.api.Player;
+import net.runelite.api.Point;
+import net.runelite.api.coords.LocalPoint;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Canvas anchor for widgets positioned relative to the local player. The player is projected once per client
+ * tick by {@link #sample(WidgetPosition)} and frames interpolate between the last two samples, which keeps the
+ * widget steady at high frame rates without projecting the player every frame.
+ */
+@Singleton
+public class PlayerAnchor {
+    private static final int MIN_ZOOM = -22;
+    private static final int MAX_ZOOM = 1400;
+    private static final int BELOW_OFFSET_MIN_ZOOM = 40;
+    private static final int BELOW_OFFSET_MAX_ZOOM = 150;
+    private static final int ABOVE_OFFSET_MIN_ZOOM = -40;
+    private static final int ABOVE_OFFSET_MAX_ZOOM = -120;
+
+    private static final int[] BELOW_ZOOM_OFFSETS = buildZoomOffsets(BELOW_OFFSET_MIN_ZOOM, BELOW_OFFSET_MAX_ZOOM);
+    private static final int[] ABOVE_ZOOM_OFFSETS = buildZoomOffsets(ABOVE_OFFSET_MIN_ZOOM, ABOVE_OFFSET_MAX_ZOOM);
+
+    // jumps larger than this (teleports, camera snaps) are not interpolated
+    private static final int SNAP_DISTANCE = 150;
+
+    private final Client client;
+
+    private int previousX;
+    private int previousY;
+    private long previousSampleNanos;
+    private int currentX;
+    private int currentY;
+    private long currentSampleNanos;
+    private boolean visible;
+
+    @Inject
+    public PlayerAnchor(Client client) {
+        this.client = client;
+    }
+
+    /**
+     * Projects the local player to the canvas. Must be called on the client thread.
+     */
+    public void sample(WidgetPosition positionMode) {
+        Player localPlayer = client.getLocalPlayer();
+        LocalPoint localPoint = localPlayer != null ? localPlayer.getLocalLocation() : null;
+        if (localPoint == null) {
+            visible = false;
+            return;
+        }
+
+        int zOffset = positionMode == WidgetPosition.BELOW_PLAYER ? 0 : localPlayer.getLogicalHeight();
+        Point point = Perspective.localToCanvas(client, localPoint, client.getTopLevelWorldView().getPlane(),
+                zOffset);
+        if (point == null) {
+            visible = false;
+            return;
+        }
+
+        int x = point.getX();
+        int y = point.getY() + getZoomOffset(positionMode, client.get3dZoom());
+        long now = System.nanoTime();
+
+        boolean snap = !visible
+                || Math.abs(x - currentX) > SNAP_DISTANCE
+                || Math.abs(y - currentY) > SNAP_DISTANCE;
+        previousX = snap ? x : currentX;
+        previousY = snap ? y : currentY;
+        previousSampleNanos = snap ? now : currentSampleNanos;
+        currentX = x;
+        currentY = y;
+        currentSampleNanos = now;
+        visible = true;
+    }
+
+    public void reset() {
+        visible = false;
+    }
+
+    /**
+     * @return <i>false</i> if the player could not be projected onto the canvas at the last sample.
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public int getX(long nanoTime) {
+        return interpolate(previousX, currentX, nanoTime);
+    }
+
+    public int getY(long nanoTime) {
+        return interpolate(previousY, currentY, nanoTime);
+    }
+
+    private int interpolate(int from, int to, long nanoTime) {
+        long interval = currentSampleNanos - previousSampleNanos;
+        if (interval <= 0 || from == to) {
+            return to;
+        }
+        double progress = Math.min(1.0, (double) (nanoTime - currentSampleNanos) / interval);
+        if (progress <= 0) {
+            return from;
+        }
+        return (int) Math.round(from + (to - from) * progress);
+    }
+
+    static int getZoomOffset(WidgetPosition positionMode, int zoom) {
+        int[] offsets = positionMode == WidgetPosition.BELOW_PLAYER ? BELOW_ZOOM_OFFSETS : ABOVE_ZOOM_OFFSETS;
+        int index = Math.max(0, Math.min(offsets.length - 1, zoom - MIN_ZOOM));
+        return offsets[index];
+    }
+
+    private static int[] buildZoomOffsets(int minOffset, int maxOffset) {
+        int[] offsets = new int[MAX_ZOOM - MIN_ZOOM + 1];
+        for (int i = 0; i < offsets.length; i++) {
+            double normalizedZoom = (double) i / (MAX_ZOOM - MIN_ZOOM);
+            offsets[i] = (int) (minOffset + normalizedZoom * (maxOffset - minOffset));
+        }
+        return offsets;
+    }
+}
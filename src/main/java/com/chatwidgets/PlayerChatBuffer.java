@@ -0,0 +1,88 @@
+package com.chatwidgets;
+
+/**
+ * Fixed-size ring buffer of the most recent public messages sent by a single player.
+ */
+public class PlayerChatBuffer {
+    private WidgetMessage[] messages;
+    private int head;
+    private int size;
+
+    public PlayerChatBuffer(int capacity) {
+        this.messages = new WidgetMessage[Math.max(1, capacity)];
+    }
+
+    /**
+     * @return the oldest message if it was pushed out to make room, otherwise <i>null</i>.
+     */
+    public WidgetMessage add(WidgetMessage msg) {
+        int index = (head + size) % messages.length;
+        WidgetMessage evicted = messages[index];
+        messages[index] = msg;
+        if (size < messages.length) {
+            size++;
+            return null;
+        }
+        head = (head + 1) % messages.length;
+        return evicted;
+    }
+
+    /**
+     * @param index 0 for the oldest retained message.
+     */
+    public WidgetMessage get(int index) {
+        return messages[(head + index) % messages.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(WidgetMessage msg) {
+        for (int i = 0; i < size; i++) {
+            if (get(i) == msg) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getLatestTimestamp() {
+        return size == 0 ? 0 : get(size - 1).getTimestamp();
+    }
+
+    /**
+     * Drops messages sent before the cutoff.
+     *
+     * @return the number of messages dropped.
+     */
+    public int pruneOlderThan(long cutoff) {
+        int pruned = 0;
+        while (size > 0 && messages[head].getTimestamp() < cutoff) {
+            messages[head] = null;
+            head = (head + 1) % messages.length;
+            size--;
+            pruned++;
+        }
+        return pruned;
+    }
+
+    public void setCapacity(int capacity) {
+        capacity = Math.max(1, capacity);
+        if (capacity == messages.length) {
+            return;
+        }
+        WidgetMessage[] resized = new WidgetMessage[capacity];
+        int keep = Math.min(size, capacity);
+        for (int i = 0; i < keep; i++) {
+            resized[i] = get(size - keep + i);
+        }
+        messages = resized;
+        head = 0;
+        size = keep;
+    }
+}
@@ -16,9 +16,7 @@ import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class PrivateChatOverlay extends Overlay {
 
@@ -28,11 +26,21 @@ public class PrivateChatOverlay extends Overlay {
     private final ChatWidgetConfig config;
     private final Client client;
 
-    private final Map<Integer, BufferedImage> spriteCache = new HashMap<>();
+    private final LayoutCache layoutCache;
+    private final ChatIconCache iconCache;
+    private final WidgetMetrics frameMetrics;
+    private final Scrollback scrollback;
+
+    private boolean lastScrolledState = false;
 
     @Inject
-    public PrivateChatOverlay(ChatWidgetPlugin plugin, ChatWidgetConfig config, Client client) {
+    public PrivateChatOverlay(ChatWidgetPlugin plugin, ChatWidgetConfig config, Client client,
+            LayoutCache layoutCache, ChatIconCache iconCache, PerformanceMetrics performanceMetrics) {
         this.plugin = plugin;
+        this.layoutCache = layoutCache;
+        this.scrollback = new Scrollback(layoutCache);
+        this.frameMetrics = performanceMetrics.widget("Private");
+        this.iconCache = iconCache;
         this.config = config;
         this.client = client;
         setPosition(client.isResized() ? OverlayPosition.ABOVE_CHATBOX_RIGHT : OverlayPosition.BOTTOM_LEFT);
@@ -46,6 +54,15 @@ public class PrivateChatOverlay extends Overlay {
 
     @Override
     public Dimension render(Graphics2D graphics) {
+        frameMetrics.beginFrame();
+        try {
+            return renderWidget(graphics);
+        } finally {
+            frameMetrics.endFrame();
+        }
+    }
+
+    private Dimension renderWidget(Graphics2D graphics) {
         if (!plugin.shouldShowPrivateOverlay()) {
             return null;
         }
@@ -60,8 +77,11 @@ public class PrivateChatOverlay extends Overlay {
             return null;
         }
 
-        List<WidgetMessage> messages = plugin.getPrivateMessages();
-        if (messages.isEmpty()) {
+        boolean scrolled = scrollback.isActive();
+        updateMenuEntries(scrolled);
+
+        List<WidgetMessage> messages = scrolled ? new ArrayList<>() : plugin.getPrivateMessages();
+        if (!scrolled && messages.isEmpty()) {
             return null;
         }
 
@@ -101,28 +121,36 @@ public class PrivateChatOverlay extends Overlay {
             }
         }
 
-        if (visibleMessages.isEmpty()) {
+        if (!scrolled && visibleMessages.isEmpty()) {
             return null;
         }
 
+        Object layoutEvent = ChatEvents.beginLayout();
         List<RenderLine> renderableLines = new ArrayList<>(visibleMessages.size() * 2);
+        LayoutKey layoutKey = new LayoutKey("private", widgetWidth, fontSize, wrapText, config.showTimestamp(),
+                config.timestampFormat(), null, textColor, false, null, false);
+        if (scrolled) {
+            renderableLines = scrollback.getVisibleLines(plugin.getChannelStore(ChatChannel.PRIVATE), maxMessages,
+                    layoutKey, msg -> true, msg -> ChatRenderUtils.buildPrivateMessageLines(msg, metrics, widgetWidth, currentTime,
+                            0, wrapText, textColor, fontSize, client.getModIcons(), config.showTimestamp(),
+                            config.timestampFormat(), MAX_MESSAGE_LENGTH));
+            useDynamicHeight = false;
+        }
         for (WidgetMessage msg : visibleMessages) {
-            List<RenderLine> msgLines = ChatRenderUtils.buildPrivateMessageLines(msg, metrics, widgetWidth, currentTime, fadeOutMs,
-                    wrapText, textColor, config.fontSize(), client.getModIcons(), config.showTimestamp(),
-                    config.timestampFormat(), MAX_MESSAGE_LENGTH);
-
-            boolean hasVisibleLine = false;
-            for (RenderLine msgLine : msgLines) {
-                if (msgLine.alpha > 0) {
-                    hasVisibleLine = true;
-                    break;
-                }
+            int alpha = ChatRenderUtils.calculateAlpha(msg, currentTime, fadeOutMs);
+            if (alpha <= 0) {
+                continue;
             }
-            if (hasVisibleLine) {
-                renderableLines.addAll(msgLines);
+            List<RenderLine> msgLines = layoutCache.get(msg, layoutKey, m -> ChatRenderUtils.buildPrivateMessageLines(
+                    m, metrics, widgetWidth, currentTime, 0, wrapText, textColor, fontSize, client.getModIcons(),
+                    config.showTimestamp(), config.timestampFormat(), MAX_MESSAGE_LENGTH));
+            for (RenderLine msgLine : msgLines) {
+                renderableLines.add(alpha == msgLine.alpha ? msgLine : new RenderLine(msgLine.segments, alpha));
             }
         }
 
+        ChatEvents.endLayout(layoutEvent, "Private", visibleMessages.size(), renderableLines.size(),
+                widgetWidth);
         if (renderableLines.isEmpty()) {
             return null;
         }
@@ -154,17 +182,22 @@ public class PrivateChatOverlay extends Overlay {
         int y = widgetHeight - bgPadding - marginBottom - metrics.getDescent();
         IndexedSprite[] modIcons = client.getModIcons();
 
+        Object drawEvent = ChatEvents.beginDraw();
+        int linesDrawn = 0;
+        int iconsDrawn = 0;
         for (int i = renderableLines.size() - 1; i >= 0; i--) {
             RenderLine line = renderableLines.get(i);
             if (line.alpha <= 0) {
                 continue;
             }
+            linesDrawn++;
 
             int x = bgPadding;
 
             for (TextSegment segment : line.segments) {
                 if (segment.iconId >= 0 && modIcons != null && segment.iconId < modIcons.length) {
-                    BufferedImage img = ChatRenderUtils.getCachedSprite(modIcons, segment.iconId, spriteCache);
+                    BufferedImage img = iconCache.get(modIcons, segment.iconId);
+                    iconsDrawn++;
                     x += ChatRenderUtils.drawIcon(graphics, img, fontSize, metrics, x, y);
                 } else {
                     x += ChatRenderUtils.drawText(graphics, segment.text, textColor, line.alpha, x, y,
@@ -175,6 +208,24 @@ public class PrivateChatOverlay extends Overlay {
         }
 
         graphics.setClip(originalClip);
+        frameMetrics.recordLines(renderableLines.size(), linesDrawn);
+        ChatEvents.endDraw(drawEvent, "Private", linesDrawn, iconsDrawn);
         return new Dimension(widgetWidth, widgetHeight);
     }
+
+    public Scrollback getScrollback() {
+        return scrollback;
+    }
+
+    private void updateMenuEntries(boolean scrolled) {
+        if (scrolled == lastScrolledState) {
+            return;
+        }
+        lastScrolledState = scrolled;
+        getMenuEntries().clear();
+        if (scrolled) {
+            getMenuEntries().add(new OverlayMenuEntry(MenuAction.RUNELITE_OVERLAY, "Jump to latest", "Private chat history"));
+        }
+        getMenuEntries().add(new OverlayMenuEntry(MenuAction.RUNELITE_OVERLAY, "Clear", "Private chat history"));
+    }
 }
@@ -0,0 +1,366 @@
+package com.chatwidgets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Recent game messages kept in a separate ring buffer per {@link RetentionClass}. Each buffer evicts by its own
+ * count and age limits, so a burst of one kind of message can't push out another.
+ * <p>
+ * The messages held across the buffers which pass the current filter are kept merged in sequence order as they are
+ * added, so reading the latest messages doesn't merge or filter anything. Evicted and expired messages are only
+ * marked hidden in the merged queue, and are dropped once they reach its front or make up half of it, so eviction
+ * doesn't shift the queue. Kept up to date by attaching it to the game store as a {@link MessageJournal}. Messages
+ * which leave the store's recent messages are dropped from retention too, so the buffers never keep a message the
+ * store has archived. The store's full history is not affected by retention.
+ */
+public class RetentionBuffers implements MessageJournal {
+    private static final RetentionClass[] CLASSES = RetentionClass.values();
+
+    private final Ring[] rings = new Ring[CLASSES.length];
+    // every retained message passing the filter in sequence order, including hidden entries not yet dropped
+    private final ArrayDeque<Entry> visible = new ArrayDeque<>();
+    private int hidden;
+    private Predicate<WidgetMessage> filter = msg -> true;
+
+    private WidgetMessage[] window = new WidgetMessage[0];
+    private List<WidgetMessage> cachedLatest = Collections.emptyList();
+
+    public RetentionBuffers() {
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = new Ring();
+        }
+    }
+
+    /**
+     * @param maxCount the number of messages of the class to keep.
+     * @param maxAgeMs how long to keep messages of the class, or 0 to keep them until evicted by count.
+     */
+    public synchronized void setPolicy(RetentionClass retentionClass, int maxCount, long maxAgeMs) {
+        Ring ring = ring(retentionClass);
+        ring.resize(Math.max(1, maxCount));
+        ring.maxAgeMs = maxAgeMs;
+        rebuildVisible();
+    }
+
+    /**
+     * Sets which of the retained messages {@link #getLatest} returns.
+     */
+    public synchronized void setFilter(Predicate<WidgetMessage> filter) {
+        this.filter = filter;
+        rebuildVisible();
+    }
+
+    /**
+     * Refills the buffers from the store's recent messages. Archived messages are left compressed, since retention
+     * only keeps what the live view can show.
+     */
+    public synchronized void rebuild(MessageStore store) {
+        for (Ring ring : rings) {
+            ring.clear();
+        }
+        for (int i = 0, size = store.size(); i < size; i++) {
+            WidgetMessage msg = store.get(i);
+            ring(RetentionClass.of(msg)).add(new Entry(msg));
+        }
+        rebuildVisible();
+    }
+
+    @Override
+    public synchronized void appended(WidgetMessage msg) {
+        add(msg);
+    }
+
+    @Override
+    public synchronized void replaced(WidgetMessage previous, WidgetMessage replacement) {
+        Ring previousRing = ring(RetentionClass.of(previous));
+        Ring ring = ring(RetentionClass.of(replacement));
+        Entry entry = new Entry(replacement);
+        Entry replaced = previousRing == ring ? ring.replace(previous.getSequence(), entry) : null;
+        if (replaced != null) {
+            hide(replaced);
+            if (filter.test(replacement)) {
+                show(entry);
+            }
+        } else {
+            hide(previousRing.remove(previous.getSequence()));
+            add(replacement);
+        }
+    }
+
+    @Override
+    public synchronized void removed(WidgetMessage msg) {
+        hide(ring(RetentionClass.of(msg)).remove(msg.getSequence()));
+    }
+
+    @Override
+    public synchronized void evicted(WidgetMessage msg) {
+        hide(ring(RetentionClass.of(msg)).remove(msg.getSequence()));
+    }
+
+    @Override
+    public synchronized void cleared() {
+        for (Ring ring : rings) {
+            ring.clear();
+        }
+        visible.clear();
+        hidden = 0;
+    }
+
+    /**
+     * Expires messages past their class's age limit, then takes the most recent messages passing the filter,
+     * stopping at the first message older than {@code maxAgeMs}.
+     *
+     * @return up to {@code maxMessages} of the most recent messages passing the filter, oldest first. The same
+     * list is returned while the result is unchanged.
+     */
+    public synchronized List<WidgetMessage> getLatest(int maxMessages, long maxAgeMs, long currentTime) {
+        for (Ring ring : rings) {
+            Entry expired;
+            while ((expired = ring.expireOldest(currentTime)) != null) {
+                hide(expired);
+            }
+        }
+
+        // newest first
+        if (window.length < maxMessages) {
+            window = new WidgetMessage[maxMessages];
+        }
+        int count = 0;
+        Iterator<Entry> it = visible.descendingIterator();
+        while (count < maxMessages && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.visible) {
+                window[count++] = entry.msg;
+            }
+        }
+        while (count > 0 && maxAgeMs > 0 && currentTime - window[count - 1].getTimestamp() >= maxAgeMs) {
+            count--;
+        }
+
+        if (!cachedMatches(count)) {
+            WidgetMessage[] latest = new WidgetMessage[count];
+            for (int i = 0; i < count; i++) {
+                latest[i] = window[count - 1 - i];
+            }
+            cachedLatest = Collections.unmodifiableList(Arrays.asList(latest));
+        }
+        Arrays.fill(window, 0, count, null);
+        return cachedLatest;
+    }
+
+    /**
+     * @return the number of messages currently held for the class.
+     */
+    public synchronized int size(RetentionClass retentionClass) {
+        return ring(retentionClass).size;
+    }
+
+    /**
+     * @return estimated bytes held by the buffers, not counting the messages, which are shared with the store.
+     */
+    public synchronized long estimateBytes() {
+        long bytes = 0;
+        for (Ring ring : rings) {
+            bytes += 32 + 16 + 4L * ring.entries.length + 24L * ring.size;
+        }
+        return bytes + 32 + 8L * visible.size();
+    }
+
+    private Ring ring(RetentionClass retentionClass) {
+        return rings[retentionClass.ordinal()];
+    }
+
+    private boolean cachedMatches(int count) {
+        if (cachedLatest.size() != count) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (cachedLatest.get(i) != window[count - 1 - i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(WidgetMessage msg) {
+        Entry entry = new Entry(msg);
+        hide(ring(RetentionClass.of(msg)).add(entry));
+        if (filter.test(msg)) {
+            show(entry);
+        }
+    }
+
+    private void show(Entry entry) {
+        Entry last = visible.peekLast();
+        if (last == null || last.msg.getSequence() < entry.msg.getSequence()) {
+            entry.visible = true;
+            visible.addLast(entry);
+        } else {
+            // replacements are always newer, so this only happens when a message is moved back in the store
+            rebuildVisible();
+        }
+    }
+
+    private void hide(Entry entry) {
+        if (entry == null || !entry.visible) {
+            return;
+        }
+        entry.visible = false;
+        hidden++;
+        while (!visible.isEmpty() && !visible.peekFirst().visible) {
+            visible.pollFirst();
+            hidden--;
+        }
+        if (hidden > visible.size() / 2) {
+            visible.removeIf(e -> !e.visible);
+            hidden = 0;
+        }
+    }
+
+    private void rebuildVisible() {
+        List<Entry> entries = new ArrayList<>();
+        for (Ring ring : rings) {
+            for (int i = 0; i < ring.size; i++) {
+                Entry entry = ring.get(i);
+                entry.visible = filter.test(entry.msg);
+                if (entry.visible) {
+                    entries.add(entry);
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(e -> e.msg.getSequence()));
+        visible.clear();
+        visible.addAll(entries);
+        hidden = 0;
+    }
+
+    private static final class Entry {
+        private final WidgetMessage msg;
+        // whether the entry is in the merged queue and not yet evicted
+        private boolean visible;
+
+        private Entry(WidgetMessage msg) {
+            this.msg = msg;
+        }
+    }
+
+    /**
+     * Fixed capacity ring buffer, oldest first. Adding to a full ring evicts its oldest entry.
+     */
+    private static final class Ring {
+        private Entry[] entries = new Entry[1];
+        private int head;
+        private int size;
+        private long maxAgeMs;
+
+        private Entry get(int index) {
+            return entries[(head + index) % entries.length];
+        }
+
+        /**
+         * @return the entry evicted to make room, or null.
+         */
+        private Entry add(Entry entry) {
+            if (size == entries.length) {
+                Entry evicted = entries[head];
+                entries[head] = entry;
+                head = (head + 1) % entries.length;
+                return evicted;
+            }
+            entries[(head + size) % entries.length] = entry;
+            size++;
+            return null;
+        }
+
+        /**
+         * @return the oldest entry if it has passed the age limit, after removing it, or null.
+         */
+        private Entry expireOldest(long currentTime) {
+            if (size == 0 || maxAgeMs <= 0 || currentTime - entries[head].msg.getTimestamp() < maxAgeMs) {
+                return null;
+            }
+            return removeOldest();
+        }
+
+        private Entry removeOldest() {
+            Entry oldest = entries[head];
+            entries[head] = null;
+            head = (head + 1) % entries.length;
+            size--;
+            return oldest;
+        }
+
+        /**
+         * @return the replaced entry, or null if the sequence isn't held.
+         */
+        private Entry replace(long sequence, Entry entry) {
+            int index = indexOf(sequence);
+            if (index < 0) {
+                return null;
+            }
+            int slot = (head + index) % entries.length;
+            Entry replaced = entries[slot];
+            entries[slot] = entry;
+            return replaced;
+        }
+
+        /**
+         * Removes the entry for a sequence. Evictions from the store take the oldest entry, which doesn't shift
+         * anything. Removing from the middle is only used for collapsed duplicates, which are usually recent.
+         *
+         * @return the removed entry, or null if the sequence isn't held.
+         */
+        private Entry remove(long sequence) {
+            if (size > 0 && entries[head].msg.getSequence() == sequence) {
+                return removeOldest();
+            }
+            int index = indexOf(sequence);
+            if (index < 0) {
+                return null;
+            }
+            Entry removed = get(index);
+            for (int i = index; i < size - 1; i++) {
+                entries[(head + i) % entries.length] = entries[(head + i + 1) % entries.length];
+            }
+            entries[(head + size - 1) % entries.length] = null;
+            size--;
+            return removed;
+        }
+
+        private int indexOf(long sequence) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (get(i).msg.getSequence() == sequence) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void resize(int capacity) {
+            if (capacity == entries.length) {
+                return;
+            }
+            int keep = Math.min(size, capacity);
+            Entry[] resized = new Entry[capacity];
+            for (int i = 0; i < keep; i++) {
+                resized[i] = get(size - keep + i);
+            }
+            entries = resized;
+            head = 0;
+            size = keep;
+        }
+
+        private void clear() {
+            Arrays.fill(entries, null);
+            head = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+
+/**
+ * Groups of game messages which are retained independently of each other, see {@link RetentionBuffers}.
+ */
+public enum RetentionClass {
+    SPAM,
+    BROADCAST,
+    TRADE,
+    KILLS_AND_DROPS,
+    OTHER;
+
+    public static RetentionClass of(WidgetMessage msg) {
+        if (msg.getCategories() != 0) {
+            return KILLS_AND_DROPS;
+        }
+        ChatMessageType type = msg.getType();
+        if (type == null) {
+            return OTHER;
+        }
+        switch (type) {
+            case SPAM:
+                return SPAM;
+            case BROADCAST:
+                return BROADCAST;
+            case TRADE:
+            case TRADEREQ:
+            case TRADE_SENT:
+                return TRADE;
+            default:
+                return OTHER;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.chatwidgets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Scroll position and virtualized layout for browsing a widget's full {@link MessageStore} history. Only messages
+ * that intersect the viewport are laid out, layouts come from the shared {@link LayoutCache} so lines already laid
+ * out for the live view are reused, and line offsets are resolved through a {@link ScrollbackIndex}.
+ * <p>
+ * The scroll position is anchored to a message rather than a line offset, so new messages arriving while scrolled
+ * do not move the view.
+ */
+public class Scrollback {
+    // bounds the work done per frame when a filter hides long runs of messages
+    private static final int MAX_MESSAGES_PER_FRAME = 500;
+
+    private final LayoutCache layoutCache;
+    private final ScrollbackIndex index = new ScrollbackIndex();
+
+    private boolean active;
+    // newest message in the viewport, and how many of its lines are below the viewport
+    private long anchorPosition;
+    private int anchorSkip;
+    private int pendingScroll;
+
+    public Scrollback(LayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+    }
+
+    public synchronized boolean isActive() {
+        return active || pendingScroll > 0;
+    }
+
+    /**
+     * Queues a scroll to be applied on the next frame.
+     *
+     * @param lines positive to scroll towards older messages.
+     */
+    public synchronized void scroll(int lines) {
+        if (!active && pendingScroll + lines <= 0) {
+            pendingScroll = 0;
+            return;
+        }
+        pendingScroll += lines;
+    }
+
+    public synchronized void reset() {
+        active = false;
+        pendingScroll = 0;
+    }
+
+    /**
+     * Lays out the lines visible in the viewport, oldest first.
+     *
+     * @param layoutKey  identifies the width and style the layout depends on.
+     * @param filter     which messages to show; hidden messages take no lines and are not laid out.
+     * @param layout     builds the lines for a message.
+     */
+    public synchronized List<RenderLine> getVisibleLines(MessageStore store, int viewportLines, LayoutKey layoutKey,
+            Predicate<WidgetMessage> filter, Function<WidgetMessage, List<RenderLine>> layout) {
+        index.sync(store);
+        // keep the anchor on the same message when older messages are collapsed away
+        anchorPosition = index.adjustForRemovals(anchorPosition);
+        if (index.isEmpty()) {
+            reset();
+            return Collections.emptyList();
+        }
+
+        applyPendingScroll(store, viewportLines, layoutKey, filter, layout);
+        if (!active) {
+            return Collections.emptyList();
+        }
+
+        long head = index.getHead();
+        if (anchorPosition < head) {
+            anchorPosition = head;
+            anchorSkip = 0;
+        }
+
+        List<RenderLine> visible = new ArrayList<>(viewportLines);
+        int skip = anchorSkip;
+        int walked = 0;
+        for (long position = anchorPosition;
+                position >= head && visible.size() < viewportLines && walked < MAX_MESSAGES_PER_FRAME;
+                position--, walked++) {
+            List<RenderLine> lines = layoutAt(store, position, layoutKey, filter, layout);
+            for (int i = lines.size() - 1 - skip; i >= 0 && visible.size() < viewportLines; i--) {
+                visible.add(lines.get(i));
+            }
+            skip = 0;
+        }
+
+        Collections.reverse(visible);
+        return visible;
+    }
+
+    private void applyPendingScroll(MessageStore store, int viewportLines, LayoutKey layoutKey,
+            Predicate<WidgetMessage> filter, Function<WidgetMessage, List<RenderLine>> layout) {
+        if (pendingScroll == 0) {
+            return;
+        }
+
+        int totalLines = index.totalLines();
+        int bottomLine = active
+                ? index.linesBefore(anchorPosition) + index.get(anchorPosition) - anchorSkip
+                : totalLines;
+        int targetLine = Math.max(Math.min(viewportLines, totalLines), bottomLine - pendingScroll);
+        pendingScroll = 0;
+
+        if (targetLine >= totalLines) {
+            active = false;
+            return;
+        }
+
+        long position = index.positionAtLine(targetLine - 1);
+        // correct the estimate for the anchor before deriving how many of its lines to skip
+        layoutAt(store, position, layoutKey, filter, layout);
+        anchorPosition = position;
+        anchorSkip = Math.max(0, index.linesBefore(position) + index.get(position) - targetLine);
+        active = true;
+    }
+
+    private List<RenderLine> layoutAt(MessageStore store, long position, LayoutKey layoutKey,
+            Predicate<WidgetMessage> filter, Function<WidgetMessage, List<RenderLine>> layout) {
+        WidgetMessage msg = store.getFromHistory((int) (position - index.getHead()));
+        List<RenderLine> lines = filter.test(msg)
+                ? layoutCache.get(msg, layoutKey, layout)
+                : Collections.<RenderLine>emptyList();
+        index.set(position, lines.size());
+        return lines;
+    }
+}
@@ -0,0 +1,196 @@
+package com.chatwidgets;
+
+import java.util.Arrays;
+
+/**
+ * Prefix sums of wrapped line counts per history position, stored in a Fenwick tree so that line offsets can be
+ * converted to and from positions in O(log n). Positions start out with an estimate of one line and are corrected
+ * with {@link #set(long, int)} as messages are laid out.
+ */
+public class ScrollbackIndex {
+    private static final int ESTIMATED_LINES = 1;
+
+    // absolute history position stored at index 0
+    private long base;
+    private long head;
+    private int count;
+    private int[] values = new int[64];
+    private int[] tree = new int[65];
+    private int structureVersion = -1;
+    private long removalsSeen;
+    // positions removed by the last sync, in the order they were removed
+    private long[] removed = new long[8];
+    private int removedCount;
+
+    /**
+     * Brings the index in line with the store's history, appending estimates for new messages and rebuilding only
+     * when positions changed or enough old positions were dropped to be worth compacting.
+     */
+    public void sync(MessageStore store) {
+        long headOffset = store.getHeadOffset();
+        long end = headOffset + store.historySize();
+        int version = store.getStructureVersion();
+        long removals = store.getRemovalCount();
+
+        removedCount = 0;
+        if (version == structureVersion && !applyRemovals(store, removals)) {
+            structureVersion = -1;
+        }
+        removalsSeen = removals;
+
+        if (version != structureVersion || headOffset < base || end < base + count) {
+            reset(headOffset);
+            structureVersion = version;
+        } else if (headOffset - base > count / 2 && headOffset - base > 1024) {
+            compact(headOffset);
+        }
+
+        head = headOffset;
+        while (base + count < end) {
+            append(ESTIMATED_LINES);
+        }
+    }
+
+    /**
+     * Follows a position through the removals applied by the last {@link #sync(MessageStore)}. A removed position
+     * is taken over by the message after it.
+     */
+    public long adjustForRemovals(long position) {
+        for (int i = 0; i < removedCount; i++) {
+            if (removed[i] < position) {
+                position--;
+            }
+        }
+        return position;
+    }
+
+    public long getHead() {
+        return head;
+    }
+
+    public long getEnd() {
+        return base + count;
+    }
+
+    public boolean isEmpty() {
+        return head >= base + count;
+    }
+
+    public int get(long position) {
+        return values[(int) (position - base)];
+    }
+
+    public void set(long position, int lines) {
+        int index = (int) (position - base);
+        int delta = lines - values[index];
+        if (delta == 0) {
+            return;
+        }
+        values[index] = lines;
+        for (int i = index + 1; i <= count; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @return the number of lines before the given position, counted from the oldest message in the history.
+     */
+    public int linesBefore(long position) {
+        return prefix((int) (position - base)) - prefix((int) (head - base));
+    }
+
+    public int totalLines() {
+        return prefix(count) - prefix((int) (head - base));
+    }
+
+    /**
+     * @param line a line offset from the oldest message in the history.
+     * @return the position of the message containing the line.
+     */
+    public long positionAtLine(int line) {
+        int target = line + prefix((int) (head - base));
+        int index = 0;
+        for (int step = Integer.highestOneBit(Math.max(1, count)); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= count && tree[next] <= target) {
+                index = next;
+                target -= tree[next];
+            }
+        }
+        return Math.max(head, Math.min(base + count - 1, base + index));
+    }
+
+    private int prefix(int length) {
+        int sum = 0;
+        for (int i = length; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void append(int lines) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+            rebuildTree();
+        }
+        values[count] = lines;
+        int i = count + 1;
+        tree[i] = lines + prefix(i - 1) - prefix(i - (i & -i));
+        count++;
+    }
+
+    /**
+     * Deletes the positions removed from the store since the last sync, shifting later positions down.
+     *
+     * @return false if the removals are no longer known and the index has to be rebuilt.
+     */
+    private boolean applyRemovals(MessageStore store, long removals) {
+        if (removals == removalsSeen) {
+            return true;
+        }
+        for (long r = removalsSeen; r < removals; r++) {
+            long position = store.getRemovalPosition(r);
+            if (position < 0) {
+                return false;
+            }
+            if (removedCount == removed.length) {
+                removed = Arrays.copyOf(removed, removedCount * 2);
+            }
+            removed[removedCount++] = position;
+            int index = (int) (position - base);
+            if (index >= 0 && index < count) {
+                System.arraycopy(values, index + 1, values, index, count - index - 1);
+                count--;
+            } else if (index < 0) {
+                base--;
+            }
+        }
+        rebuildTree();
+        return true;
+    }
+
+    private void reset(long headOffset) {
+        base = headOffset;
+        count = 0;
+        Arrays.fill(tree, 0);
+    }
+
+    private void compact(long headOffset) {
+        int dropped = (int) (headOffset - base);
+        System.arraycopy(values, dropped, values, 0, count - dropped);
+        count -= dropped;
+        base = headOffset;
+        rebuildTree();
+    }
+
+    private void rebuildTree() {
+        tree = new int[values.length + 1];
+        for (int i = 1; i <= count; i++) {
+            tree[i] += values[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= count) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
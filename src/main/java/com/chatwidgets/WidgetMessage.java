@@ -2,49 +2,107 @@ package com.chatwidgets;
 
 import net.runelite.api.ChatMessageType;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A chat message held in history. Histories can hold many thousands of these, so the layout is kept compact: the
+ * booleans, type, categories and fade duration are packed into one int, the duplicate count shares a long with the
+ * timestamp, and senders are shared through a pool. With compressed references that is a 40 byte object, down from
+ * 56 with a field per value. The text is kept as a string, since it is read for every visible message, and the JVM
+ * already stores Latin-1 strings a byte per character.
+ */
 public class WidgetMessage {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final ChatMessageType[] TYPES = ChatMessageType.values();
+
+    private static final int FLAG_OUTGOING = 1;
+    private static final int FLAG_PRIVATE = 1 << 1;
+    private static final int TYPE_SHIFT = 2;
+    private static final int TYPE_MASK = 0xff;
+    private static final int CATEGORIES_SHIFT = 10;
+    private static final int CATEGORIES_MASK = 0x3f;
+    private static final int FADE_SHIFT = 16;
+    private static final int FADE_MASK = 0xffff;
+
+    // milliseconds up to the year 2527
+    private static final int TIMESTAMP_BITS = 44;
+    private static final long TIMESTAMP_MASK = (1L << TIMESTAMP_BITS) - 1;
+    private static final int MAX_COUNT = (1 << (64 - TIMESTAMP_BITS)) - 1;
+
+    private static final int MAX_POOLED_SENDERS = 4096;
+    // least recently used senders are dropped first, so regular correspondents stay shared
+    private static final Map<String, String> SENDERS = new LinkedHashMap<String, String>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_POOLED_SENDERS;
+        }
+    };
+
+    private final long sequence;
+    // timestamp in the low bits, duplicate count in the high bits
+    private long timeAndCount;
     private final String message;
-    private final long timestamp;
-    private final ChatMessageType type;
-    private final boolean bossKc;
     private final String sender;
-    private final boolean outgoing;
-    private final boolean isPrivate;
-    private final int maxFadeSeconds;
-    private int count = 1;
+    // outgoing, private, type ordinal + 1, categories and max fade seconds
+    private final int flags;
 
-    public static WidgetMessage gameMessage(String message, long timestamp, ChatMessageType type, boolean bossKc) {
-        return new WidgetMessage(message, timestamp, type, bossKc, null, false, false, 0);
+    public static WidgetMessage gameMessage(String message, long timestamp, ChatMessageType type, int categories) {
+        return new WidgetMessage(message, timestamp, type, categories, null, false, false, 0);
     }
 
     public static WidgetMessage privateMessage(String sender, String message, long timestamp, boolean outgoing) {
         return new WidgetMessage(message, timestamp,
                 outgoing ? ChatMessageType.PRIVATECHATOUT : ChatMessageType.PRIVATECHAT,
-                false, sender, outgoing, true, 0);
+                0, sender, outgoing, true, 0);
+    }
+
+    public static WidgetMessage channelMessage(String sender, String message, long timestamp, ChatMessageType type) {
+        return new WidgetMessage(message, timestamp, type, 0, sender, false, false, 0);
     }
 
     public static WidgetMessage loginNotification(String sender, String message, long timestamp, int maxFadeSeconds) {
         return new WidgetMessage(message, timestamp, ChatMessageType.LOGINLOGOUTNOTIFICATION,
-                false, sender, false, true, maxFadeSeconds);
+                0, sender, false, true, maxFadeSeconds);
     }
 
-    private WidgetMessage(String message, long timestamp, ChatMessageType type, boolean bossKc,
+    /**
+     * Recreates a previously stored message, keeping its sequence number.
+     */
+    static WidgetMessage restore(long sequence, String message, long timestamp, ChatMessageType type,
+            int categories, String sender, boolean outgoing, boolean isPrivate, int maxFadeSeconds, int count) {
+        WidgetMessage restored = new WidgetMessage(sequence, message, timestamp, type, categories, sender,
+                outgoing, isPrivate, maxFadeSeconds);
+        restored.setCount(count);
+        SEQUENCE.accumulateAndGet(sequence, Math::max);
+        return restored;
+    }
+
+    private WidgetMessage(String message, long timestamp, ChatMessageType type, int categories,
             String sender, boolean outgoing, boolean isPrivate, int maxFadeSeconds) {
+        this(SEQUENCE.incrementAndGet(), message, timestamp, type, categories, sender, outgoing, isPrivate,
+                maxFadeSeconds);
+    }
+
+    private WidgetMessage(long sequence, String message, long timestamp, ChatMessageType type, int categories,
+            String sender, boolean outgoing, boolean isPrivate, int maxFadeSeconds) {
+        this.sequence = sequence;
+        this.timeAndCount = Math.max(0, Math.min(TIMESTAMP_MASK, timestamp)) | 1L << TIMESTAMP_BITS;
+        this.sender = internSender(sender);
         this.message = message;
-        this.timestamp = timestamp;
-        this.type = type;
-        this.bossKc = bossKc;
-        this.sender = sender;
-        this.outgoing = outgoing;
-        this.isPrivate = isPrivate;
-        this.maxFadeSeconds = maxFadeSeconds;
+        this.flags = (outgoing ? FLAG_OUTGOING : 0)
+                | (isPrivate ? FLAG_PRIVATE : 0)
+                | ((type != null ? type.ordinal() + 1 : 0) & TYPE_MASK) << TYPE_SHIFT
+                | (categories & CATEGORIES_MASK) << CATEGORIES_SHIFT
+                | (Math.max(0, Math.min(FADE_MASK, maxFadeSeconds)) << FADE_SHIFT);
     }
 
-    public WidgetMessage withMessage(String newMessage) {
-        WidgetMessage merged = new WidgetMessage(newMessage, this.timestamp, this.type, this.bossKc,
-                this.sender, this.outgoing, this.isPrivate, this.maxFadeSeconds);
-        merged.count = this.count;
-        return merged;
+    /**
+     * @return a number that increases with every message created, across all channels.
+     */
+    public long getSequence() {
+        return sequence;
     }
 
     public String getMessage() {
@@ -52,15 +110,20 @@ public class WidgetMessage {
     }
 
     public long getTimestamp() {
-        return timestamp;
+        return timeAndCount & TIMESTAMP_MASK;
     }
 
     public ChatMessageType getType() {
-        return type;
+        int ordinal = (flags >>> TYPE_SHIFT) & TYPE_MASK;
+        return ordinal == 0 || ordinal > TYPES.length ? null : TYPES[ordinal - 1];
+    }
+
+    public int getCategories() {
+        return (flags >>> CATEGORIES_SHIFT) & CATEGORIES_MASK;
     }
 
-    public boolean isBossKc() {
-        return bossKc;
+    public boolean hasCategory(MessageCategory category) {
+        return category.isSet(getCategories());
     }
 
     public String getSender() {
@@ -68,22 +131,65 @@ public class WidgetMessage {
     }
 
     public boolean isOutgoing() {
-        return outgoing;
+        return (flags & FLAG_OUTGOING) != 0;
     }
 
     public boolean isPrivate() {
-        return isPrivate;
+        return (flags & FLAG_PRIVATE) != 0;
     }
 
     public int getCount() {
-        return count;
+        return (int) (timeAndCount >>> TIMESTAMP_BITS);
     }
 
+    /**
+     * Counts one more duplicate, up to about a million.
+     */
     public void incrementCount() {
-        count++;
+        setCount(getCount() + 1);
+    }
+
+    private void setCount(int count) {
+        timeAndCount = getTimestamp() | (long) Math.max(1, Math.min(MAX_COUNT, count)) << TIMESTAMP_BITS;
     }
 
     public int getMaxFadeSeconds() {
-        return maxFadeSeconds;
+        return (flags >>> FADE_SHIFT) & FADE_MASK;
+    }
+
+    /**
+     * Rough heap footprint of this message, used for memory accounting. Senders are shared through the pool, so
+     * only the reference is counted.
+     */
+    public int estimateBytes() {
+        int bytes = 40;
+        if (message != null) {
+            // a compact string; text outside Latin-1 takes twice this
+            bytes += 40 + message.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Empties the sender pool, which is shared by every message in the JVM, so a stopped plugin doesn't keep the
+     * names alive. Messages still held keep their own references.
+     */
+    static void clearSenderPool() {
+        synchronized (SENDERS) {
+            SENDERS.clear();
+        }
+    }
+
+    /**
+     * @return the pooled copy of the sender, so the same name is held once however many messages it sent.
+     */
+    private static String internSender(String sender) {
+        if (sender == null) {
+            return null;
+        }
+        synchronized (SENDERS) {
+            String pooled = SENDERS.putIfAbsent(sender, sender);
+            return pooled != null ? pooled : sender;
+        }
     }
 }
@@ -0,0 +1,128 @@
+package com.chatwidgets;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Render metrics for one widget, over its most recent frames. Frames are recorded by the thread rendering the
+ * widget, and can be read from any thread.
+ */
+public class WidgetMetrics {
+    private static final int SAMPLES = 128;
+
+    private final String name;
+    private final PerformanceMetrics registry;
+    private final AtomicLongArray renderNanos = new AtomicLongArray(SAMPLES);
+    private final AtomicLongArray allocatedBytes = new AtomicLongArray(SAMPLES);
+    private final AtomicInteger frames = new AtomicInteger();
+    private final LongAdder totalRenderNanos = new LongAdder();
+    private final LongAdder totalFrames = new LongAdder();
+    private volatile int linesLaidOut;
+    private volatile int linesDrawn;
+
+    // only touched by the rendering thread
+    private long frameStart;
+    private boolean sampling;
+    private long allocationStart;
+
+    WidgetMetrics(String name, PerformanceMetrics registry) {
+        this.name = name;
+        this.registry = registry;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Starts timing a frame. Total render time is always kept; per-frame samples only while metrics are enabled.
+     */
+    public void beginFrame() {
+        sampling = registry.isEnabled();
+        if (sampling) {
+            allocationStart = PerformanceMetrics.allocatedBytes();
+        }
+        frameStart = System.nanoTime();
+    }
+
+    public void endFrame() {
+        long elapsed = System.nanoTime() - frameStart;
+        totalRenderNanos.add(elapsed);
+        totalFrames.increment();
+        if (!sampling) {
+            return;
+        }
+        long allocated = allocationStart < 0 ? 0 : PerformanceMetrics.allocatedBytes() - allocationStart;
+        int slot = frames.getAndIncrement() & (SAMPLES - 1);
+        renderNanos.set(slot, elapsed);
+        allocatedBytes.set(slot, allocated);
+        sampling = false;
+    }
+
+    /**
+     * Records how many lines the frame laid out and how many of those it drew.
+     */
+    public void recordLines(int laidOut, int drawn) {
+        if (sampling) {
+            linesLaidOut = laidOut;
+            linesDrawn = drawn;
+        }
+    }
+
+    /**
+     * @param percentile between 0 and 1.
+     * @return the render time at the percentile over recent frames, in nanoseconds.
+     */
+    public long getRenderNanos(double percentile) {
+        int count = Math.min(frames.get(), SAMPLES);
+        if (count == 0) {
+            return 0;
+        }
+        long[] samples = new long[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = renderNanos.get(i);
+        }
+        Arrays.sort(samples);
+        return samples[Math.min(count - 1, (int) (percentile * count))];
+    }
+
+    /**
+     * @return the average bytes allocated per frame over recent frames.
+     */
+    public long getAllocatedBytesPerFrame() {
+        int count = Math.min(frames.get(), SAMPLES);
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += allocatedBytes.get(i);
+        }
+        return total / count;
+    }
+
+    public int getFrames() {
+        return frames.get();
+    }
+
+    /**
+     * @return nanoseconds spent rendering the widget since it was created.
+     */
+    public long getTotalRenderNanos() {
+        return totalRenderNanos.sum();
+    }
+
+    public long getTotalFrames() {
+        return totalFrames.sum();
+    }
+
+    public int getLinesLaidOut() {
+        return linesLaidOut;
+    }
+
+    public int getLinesDrawn() {
+        return linesDrawn;
+    }
+}
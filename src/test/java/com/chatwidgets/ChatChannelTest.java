@@ -0,0 +1,41 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ChatChannelTest {
+    @Test
+    public void routesTypesToTheirChannel() {
+        assertEquals(ChatChannel.GAME, ChatChannel.forType(ChatMessageType.GAMEMESSAGE));
+        assertEquals(ChatChannel.GAME, ChatChannel.forType(ChatMessageType.SPAM));
+        assertEquals(ChatChannel.GAME, ChatChannel.forType(ChatMessageType.TRADEREQ));
+        assertEquals(ChatChannel.PRIVATE, ChatChannel.forType(ChatMessageType.PRIVATECHAT));
+        assertEquals(ChatChannel.PRIVATE, ChatChannel.forType(ChatMessageType.PRIVATECHATOUT));
+        assertEquals(ChatChannel.PRIVATE, ChatChannel.forType(ChatMessageType.LOGINLOGOUTNOTIFICATION));
+        assertEquals(ChatChannel.CLAN, ChatChannel.forType(ChatMessageType.CLAN_GIM_CHAT));
+        assertEquals(ChatChannel.FRIENDS_CHAT, ChatChannel.forType(ChatMessageType.FRIENDSCHAT));
+        assertEquals(ChatChannel.PUBLIC, ChatChannel.forType(ChatMessageType.MODCHAT));
+    }
+
+    @Test
+    public void ignoresUnroutedTypes() {
+        assertNull(ChatChannel.forType(ChatMessageType.TENSECTIMEOUT));
+        assertNull(ChatChannel.forType(ChatMessageType.NPC_SAY));
+        assertNull(ChatChannel.forType(null));
+    }
+
+    @Test
+    public void routesOnlyTheListedTypes() {
+        int routed = 0;
+        for (ChatMessageType type : ChatMessageType.values()) {
+            if (ChatChannel.forType(type) != null) {
+                routed++;
+            }
+        }
+        // 19 game, 4 private, 6 clan, 1 friends chat and 4 public types
+        assertEquals(34, routed);
+    }
+}
@@ -0,0 +1,136 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChatExporterTest {
+    private File directory;
+    private ChatExporter exporter;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("chat-export-test").toFile();
+        exporter = new ChatExporter(directory);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        exporter.stop();
+        // let the writer close its file before it is deleted
+        Thread.sleep(300);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void escapesJsonStrings() {
+        assertEquals("\"say \\\"hi\\\" \\\\ bye\"", string("say \"hi\" \\ bye", false));
+        assertEquals("\"a\\nb\\rc\\td\"", string("a\nb\rc\td", false));
+        assertEquals("\"\\u0001\\u001f é\"", string("\u0001\u001f é", false));
+        assertEquals("null", string(null, true));
+    }
+
+    @Test
+    public void stripsTagsFromText() {
+        assertEquals("\"Welcome to Gielinor.\"", string("<col=ff0000>Welcome</col> to <img=1>Gielinor.", true));
+        assertEquals("\"line one line two\"", string("line one<br>line two", true));
+        // an unclosed bracket is text, not a tag
+        assertEquals("\"1 < 2\"", string("1 < 2", true));
+        assertEquals("\"<col=ff0000>red</col>\"", string("<col=ff0000>red</col>", false));
+    }
+
+    @Test
+    public void exportsMessagesAsJsonLines() throws Exception {
+        MessageStore store = new MessageStore(10);
+        store.addJournal(exporter.journal(ChatChannel.GAME));
+        exporter.start(0);
+        store.add(WidgetMessage.gameMessage("<col=ff0000>Oh \"dear\"</col>", 1000, ChatMessageType.GAMEMESSAGE, 0));
+        store.set(0, WidgetMessage.gameMessage("you are dead", 2000, ChatMessageType.GAMEMESSAGE, 0));
+        exporter.stop();
+
+        List<String> lines = awaitLines(2);
+        assertTrue(lines.get(0).startsWith("{\"seq\":"));
+        assertTrue(lines.get(0).contains(",\"ts\":1000,\"channel\":\"GAME\",\"type\":\"GAMEMESSAGE\",\"sender\":null,"
+                + "\"text\":\"Oh \\\"dear\\\"\",\"raw\":\"<col=ff0000>Oh \\\"dear\\\"</col>\",\"count\":1}"));
+        assertTrue(lines.get(1).endsWith(",\"text\":\"you are dead\",\"raw\":\"you are dead\",\"count\":1,"
+                + "\"replaced\":true}"));
+        // the count is updated just after the batch is written
+        long deadline = System.currentTimeMillis() + 5000;
+        while (exporter.getExported() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, exporter.getExported());
+    }
+
+    @Test
+    public void keepsExportingWhileTheSocketReaderIsStalled() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            MessageStore store = new MessageStore(10);
+            store.addJournal(exporter.journal(ChatChannel.GAME));
+            exporter.start(server.getLocalPort());
+
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 1024; i++) {
+                text.append('x');
+            }
+            // the connection is never accepted, so nothing reads from it once the socket buffers are full
+            long deadline = System.currentTimeMillis() + 10000;
+            while (exporter.getSocketDropped() == 0 && System.currentTimeMillis() < deadline) {
+                for (int i = 0; i < 256; i++) {
+                    store.add(WidgetMessage.gameMessage(text.toString(), i, ChatMessageType.GAMEMESSAGE, 0));
+                }
+                Thread.sleep(5);
+            }
+            assertTrue(exporter.getSocketDropped() > 0);
+
+            // the writer isn't stuck on the socket, so it finishes and a new export can start
+            exporter.stop();
+            exporter.start(0);
+            assertTrue(exporter.isRunning());
+        }
+    }
+
+    private static String string(String value, boolean stripTags) {
+        StringBuilder json = new StringBuilder();
+        ChatExporter.appendString(json, value, stripTags);
+        return json.toString();
+    }
+
+    private List<String> awaitLines(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<String> lines = new ArrayList<>();
+        while (System.currentTimeMillis() < deadline) {
+            lines.clear();
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    lines.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+                }
+            }
+            if (lines.size() >= count) {
+                break;
+            }
+            Thread.sleep(20);
+        }
+        assertEquals(count, lines.size());
+        return lines;
+    }
+}
@@ -0,0 +1,168 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.chatwidgets.MessageCodecTest.assertMessageEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChatLogTest {
+    private File directory;
+    private ChatLog log;
+    private MessageStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("chat-log-test").toFile();
+        log = new ChatLog(directory);
+        store = new MessageStore(10000);
+    }
+
+    @After
+    public void tearDown() {
+        log.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void restoresTheLatestMessagesPerChannel() {
+        open(10);
+        MessageStore privateStore = new MessageStore(100);
+        privateStore.addJournal(log.journal(ChatChannel.PRIVATE));
+        List<WidgetMessage> game = add(20, 16);
+        WidgetMessage pm = WidgetMessage.privateMessage("Zezima", "hello", 5L, false);
+        privateStore.add(pm);
+
+        Map<ChatChannel, List<WidgetMessage>> restored = reopen(10);
+
+        assertMessages(game.subList(10, 20), restored.get(ChatChannel.GAME));
+        assertMessages(Arrays.asList(pm), restored.get(ChatChannel.PRIVATE));
+    }
+
+    @Test
+    public void replaysRemovesAndReplacements() {
+        open(5);
+        List<WidgetMessage> live = add(20, 16);
+        for (int i = 0; i < 3; i++) {
+            store.remove(store.size() - 1);
+            live.remove(live.size() - 1);
+        }
+        WidgetMessage replacement = WidgetMessage.gameMessage("replaced", 99L, ChatMessageType.GAMEMESSAGE, 0);
+        store.set(store.size() - 1, replacement);
+        live.set(live.size() - 1, replacement);
+
+        Map<ChatChannel, List<WidgetMessage>> restored = reopen(5);
+
+        assertMessages(live.subList(live.size() - 5, live.size()), restored.get(ChatChannel.GAME));
+    }
+
+    @Test
+    public void restoresAfterCompaction() {
+        open(50);
+        // several full segments of large messages, enough for the sealed ones to be compacted
+        List<WidgetMessage> live = add(1500, 4000);
+        for (int i = 0; i < 10; i++) {
+            store.remove(store.size() - 2);
+            live.remove(live.size() - 2);
+        }
+
+        // the second open finds more sealed segments than it keeps and compacts them on its writer, which the
+        // third open waits for
+        List<WidgetMessage> expected = live.subList(live.size() - 50, live.size());
+        for (int i = 0; i < 3; i++) {
+            assertMessages(expected, reopen(50).get(ChatChannel.GAME));
+        }
+        File[] segments = directory.listFiles((dir, name) -> name.endsWith(".log"));
+        assertTrue("segments left: " + segments.length, segments.length <= 3);
+    }
+
+    @Test
+    public void keepsLoggingAcrossRestarts() {
+        open(100);
+        List<WidgetMessage> live = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            live.addAll(add(10, 16));
+            log.close();
+            // let the previous writer go idle before the next session starts
+            sleep(300);
+            assertMessages(live, log.open(channel -> 100).get(ChatChannel.GAME));
+        }
+    }
+
+    @Test
+    public void ignoresATornRecordAtTheEnd() throws IOException {
+        open(10);
+        List<WidgetMessage> live = add(5, 16);
+        reopen(10);
+        log.close();
+        sleep(300);
+        File[] segments = directory.listFiles((dir, name) -> name.endsWith(".log"));
+        Arrays.sort(segments);
+        File last = segments[segments.length - 1];
+        // a record header claiming more bytes than were written
+        Files.write(last.toPath(), new byte[]{0, 0, 1, 0, 0, 0, 42}, StandardOpenOption.APPEND);
+
+        assertMessages(live, log.open(channel -> 10).get(ChatChannel.GAME));
+    }
+
+    private void open(int limit) {
+        log.open(channel -> limit);
+        store.addJournal(log.journal(ChatChannel.GAME));
+    }
+
+    /**
+     * Closes the log and opens it again, which waits for everything queued to be written.
+     */
+    private Map<ChatChannel, List<WidgetMessage>> reopen(int limit) {
+        log.close();
+        return log.open(channel -> limit);
+    }
+
+    private List<WidgetMessage> add(int count, int length) {
+        StringBuilder padding = new StringBuilder();
+        while (padding.length() < length) {
+            padding.append("You catch a lobster. ");
+        }
+        List<WidgetMessage> added = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            WidgetMessage msg = WidgetMessage.gameMessage(i + " " + padding.substring(0, length), i,
+                    ChatMessageType.SPAM, 0);
+            store.add(msg);
+            added.add(msg);
+        }
+        return added;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertMessages(List<WidgetMessage> expected, List<WidgetMessage> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertMessageEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.events.ChatMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChatRecorderTest {
+    private File directory;
+    private ChatRecorder recorder;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("chat-recorder-test").toFile();
+        recorder = new ChatRecorder(directory);
+    }
+
+    @After
+    public void tearDown() {
+        recorder.stop();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void readsBackWhatWasRecorded() throws Exception {
+        recorder.start();
+        assertTrue(recorder.isRunning());
+        recorder.record(event(ChatMessageType.GAMEMESSAGE, "", null, "Welcome to <col=ff0000>Gielinor</col>."));
+        recorder.record(event(ChatMessageType.PUBLICCHAT, "Zezima", null, "hi"));
+        recorder.record(event(ChatMessageType.FRIENDSCHAT, "Lynx Titan", "Friends", "été"));
+        recorder.stop();
+        assertFalse(recorder.isRunning());
+
+        List<ChatRecorder.Recording> recordings = awaitRecordings(recorder.getFile(), 3);
+        assertEquals(0, recordings.get(0).getTime());
+        assertEquals(ChatMessageType.GAMEMESSAGE, recordings.get(0).getType());
+        assertEquals("", recordings.get(0).getName());
+        assertNull(recordings.get(0).getSender());
+        assertEquals("Welcome to <col=ff0000>Gielinor</col>.", recordings.get(0).getMessage());
+        assertEquals("Zezima", recordings.get(1).getName());
+        assertEquals("Friends", recordings.get(2).getSender());
+        assertEquals("été", recordings.get(2).getMessage());
+        assertTrue(recordings.get(2).getTime() >= recordings.get(1).getTime());
+
+        ChatMessage replayed = recordings.get(1).toEvent();
+        assertEquals(ChatMessageType.PUBLICCHAT, replayed.getType());
+        assertEquals("hi", replayed.getMessage());
+        assertEquals(0, recorder.getDropped());
+    }
+
+    @Test
+    public void restartingStartsAFreshRecording() throws Exception {
+        recorder.start();
+        recorder.record(event(ChatMessageType.GAMEMESSAGE, "", null, "first"));
+        recorder.stop();
+        File first = recorder.getFile();
+
+        recorder.start();
+        assertTrue(recorder.isRunning());
+        recorder.record(event(ChatMessageType.GAMEMESSAGE, "", null, "second"));
+        recorder.record(event(ChatMessageType.GAMEMESSAGE, "", null, "third"));
+        recorder.stop();
+
+        assertNotEquals(first, recorder.getFile());
+        assertEquals("first", awaitRecordings(first, 1).get(0).getMessage());
+        List<ChatRecorder.Recording> second = awaitRecordings(recorder.getFile(), 2);
+        assertEquals("second", second.get(0).getMessage());
+        assertEquals("third", second.get(1).getMessage());
+    }
+
+    @Test
+    public void ignoresMessagesWhileStopped() throws Exception {
+        recorder.record(event(ChatMessageType.GAMEMESSAGE, "", null, "before"));
+        recorder.start();
+        recorder.stop();
+        recorder.record(event(ChatMessageType.GAMEMESSAGE, "", null, "after"));
+
+        assertEquals(0, awaitRecordings(recorder.getFile(), 0).size());
+        assertEquals(0, recorder.getDropped());
+    }
+
+    private static ChatMessage event(ChatMessageType type, String name, String sender, String message) {
+        ChatMessage event = new ChatMessage();
+        event.setType(type);
+        event.setName(name);
+        event.setSender(sender);
+        event.setMessage(message);
+        return event;
+    }
+
+    /**
+     * Reads the recording once the background writer has written at least {@code count} messages and closed it.
+     */
+    private static List<ChatRecorder.Recording> awaitRecordings(File file, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                List<ChatRecorder.Recording> recordings = ChatRecorder.read(file);
+                if (recordings.size() >= count || System.currentTimeMillis() > deadline) {
+                    assertEquals(count, recordings.size());
+                    return recordings;
+                }
+            } catch (IOException e) {
+                // the header isn't flushed until the writer closes the file
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChatSearchIndexTest {
+    private MessageStore store;
+    private ChatSearchIndex index;
+
+    @Before
+    public void setUp() {
+        store = new MessageStore(100);
+        index = new ChatSearchIndex(store);
+        store.addJournal(index);
+    }
+
+    @Test
+    public void matchesWordPrefixes() {
+        add("Your <col=ff0000>Vorkath</col> kill count is: 12.");
+        add("You catch a lobster.");
+        store.add(WidgetMessage.privateMessage("Lynx Titan", "vorkath trip?", 3L, false));
+
+        assertEquals(texts("Your <col=ff0000>Vorkath</col> kill count is: 12.", "vorkath trip?"), search("vork"));
+        assertEquals(texts("You catch a lobster."), search("lob CATCH"));
+        assertEquals(texts("vorkath trip?"), search("from:lynx vork"));
+        assertEquals(texts(), search("col"));
+    }
+
+    @Test
+    public void matchesPhrasesInOrder() {
+        add("You have 3 doses of potion left.");
+        add("Potion doses: you have 3 left.");
+
+        assertEquals(texts("You have 3 doses of potion left."), search("\"have 3 doses\""));
+        assertEquals(texts("Potion doses: you have 3 left."), search("\"doses you\""));
+        assertEquals(texts(), search("\"3 have\""));
+    }
+
+    @Test
+    public void followsReplacedMessages() {
+        add("You eat the shark.");
+        add("Something else.");
+        store.set(0, WidgetMessage.gameMessage("You eat the shark. It heals some health.", 2L,
+                ChatMessageType.SPAM, 0));
+
+        assertEquals(texts("You eat the shark. It heals some health."), search("heal"));
+        assertEquals(texts("You eat the shark. It heals some health."), search("\"eat the shark\""));
+
+        store.set(0, WidgetMessage.gameMessage("You drink some of your prayer potion.", 3L,
+                ChatMessageType.SPAM, 0));
+
+        assertEquals(texts(), search("shark"));
+        assertEquals(texts("You drink some of your prayer potion."), search("\"prayer potion\""));
+    }
+
+    @Test
+    public void dropsRemovedMessages() {
+        add("You catch a lobster.");
+        add("You catch a shark.");
+        long before = index.estimateBytes();
+
+        store.remove(0);
+
+        assertEquals(texts("You catch a shark."), search("catch"));
+        assertEquals(texts(), search("lobster"));
+        assertTrue(index.estimateBytes() < before);
+    }
+
+    @Test
+    public void returnsTheMostRecentMatchesOldestFirst() {
+        for (int i = 0; i < 10; i++) {
+            add("drop " + i);
+        }
+
+        assertEquals(texts("drop 7", "drop 8", "drop 9"), texts(index.search(ChatSearchQuery.parse("drop"), 3)));
+    }
+
+    @Test
+    public void rebuildsOnTheFirstSearchAfterInvalidate() {
+        store.setArchive(new MessageArchive(MessageArchive.BLOCK_SIZE * 2));
+        store.setCapacity(10);
+        for (int i = 0; i < MessageArchive.BLOCK_SIZE + 20; i++) {
+            add("drop " + i);
+        }
+        index.invalidate();
+        int version = index.getVersion();
+        add("You catch a lobster.");
+        store.remove(store.size() - 2);
+
+        assertTrue(index.getVersion() != version);
+        assertEquals(texts("You catch a lobster."), search("lobster"));
+        assertEquals(texts("drop 0"), search("\"drop 0\""));
+        assertEquals(texts(), search("\"drop " + (MessageArchive.BLOCK_SIZE + 19) + "\""));
+    }
+
+    private void add(String text) {
+        store.add(WidgetMessage.gameMessage(text, store.size(), ChatMessageType.GAMEMESSAGE, 0));
+    }
+
+    private List<String> search(String query) {
+        return texts(index.search(ChatSearchQuery.parse(query), 100));
+    }
+
+    private static List<String> texts(List<WidgetMessage> messages) {
+        List<String> texts = new ArrayList<>(messages.size());
+        for (WidgetMessage msg : messages) {
+            texts.add(msg.getMessage());
+        }
+        return texts;
+    }
+
+    private static List<String> texts(String... texts) {
+        List<String> list = new ArrayList<>(texts.length);
+        for (String text : texts) {
+            list.add(text);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,78 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChatWidgetDefinitionTest {
+    @Test
+    public void parsesFiltersAndOptions() {
+        ChatWidgetDefinition definition = ChatWidgetDefinition.parse(
+                " Loot : boss kc, Valuable drop , trade; width=400; max=8; fade=20; colour=#ff0000; "
+                        + "background=#80000000");
+
+        assertEquals("Loot", definition.getName());
+        assertEquals(EnumSet.of(ChatChannel.GAME), definition.getChannels());
+        assertEquals(400, definition.getWidth());
+        assertEquals(8, definition.getMaxMessages());
+        assertEquals(20, definition.getFadeOutSeconds());
+        assertEquals(new Color(255, 0, 0), definition.getTextColor());
+        assertEquals(new Color(0, 0, 0, 0x80), definition.getBackgroundColor());
+    }
+
+    @Test
+    public void acceptsWholeChannelsTypesAndCategories() {
+        ChatWidgetDefinition definition = ChatWidgetDefinition.parse("Mixed: clan, tradereq, boss_kc");
+
+        assertEquals(EnumSet.of(ChatChannel.GAME, ChatChannel.CLAN), definition.getChannels());
+        assertTrue(definition.accepts(ChatChannel.CLAN,
+                WidgetMessage.channelMessage("Zezima", "hi", 0, ChatMessageType.CLAN_CHAT)));
+        assertTrue(definition.accepts(ChatChannel.GAME,
+                WidgetMessage.gameMessage("Zezima wishes to trade with you.", 0, ChatMessageType.TRADEREQ, 0)));
+        assertTrue(definition.accepts(ChatChannel.GAME, WidgetMessage.gameMessage("Your Zulrah kill count is: 5.", 0,
+                ChatMessageType.GAMEMESSAGE, MessageCategory.BOSS_KC.mask())));
+        assertFalse(definition.accepts(ChatChannel.GAME,
+                WidgetMessage.gameMessage("You catch a lobster.", 0, ChatMessageType.SPAM, 0)));
+    }
+
+    @Test
+    public void fallsBackOrClampsBadOptions() {
+        ChatWidgetDefinition definition = ChatWidgetDefinition.parse(
+                "PMs: private; width=10; max=500; fade=-3; colour=red; background; unknown=1");
+
+        assertEquals(150, definition.getWidth());
+        assertEquals(50, definition.getMaxMessages());
+        assertEquals(0, definition.getFadeOutSeconds());
+        assertEquals(Color.WHITE, definition.getTextColor());
+        assertEquals(new Color(0, 0, 0, 0), definition.getBackgroundColor());
+    }
+
+    @Test
+    public void skipsLinesWithoutANameOrFilter() {
+        assertNull(ChatWidgetDefinition.parse(""));
+        assertNull(ChatWidgetDefinition.parse("# Loot: game"));
+        assertNull(ChatWidgetDefinition.parse(": game"));
+        assertNull(ChatWidgetDefinition.parse("Nothing: nonsense, more nonsense"));
+        assertNull(ChatWidgetDefinition.parse("No colon game"));
+    }
+
+    @Test
+    public void parsesOneDefinitionPerUniqueName() {
+        List<ChatWidgetDefinition> definitions = ChatWidgetDefinition.parseAll(
+                "Loot: drop\r\n\n# comment\nloot: game\nClan: clan; max=3");
+
+        assertEquals(2, definitions.size());
+        assertEquals("Loot", definitions.get(0).getName());
+        assertEquals("Clan", definitions.get(1).getName());
+        assertEquals(3, definitions.get(1).getMaxMessages());
+        assertTrue(ChatWidgetDefinition.parseAll(null).isEmpty());
+    }
+}
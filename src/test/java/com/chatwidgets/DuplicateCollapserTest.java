@@ -0,0 +1,74 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class DuplicateCollapserTest {
+    @Test
+    public void exactKeysOnlyStripTags() {
+        assertEquals("Your kill count is: 12.", DuplicateCollapser.key("Your kill count is: <col=ff0000>12</col>.",
+                false));
+        assertNotEquals(DuplicateCollapser.key("You have 3 doses left.", false),
+                DuplicateCollapser.key("You have 2 doses left.", false));
+        assertEquals("", DuplicateCollapser.key(null, false));
+    }
+
+    @Test
+    public void templatesReplaceWholeNumbers() {
+        assertEquals("Your Vorkath kill count is: #.",
+                DuplicateCollapser.key("Your Vorkath kill count is: <col=ff0000>1,234</col>.", true));
+        assertEquals("Fight duration: #:#. Personal best: #:#",
+                DuplicateCollapser.key("Fight duration: 1:23.40. Personal best: 0:59.00", true));
+        assertEquals("You have # doses of potion left.",
+                DuplicateCollapser.key("You have 3 doses of potion left.", true));
+        // a separator not followed by a digit ends the number
+        assertEquals("# coins, #.", DuplicateCollapser.key("1,000 coins, 2.", true));
+    }
+
+    @Test
+    public void templatesReplaceQuotedText() {
+        assertEquals("The \"\" music track has been unlocked.",
+                DuplicateCollapser.key("The <col=00ff00>\"Zezima\"</col> music track has been unlocked.", true));
+        assertEquals(DuplicateCollapser.key("You say \"hi\" to Bob #1", true),
+                DuplicateCollapser.key("You say \"hello there\" to Bob #22", true));
+        // an unclosed quote is kept as an empty pair and the rest of the text still counts
+        assertEquals("Unclosed \"\"quote", DuplicateCollapser.key("Unclosed \"quote", true));
+    }
+
+    @Test
+    public void findsTheNewestMatchingMessage() {
+        MessageStore store = new MessageStore(100);
+        DuplicateCollapser collapser = new DuplicateCollapser(store);
+        collapser.setTemplates(true);
+        store.addJournal(collapser);
+        store.add(WidgetMessage.gameMessage("Your kill count is: 1.", 1L, ChatMessageType.GAMEMESSAGE, 0));
+        store.add(WidgetMessage.gameMessage("You catch a lobster.", 2L, ChatMessageType.SPAM, 0));
+        store.add(WidgetMessage.gameMessage("Your kill count is: 2.", 3L, ChatMessageType.GAMEMESSAGE, 0));
+
+        assertEquals(2, collapser.find("Your kill count is: <col=ff0000>3</col>."));
+        assertEquals(1, collapser.find("You catch a lobster."));
+        assertEquals(-1, collapser.find("You catch a shark."));
+
+        store.remove(2);
+        assertEquals(-1, collapser.find("Your kill count is: 3."));
+    }
+
+    @Test
+    public void dropsKeysOfEvictedMessages() {
+        MessageStore store = new MessageStore(2);
+        DuplicateCollapser collapser = new DuplicateCollapser(store);
+        store.addJournal(collapser);
+        store.add(WidgetMessage.gameMessage("first", 0, ChatMessageType.GAMEMESSAGE, 0));
+        store.add(WidgetMessage.gameMessage("second", 0, ChatMessageType.GAMEMESSAGE, 0));
+        long twoKeys = collapser.estimateBytes();
+
+        store.add(WidgetMessage.gameMessage("third", 0, ChatMessageType.GAMEMESSAGE, 0));
+        assertEquals(-1, collapser.find("first"));
+        assertEquals(0, collapser.find("second"));
+        assertEquals(1, collapser.find("third"));
+        assertEquals(twoKeys, collapser.estimateBytes());
+    }
+}
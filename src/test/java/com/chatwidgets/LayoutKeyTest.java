@@ -0,0 +1,68 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class LayoutKeyTest {
+    @Test
+    public void equalInputsMakeEqualKeys() {
+        LayoutKey a = key("game", 300, Color.WHITE, true);
+        LayoutKey b = key("game", 300, new Color(255, 255, 255), true);
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(new LayoutKey("private", 200, FontSize.SMALL, false, false, null, null, null, false, null, false),
+                new LayoutKey("private", 200, FontSize.SMALL, false, false, null, null, null, false, null, false));
+    }
+
+    @Test
+    public void everyInputIsPartOfTheKey() {
+        LayoutKey base = key("game", 300, Color.WHITE, true);
+
+        assertNotEquals(base, key("custom", 300, Color.WHITE, true));
+        assertNotEquals(base, key("game", 301, Color.WHITE, true));
+        assertNotEquals(base, key("game", 300, Color.RED, true));
+        assertNotEquals(base, key("game", 300, Color.WHITE, false));
+        assertNotEquals(base, new LayoutKey("game", 300, FontSize.SMALL, true, true, "[HH:mm]", Color.WHITE,
+                Color.CYAN, true, Color.YELLOW, false));
+        assertNotEquals(base, new LayoutKey("game", 300, FontSize.REGULAR, false, true, "[HH:mm]", Color.WHITE,
+                Color.CYAN, true, Color.YELLOW, false));
+        assertNotEquals(base, new LayoutKey("game", 300, FontSize.REGULAR, true, false, "[HH:mm]", Color.WHITE,
+                Color.CYAN, true, Color.YELLOW, false));
+        assertNotEquals(base, new LayoutKey("game", 300, FontSize.REGULAR, true, true, "[HH:mm:ss]", Color.WHITE,
+                Color.CYAN, true, Color.YELLOW, false));
+        assertNotEquals(base, new LayoutKey("game", 300, FontSize.REGULAR, true, true, "[HH:mm]", Color.WHITE,
+                Color.BLUE, true, Color.YELLOW, false));
+        assertNotEquals(base, new LayoutKey("game", 300, FontSize.REGULAR, true, true, "[HH:mm]", Color.WHITE,
+                Color.CYAN, false, Color.YELLOW, false));
+        assertNotEquals(base, new LayoutKey("game", 300, FontSize.REGULAR, true, true, "[HH:mm]", Color.WHITE,
+                Color.CYAN, true, null, false));
+        assertNotEquals(base, new LayoutKey("game", 300, FontSize.REGULAR, true, true, "[HH:mm]", Color.WHITE,
+                Color.CYAN, true, Color.YELLOW, true));
+    }
+
+    @Test
+    public void cachesLinesPerMessageAndKey() {
+        LayoutCache cache = new LayoutCache();
+        WidgetMessage msg = WidgetMessage.gameMessage("You catch a lobster.", 0, ChatMessageType.SPAM, 0);
+
+        cache.get(msg, key("game", 300, Color.WHITE, true), m -> Collections.emptyList());
+        cache.get(msg, key("game", 300, new Color(255, 255, 255), true), m -> Collections.emptyList());
+        cache.get(msg, key("game", 200, Color.WHITE, true), m -> Collections.emptyList());
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    private static LayoutKey key(String layout, int width, Color textColor, boolean showTimestamp) {
+        return new LayoutKey(layout, width, FontSize.REGULAR, true, showTimestamp, "[HH:mm]", textColor, Color.CYAN,
+                true, Color.YELLOW, false);
+    }
+}
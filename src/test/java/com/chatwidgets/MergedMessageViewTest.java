@@ -0,0 +1,70 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MergedMessageViewTest {
+    private final MergedMessageView view = new MergedMessageView();
+
+    @Test
+    public void interleavesBySequence() {
+        WidgetMessage g1 = game("g1");
+        WidgetMessage p1 = pm("p1");
+        WidgetMessage p2 = pm("p2");
+        WidgetMessage g2 = game("g2");
+        WidgetMessage g3 = game("g3");
+        WidgetMessage p3 = pm("p3");
+
+        List<WidgetMessage> merged = view.merge(Arrays.asList(Arrays.asList(g1, g2, g3), Arrays.asList(p1, p2, p3)));
+
+        assertEquals(Arrays.asList(g1, p1, p2, g2, g3, p3), merged);
+    }
+
+    @Test
+    public void handlesEmptySources() {
+        WidgetMessage g1 = game("g1");
+        WidgetMessage g2 = game("g2");
+
+        assertEquals(Arrays.asList(g1, g2),
+                view.merge(Arrays.asList(Arrays.asList(g1, g2), Collections.<WidgetMessage>emptyList())));
+        assertEquals(Collections.emptyList(), view.merge(Arrays.asList(Collections.<WidgetMessage>emptyList(),
+                Collections.<WidgetMessage>emptyList())));
+    }
+
+    @Test
+    public void reusesTheMergeWhileTheSourcesAreUnchanged() {
+        List<WidgetMessage> game = new ArrayList<>(Arrays.asList(game("g1"), game("g2")));
+        List<WidgetMessage> pms = new ArrayList<>(Collections.singletonList(pm("p1")));
+
+        List<WidgetMessage> first = view.merge(Arrays.asList(game, pms));
+        assertSame(first, view.merge(Arrays.asList(new ArrayList<>(game), new ArrayList<>(pms))));
+
+        WidgetMessage p2 = pm("p2");
+        pms.add(p2);
+        List<WidgetMessage> second = view.merge(Arrays.asList(game, pms));
+        assertNotSame(first, second);
+        assertEquals(p2, second.get(3));
+
+        // a window sliding forward by one keeps its size but changes its ends
+        game.remove(0);
+        game.add(game("g3"));
+        assertEquals(game.get(1), view.merge(Arrays.asList(game, pms)).get(3));
+    }
+
+    private static WidgetMessage game(String text) {
+        return WidgetMessage.gameMessage(text, 0, ChatMessageType.GAMEMESSAGE, 0);
+    }
+
+    private static WidgetMessage pm(String text) {
+        return WidgetMessage.privateMessage("Zezima", text, 0, false);
+    }
+}
@@ -0,0 +1,114 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.chatwidgets.MessageCodecTest.assertMessageEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MessageArchiveTest {
+    private static final int BLOCK_SIZE = MessageArchive.BLOCK_SIZE;
+
+    @Test
+    public void readsBackAcrossBlockBoundaries() {
+        MessageArchive archive = new MessageArchive(BLOCK_SIZE * 4);
+        List<WidgetMessage> added = addMessages(archive, BLOCK_SIZE * 2 + 10);
+
+        assertEquals(added.size(), archive.size());
+        // the last message of one block, the first of the next and a staged one
+        for (int index : new int[]{0, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE * 2 - 1, BLOCK_SIZE * 2,
+                added.size() - 1}) {
+            assertMessageEquals(added.get(index), archive.get(index));
+        }
+        for (int i = 0; i < added.size(); i++) {
+            assertEquals(i, archive.indexOfSequence(added.get(i).getSequence()));
+        }
+    }
+
+    @Test
+    public void evictsWholeBlocksPastCapacity() {
+        MessageArchive archive = new MessageArchive(BLOCK_SIZE * 2);
+        List<WidgetMessage> added = new ArrayList<>();
+        int dropped = 0;
+        for (int i = 0; i < BLOCK_SIZE * 4; i++) {
+            WidgetMessage msg = message(i);
+            added.add(msg);
+            dropped += archive.add(msg);
+        }
+
+        assertEquals(added.size(), dropped + archive.size());
+        assertEquals(0, dropped % BLOCK_SIZE);
+        for (int i = 0; i < archive.size(); i++) {
+            assertMessageEquals(added.get(dropped + i), archive.get(i));
+        }
+        assertEquals(-1, archive.indexOfSequence(added.get(dropped - 1).getSequence()));
+    }
+
+    @Test
+    public void storeReadsArchiveThenRecent() {
+        MessageStore store = new MessageStore(50);
+        store.setArchive(new MessageArchive(BLOCK_SIZE * 2));
+        List<WidgetMessage> added = new ArrayList<>();
+        for (int i = 0; i < BLOCK_SIZE * 3; i++) {
+            WidgetMessage msg = message(i);
+            added.add(msg);
+            store.add(msg);
+        }
+
+        int first = (int) store.getHeadOffset();
+        assertEquals(added.size() - first, store.historySize());
+        for (int i = 0; i < store.historySize(); i++) {
+            WidgetMessage expected = added.get(first + i);
+            assertMessageEquals(expected, store.getFromHistory(i));
+            assertEquals(i, store.indexOfSequence(expected.getSequence()));
+        }
+    }
+
+    @Test
+    public void trimsToBytesFromTheOldestBlock() {
+        MessageArchive archive = new MessageArchive(BLOCK_SIZE * 8);
+        List<WidgetMessage> added = addMessages(archive, BLOCK_SIZE * 4);
+
+        int dropped = archive.trimToBytes(archive.getEstimatedBytes() / 2);
+
+        assertEquals(0, dropped % BLOCK_SIZE);
+        assertEquals(added.size() - dropped, archive.size());
+        assertMessageEquals(added.get(dropped), archive.get(0));
+    }
+
+    @Test
+    public void keepsWorkingAfterClose() {
+        MessageArchive archive = new MessageArchive(BLOCK_SIZE * 4);
+        List<WidgetMessage> added = addMessages(archive, BLOCK_SIZE + 10);
+
+        archive.close();
+        assertMessageEquals(added.get(0), archive.get(0));
+        archive.close();
+        added.addAll(addMessages(archive, BLOCK_SIZE));
+        archive.close();
+
+        assertEquals(added.size(), archive.size());
+        assertMessageEquals(added.get(BLOCK_SIZE + 5), archive.get(BLOCK_SIZE + 5));
+    }
+
+    private static List<WidgetMessage> addMessages(MessageArchive archive, int count) {
+        List<WidgetMessage> added = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            WidgetMessage msg = message(i);
+            added.add(msg);
+            archive.add(msg);
+        }
+        return added;
+    }
+
+    private static WidgetMessage message(int i) {
+        if (i % 3 == 0) {
+            return WidgetMessage.privateMessage("Player " + (i % 7), "message " + i + " ☃", i, i % 2 == 0);
+        }
+        return WidgetMessage.gameMessage("<col=ef1020>Valuable drop: Coins (" + i + ")</col>", i,
+                i % 2 == 0 ? ChatMessageType.GAMEMESSAGE : ChatMessageType.SPAM, 0);
+    }
+}
@@ -0,0 +1,36 @@
+package com.chatwidgets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MessageClassifierTest {
+    @Test
+    public void matchesEachCategory() {
+        assertEquals(MessageCategory.BOSS_KC.mask(), MessageClassifier.classify("Your Vorkath kill count is: 12."));
+        assertEquals(MessageCategory.PERSONAL_BEST.mask(),
+                MessageClassifier.classify("Fight duration: 1:23.40. Personal best: 0:59.00"));
+        assertEquals(MessageCategory.DROP.mask(), MessageClassifier.classify("Valuable drop: Dragon bones (3,000 coins)"));
+        assertEquals(MessageCategory.DROP.mask(), MessageClassifier.classify("Untradeable drop: Pet snakeling"));
+        assertEquals(MessageCategory.COLLECTION_LOG.mask(),
+                MessageClassifier.classify("New item added to your collection log: Dragon pickaxe"));
+        assertEquals(MessageCategory.CLUE_COUNT.mask(),
+                MessageClassifier.classify("You have completed 5 master Treasure Trails."));
+    }
+
+    @Test
+    public void combinesEveryCategoryInTheMessage() {
+        int categories = MessageClassifier.classify(
+                "Your Zulrah kill count is: 100. Fight duration: 1:00 (new personal best)");
+
+        assertEquals(MessageCategory.BOSS_KC.mask() | MessageCategory.PERSONAL_BEST.mask(), categories);
+    }
+
+    @Test
+    public void leavesOtherMessagesUncategorised() {
+        assertEquals(0, MessageClassifier.classify("You catch a lobster."));
+        assertEquals(0, MessageClassifier.classify("your kill count is: 12"));
+        assertEquals(0, MessageClassifier.classify(""));
+        assertEquals(0, MessageClassifier.classify(null));
+    }
+}
@@ -0,0 +1,54 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MessageCodecTest {
+    @Test
+    public void roundTripsEveryField() throws IOException {
+        WidgetMessage pm = WidgetMessage.privateMessage("<img=2>Zezima", "café ☃ <col=ff0000>hi</col>", 1234L,
+                true);
+        pm.incrementCount();
+        WidgetMessage login = WidgetMessage.loginNotification("Woox", "Woox has logged in.", 5678L, 30);
+        WidgetMessage game = WidgetMessage.gameMessage("Your Vorkath kill count is: 12.", 9L,
+                ChatMessageType.GAMEMESSAGE, MessageCategory.BOSS_KC.mask());
+
+        for (WidgetMessage msg : new WidgetMessage[]{pm, login, game}) {
+            assertMessageEquals(msg, roundTrip(msg));
+        }
+    }
+
+    @Test
+    public void keepsNullSender() throws IOException {
+        WidgetMessage msg = WidgetMessage.gameMessage("You catch a lobster.", 1L, ChatMessageType.SPAM, 0);
+        assertNull(roundTrip(msg).getSender());
+    }
+
+    private static WidgetMessage roundTrip(WidgetMessage msg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageCodec.write(new DataOutputStream(bytes), msg);
+        return MessageCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    static void assertMessageEquals(WidgetMessage expected, WidgetMessage actual) {
+        assertEquals(expected.getSequence(), actual.getSequence());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getCategories(), actual.getCategories());
+        assertEquals(expected.getSender(), actual.getSender());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.isOutgoing(), actual.isOutgoing());
+        assertEquals(expected.isPrivate(), actual.isPrivate());
+        assertEquals(expected.getMaxFadeSeconds(), actual.getMaxFadeSeconds());
+        assertEquals(expected.getCount(), actual.getCount());
+    }
+}
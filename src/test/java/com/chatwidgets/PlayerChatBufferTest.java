@@ -0,0 +1,87 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PlayerChatBufferTest {
+    @Test
+    public void keepsTheLatestMessagesUpToCapacity() {
+        PlayerChatBuffer buffer = new PlayerChatBuffer(2);
+        WidgetMessage first = message("first", 1);
+
+        assertNull(buffer.add(first));
+        assertNull(buffer.add(message("second", 2)));
+        assertSame(first, buffer.add(message("third", 3)));
+
+        assertMessages(buffer, "second", "third");
+        assertFalse(buffer.contains(first));
+        assertEquals(3, buffer.getLatestTimestamp());
+    }
+
+    @Test
+    public void shrinkingKeepsTheNewestMessages() {
+        PlayerChatBuffer buffer = new PlayerChatBuffer(3);
+        for (int i = 1; i <= 4; i++) {
+            buffer.add(message("m" + i, i));
+        }
+
+        buffer.setCapacity(2);
+        assertMessages(buffer, "m3", "m4");
+
+        buffer.add(message("m5", 5));
+        assertMessages(buffer, "m4", "m5");
+    }
+
+    @Test
+    public void growingKeepsEveryMessage() {
+        PlayerChatBuffer buffer = new PlayerChatBuffer(2);
+        for (int i = 1; i <= 3; i++) {
+            buffer.add(message("m" + i, i));
+        }
+
+        buffer.setCapacity(4);
+        buffer.add(message("m4", 4));
+        buffer.add(message("m5", 5));
+        assertMessages(buffer, "m2", "m3", "m4", "m5");
+
+        buffer.setCapacity(0);
+        assertMessages(buffer, "m5");
+    }
+
+    @Test
+    public void prunesMessagesSentBeforeTheCutoff() {
+        PlayerChatBuffer buffer = new PlayerChatBuffer(3);
+        // wrap the ring so pruning crosses the end of the array
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(message("m" + i, i * 10));
+        }
+
+        assertEquals(0, buffer.pruneOlderThan(30));
+        assertEquals(2, buffer.pruneOlderThan(50));
+        assertMessages(buffer, "m5");
+
+        buffer.add(message("m6", 60));
+        assertMessages(buffer, "m5", "m6");
+
+        assertEquals(2, buffer.pruneOlderThan(100));
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.getLatestTimestamp());
+    }
+
+    private static WidgetMessage message(String text, long timestamp) {
+        return WidgetMessage.channelMessage("Zezima", text, timestamp, ChatMessageType.PUBLICCHAT);
+    }
+
+    private static void assertMessages(PlayerChatBuffer buffer, String... expected) {
+        assertEquals(expected.length, buffer.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], buffer.get(i).getMessage());
+        }
+    }
+}
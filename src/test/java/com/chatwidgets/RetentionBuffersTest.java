@@ -0,0 +1,185 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class RetentionBuffersTest {
+    private MessageStore store;
+    private RetentionBuffers retention;
+
+    @Before
+    public void setUp() {
+        store = new MessageStore(100);
+        retention = new RetentionBuffers();
+        for (RetentionClass retentionClass : RetentionClass.values()) {
+            retention.setPolicy(retentionClass, 100, 0);
+        }
+        store.addJournal(retention);
+    }
+
+    @Test
+    public void evictsByCountPerClass() {
+        retention.setPolicy(RetentionClass.SPAM, 2, 0);
+        add("other 1", ChatMessageType.GAMEMESSAGE, 0);
+        add("spam 1", ChatMessageType.SPAM, 0);
+        add("spam 2", ChatMessageType.SPAM, 0);
+        add("spam 3", ChatMessageType.SPAM, 0);
+        add("drop 1", ChatMessageType.GAMEMESSAGE, 1);
+
+        assertEquals(2, retention.size(RetentionClass.SPAM));
+        assertEquals(1, retention.size(RetentionClass.KILLS_AND_DROPS));
+        assertEquals(texts("other 1", "spam 2", "spam 3", "drop 1"), latest(10, 0, 0));
+        assertEquals(texts("spam 3", "drop 1"), latest(2, 0, 0));
+        // shrinking a class evicts its oldest messages straight away
+        retention.setPolicy(RetentionClass.SPAM, 1, 0);
+        assertEquals(texts("other 1", "spam 3", "drop 1"), latest(10, 0, 0));
+    }
+
+    @Test
+    public void expiresByAgePerClass() {
+        retention.setPolicy(RetentionClass.SPAM, 100, 1000);
+        add("spam 1", ChatMessageType.SPAM, 0, 0);
+        add("other 1", ChatMessageType.GAMEMESSAGE, 0, 0);
+        add("spam 2", ChatMessageType.SPAM, 0, 600);
+
+        assertEquals(texts("spam 1", "other 1", "spam 2"), latest(10, 0, 999));
+        assertEquals(texts("other 1", "spam 2"), latest(10, 0, 1000));
+        assertEquals(1, retention.size(RetentionClass.SPAM));
+        assertEquals(texts("other 1"), latest(10, 0, 1600));
+        assertEquals(0, retention.size(RetentionClass.SPAM));
+    }
+
+    @Test
+    public void stopsAtTheFirstMessagePastTheMaxAge() {
+        add("old", ChatMessageType.GAMEMESSAGE, 0, 0);
+        add("newer", ChatMessageType.GAMEMESSAGE, 0, 500);
+        add("newest", ChatMessageType.GAMEMESSAGE, 0, 900);
+
+        assertEquals(texts("newer", "newest"), latest(10, 1000, 1000));
+        assertEquals(texts("newest"), latest(10, 1000, 1500));
+        // the age cutoff only hides messages; they are still retained
+        assertEquals(3, retention.size(RetentionClass.OTHER));
+    }
+
+    @Test
+    public void appliesTheFilter() {
+        add("spam 1", ChatMessageType.SPAM, 0);
+        add("other 1", ChatMessageType.GAMEMESSAGE, 0);
+        retention.setFilter(msg -> msg.getType() != ChatMessageType.SPAM);
+        add("spam 2", ChatMessageType.SPAM, 0);
+        add("other 2", ChatMessageType.GAMEMESSAGE, 0);
+
+        assertEquals(texts("other 1", "other 2"), latest(10, 0, 0));
+        retention.setFilter(msg -> true);
+        assertEquals(texts("spam 1", "other 1", "spam 2", "other 2"), latest(10, 0, 0));
+    }
+
+    @Test
+    public void followsReplacementsAndRemovals() {
+        add("spam 1", ChatMessageType.SPAM, 0);
+        add("other 1", ChatMessageType.GAMEMESSAGE, 0);
+        add("other 2", ChatMessageType.GAMEMESSAGE, 0);
+
+        store.set(0, WidgetMessage.gameMessage("drop 1", 0, ChatMessageType.GAMEMESSAGE, 1));
+        assertEquals(0, retention.size(RetentionClass.SPAM));
+        assertEquals(1, retention.size(RetentionClass.KILLS_AND_DROPS));
+        // the replacement is newer, so it moves to the end
+        assertEquals(texts("other 1", "other 2", "drop 1"), latest(10, 0, 0));
+
+        store.remove(0);
+        assertEquals(texts("other 1", "other 2"), latest(10, 0, 0));
+    }
+
+    @Test
+    public void dropsMessagesTheStoreEvicts() {
+        store.setCapacity(3);
+        add("spam 1", ChatMessageType.SPAM, 0);
+        add("other 1", ChatMessageType.GAMEMESSAGE, 0);
+        add("other 2", ChatMessageType.GAMEMESSAGE, 0);
+        add("other 3", ChatMessageType.GAMEMESSAGE, 0);
+
+        assertEquals(0, retention.size(RetentionClass.SPAM));
+        assertEquals(texts("other 1", "other 2", "other 3"), latest(10, 0, 0));
+    }
+
+    @Test
+    public void keepsSequenceOrderThroughInterleavedEvictions() {
+        retention.setPolicy(RetentionClass.SPAM, 3, 0);
+        retention.setPolicy(RetentionClass.OTHER, 5, 0);
+        List<String> spam = new ArrayList<>();
+        List<String> other = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            boolean isSpam = i % 3 != 0;
+            String text = (isSpam ? "spam " : "other ") + i;
+            add(text, isSpam ? ChatMessageType.SPAM : ChatMessageType.GAMEMESSAGE, 0);
+            List<String> ring = isSpam ? spam : other;
+            ring.add(text);
+            if (ring.size() > (isSpam ? 3 : 5)) {
+                ring.remove(0);
+            }
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String text = (i % 3 != 0 ? "spam " : "other ") + i;
+            if (spam.contains(text) || other.contains(text)) {
+                expected.add(text);
+            }
+        }
+        assertEquals(expected, latest(10, 0, 0));
+        assertEquals(expected.subList(4, 8), latest(4, 0, 0));
+    }
+
+    @Test
+    public void returnsTheSameListWhileUnchanged() {
+        add("other 1", ChatMessageType.GAMEMESSAGE, 0);
+        List<WidgetMessage> first = retention.getLatest(10, 0, 0);
+
+        assertSame(first, retention.getLatest(10, 0, 0));
+        add("other 2", ChatMessageType.GAMEMESSAGE, 0);
+        assertNotSame(first, retention.getLatest(10, 0, 0));
+    }
+
+    @Test
+    public void rebuildsFromTheStore() {
+        store.removeJournal(retention);
+        add("spam 1", ChatMessageType.SPAM, 0);
+        add("other 1", ChatMessageType.GAMEMESSAGE, 0);
+        assertEquals(texts(), latest(10, 0, 0));
+
+        retention.rebuild(store);
+        assertEquals(texts("spam 1", "other 1"), latest(10, 0, 0));
+    }
+
+    private void add(String text, ChatMessageType type, int categories) {
+        add(text, type, categories, 0);
+    }
+
+    private void add(String text, ChatMessageType type, int categories, long timestamp) {
+        store.add(WidgetMessage.gameMessage(text, timestamp, type, categories));
+    }
+
+    private List<String> latest(int maxMessages, long maxAgeMs, long currentTime) {
+        List<String> texts = new ArrayList<>();
+        for (WidgetMessage msg : retention.getLatest(maxMessages, maxAgeMs, currentTime)) {
+            texts.add(msg.getMessage());
+        }
+        return texts;
+    }
+
+    private static List<String> texts(String... texts) {
+        List<String> list = new ArrayList<>(texts.length);
+        for (String text : texts) {
+            list.add(text);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,84 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScrollbackIndexTest {
+    @Test
+    public void prefixSumsFollowSet() {
+        MessageStore store = store(100, 10);
+        ScrollbackIndex index = new ScrollbackIndex();
+        index.sync(store);
+
+        long head = index.getHead();
+        assertEquals(10, index.totalLines());
+        index.set(head + 2, 3);
+        index.set(head + 5, 4);
+        index.set(head + 2, 2);
+
+        // 1 1 2 1 1 4 1 1 1 1
+        assertEquals(14, index.totalLines());
+        assertEquals(0, index.linesBefore(head));
+        assertEquals(2, index.linesBefore(head + 2));
+        assertEquals(4, index.linesBefore(head + 3));
+        assertEquals(6, index.linesBefore(head + 5));
+        assertEquals(10, index.linesBefore(head + 6));
+        assertEquals(head + 2, index.positionAtLine(2));
+        assertEquals(head + 2, index.positionAtLine(3));
+        assertEquals(head + 5, index.positionAtLine(9));
+        assertEquals(head + 9, index.positionAtLine(13));
+    }
+
+    @Test
+    public void keepsLayoutsWhenMessagesAreAppendedAndEvicted() {
+        MessageStore store = store(10, 10);
+        ScrollbackIndex index = new ScrollbackIndex();
+        index.sync(store);
+        long head = index.getHead();
+        index.set(head + 8, 5);
+
+        store.add(message(10));
+        store.add(message(11));
+        index.sync(store);
+
+        assertEquals(head + 2, index.getHead());
+        assertEquals(14, index.totalLines());
+        assertEquals(5, index.get(head + 8));
+        assertEquals(6, index.linesBefore(head + 8));
+    }
+
+    @Test
+    public void shiftsPositionsAfterARemoval() {
+        MessageStore store = store(100, 10);
+        ScrollbackIndex index = new ScrollbackIndex();
+        index.sync(store);
+        long head = index.getHead();
+        index.set(head + 3, 2);
+        index.set(head + 7, 3);
+
+        store.remove(5);
+        index.sync(store);
+
+        assertEquals(9, index.getEnd() - index.getHead());
+        assertEquals(12, index.totalLines());
+        assertEquals(2, index.get(head + 3));
+        // the message at 7 moved down to 6
+        assertEquals(3, index.get(head + 6));
+        assertEquals(head + 6, index.adjustForRemovals(head + 7));
+        assertEquals(head + 3, index.adjustForRemovals(head + 3));
+    }
+
+    private static MessageStore store(int capacity, int count) {
+        MessageStore store = new MessageStore(capacity);
+        for (int i = 0; i < count; i++) {
+            store.add(message(i));
+        }
+        return store;
+    }
+
+    private static WidgetMessage message(int i) {
+        return WidgetMessage.gameMessage("message " + i, i, ChatMessageType.GAMEMESSAGE, 0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScrollbackTest {
+    private static final LayoutKey KEY = new LayoutKey("game", 200, FontSize.REGULAR, true, false, null, null, null,
+            false, null, false);
+
+    private final LayoutCache layoutCache = new LayoutCache();
+    private final Function<WidgetMessage, List<RenderLine>> layout = msg -> Collections.singletonList(
+            new RenderLine(Collections.singletonList(new TextSegment(msg.getMessage(), -1, 10, null)), 255));
+    private MessageStore store;
+    private Scrollback scrollback;
+
+    @Before
+    public void setUp() {
+        store = new MessageStore(100);
+        for (int i = 0; i < 20; i++) {
+            store.add(WidgetMessage.gameMessage("m" + i, i, ChatMessageType.GAMEMESSAGE, 0));
+        }
+        scrollback = new Scrollback(layoutCache);
+    }
+
+    @Test
+    public void showsOlderLinesAfterScrolling() {
+        assertFalse(scrollback.isActive());
+        scrollback.scroll(5);
+        assertTrue(scrollback.isActive());
+
+        assertEquals(texts("m12", "m13", "m14"), texts(visible()));
+
+        scrollback.scroll(-5);
+        assertEquals(texts(), texts(visible()));
+        assertFalse(scrollback.isActive());
+    }
+
+    @Test
+    public void reusesLinesFromTheSharedLayoutCache() {
+        List<RenderLine> live = layoutCache.get(store.get(14), KEY, layout);
+        long misses = layoutCache.getMisses();
+
+        scrollback.scroll(5);
+        List<RenderLine> lines = visible();
+
+        assertSame(live.get(0), lines.get(2));
+        // only the two messages the live view hadn't laid out
+        assertEquals(misses + 2, layoutCache.getMisses());
+        visible();
+        assertEquals(misses + 2, layoutCache.getMisses());
+    }
+
+    @Test
+    public void skipsFilteredMessagesWithoutLayingThemOut() {
+        scrollback.scroll(5);
+        List<RenderLine> lines = scrollback.getVisibleLines(store, 3, KEY, msg -> !msg.getMessage().equals("m13"),
+                layout);
+
+        assertEquals(texts("m11", "m12", "m14"), texts(lines));
+        assertEquals(3, layoutCache.size());
+    }
+
+    private List<RenderLine> visible() {
+        return scrollback.getVisibleLines(store, 3, KEY, msg -> true, layout);
+    }
+
+    private static List<String> texts(List<RenderLine> lines) {
+        List<String> texts = new ArrayList<>(lines.size());
+        for (RenderLine line : lines) {
+            texts.add(line.segments.get(0).text);
+        }
+        return texts;
+    }
+
+    private static List<String> texts(String... texts) {
+        List<String> list = new ArrayList<>(texts.length);
+        Collections.addAll(list, texts);
+        return list;
+    }
+}
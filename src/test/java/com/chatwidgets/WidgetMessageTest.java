@@ -0,0 +1,68 @@
+package com.chatwidgets;
+
+import net.runelite.api.ChatMessageType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WidgetMessageTest {
+    @Test
+    public void unpacksEveryField() {
+        int categories = 0;
+        for (MessageCategory category : MessageCategory.values()) {
+            categories |= category.mask();
+        }
+        WidgetMessage game = WidgetMessage.gameMessage("drop", 1_700_000_000_123L, ChatMessageType.GAMEMESSAGE,
+                categories);
+        assertEquals(1_700_000_000_123L, game.getTimestamp());
+        assertEquals(ChatMessageType.GAMEMESSAGE, game.getType());
+        assertEquals(categories, game.getCategories());
+        assertTrue(game.hasCategory(MessageCategory.CLUE_COUNT));
+        assertFalse(game.isPrivate());
+        assertEquals(1, game.getCount());
+
+        WidgetMessage login = WidgetMessage.loginNotification("Zezima", "has logged in.", 5L, 300);
+        assertEquals(ChatMessageType.LOGINLOGOUTNOTIFICATION, login.getType());
+        assertEquals(300, login.getMaxFadeSeconds());
+        assertEquals(0, login.getCategories());
+        assertTrue(login.isPrivate());
+        assertFalse(login.isOutgoing());
+
+        WidgetMessage pm = WidgetMessage.privateMessage("Zezima", "hi", 6L, true);
+        assertEquals(ChatMessageType.PRIVATECHATOUT, pm.getType());
+        assertTrue(pm.isOutgoing());
+        assertTrue(pm.isPrivate());
+    }
+
+    @Test
+    public void countsDuplicatesWithoutTouchingTheTimestamp() {
+        WidgetMessage msg = WidgetMessage.gameMessage("spam", 1_700_000_000_000L, ChatMessageType.SPAM, 0);
+        for (int i = 0; i < 1000; i++) {
+            msg.incrementCount();
+        }
+        assertEquals(1001, msg.getCount());
+        assertEquals(1_700_000_000_000L, msg.getTimestamp());
+
+        WidgetMessage restored = WidgetMessage.restore(msg.getSequence(), "spam", msg.getTimestamp(),
+                ChatMessageType.SPAM, 0, null, false, false, 0, Integer.MAX_VALUE);
+        assertEquals((1 << 20) - 1, restored.getCount());
+        restored.incrementCount();
+        assertEquals((1 << 20) - 1, restored.getCount());
+        assertEquals(1_700_000_000_000L, restored.getTimestamp());
+    }
+
+    @Test
+    public void sharesSendersUntilThePoolIsCleared() {
+        String first = new String("Lynx Titan");
+        String second = new String("Lynx Titan");
+        WidgetMessage.clearSenderPool();
+        assertSame(WidgetMessage.privateMessage(first, "a", 0, false).getSender(),
+                WidgetMessage.privateMessage(second, "b", 0, false).getSender());
+
+        WidgetMessage.clearSenderPool();
+        assertSame(second, WidgetMessage.privateMessage(second, "c", 0, false).getSender());
+    }
+}